@@ -22,12 +22,20 @@ public class BizConfig extends RefreshableConfig {
   private static final int DEFAULT_ITEM_VALUE_LENGTH = 20000;
   private static final int DEFAULT_APPNAMESPACE_CACHE_REBUILD_INTERVAL = 60; //60s
   private static final int DEFAULT_GRAY_RELEASE_RULE_SCAN_INTERVAL = 60; //60s
+  private static final int DEFAULT_GRAY_RELEASE_RULE_FULL_SCAN_INTERVAL = 3600; //1 hour
   private static final int DEFAULT_APPNAMESPACE_CACHE_SCAN_INTERVAL = 1; //1s
   private static final int DEFAULT_RELEASE_MESSAGE_CACHE_SCAN_INTERVAL = 1; //1s
   private static final int DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS = 1000; //1000ms
+  private static final int DEFAULT_RELEASE_MESSAGE_PUSH_SCAN_INTERVAL_IN_MS = 10000; //10s
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
+  private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS = 2;
   private static final int DEFAULT_LONG_POLLING_TIMEOUT = 60; //60s
+  private static final int DEFAULT_CONFIG_RESPONSE_COMPRESSION_THRESHOLD = 1024; //1KB
+  private static final int DEFAULT_CONFIG_SERVICE_CACHE_MAX_SIZE_IN_MB = 256; //256MB
+  private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI = 1000; //1s
+  private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH = 100;
+  private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_WORKERS = 2;
 
   private Gson gson = new Gson();
   private static final Type namespaceValueLengthOverrideTypeReference =
@@ -59,6 +67,14 @@ public class BizConfig extends RefreshableConfig {
     return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_GRAY_RELEASE_RULE_SCAN_INTERVAL);
   }
 
+  /**
+   * the interval in seconds to reconcile all the gray release rules, the periodic scans only load the new rules
+   */
+  public int grayReleaseRuleFullScanInterval() {
+    int interval = getIntProperty("apollo.gray-release-rule-full-scan.interval", DEFAULT_GRAY_RELEASE_RULE_FULL_SCAN_INTERVAL);
+    return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_GRAY_RELEASE_RULE_FULL_SCAN_INTERVAL);
+  }
+
   public long longPollingTimeoutInMilli() {
     int timeout = getIntProperty("long.polling.timeout", DEFAULT_LONG_POLLING_TIMEOUT);
     // java client's long polling timeout is 90 seconds, so server side long polling timeout must be less than 90
@@ -133,6 +149,18 @@ public class BizConfig extends RefreshableConfig {
     return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS);
   }
 
+  public boolean isReleaseMessagePushEnabled() {
+    return getBooleanProperty("apollo.release-message.push.enabled", false);
+  }
+
+  /**
+   * when release messages are pushed, the periodic scan only fills the gaps of lost pushes
+   */
+  public int releaseMessagePushScanIntervalInMilli() {
+    int interval = getIntProperty("apollo.release-message.push.scan.interval", DEFAULT_RELEASE_MESSAGE_PUSH_SCAN_INTERVAL_IN_MS);
+    return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_PUSH_SCAN_INTERVAL_IN_MS);
+  }
+
   public int releaseMessageNotificationBatch() {
     int batch = getIntProperty("apollo.release-message.notification.batch", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
     return checkInt(batch, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH);
@@ -143,10 +171,49 @@ public class BizConfig extends RefreshableConfig {
     return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
   }
 
+  public int releaseMessageNotificationWorkers() {
+    int workers = getIntProperty("apollo.release-message.notification.workers", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS);
+    return checkInt(workers, 1, 64, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS);
+  }
+
+  /**
+   * responses smaller than the threshold are not compressed even if the client accepts it
+   */
+  public int configResponseCompressionThreshold() {
+    int threshold = getIntProperty("apollo.config-service.response.compression.threshold", DEFAULT_CONFIG_RESPONSE_COMPRESSION_THRESHOLD);
+    return checkInt(threshold, 0, Integer.MAX_VALUE, DEFAULT_CONFIG_RESPONSE_COMPRESSION_THRESHOLD);
+  }
+
   public boolean isConfigServiceCacheEnabled() {
     return getBooleanProperty("config-service.cache.enabled", false);
   }
 
+  /**
+   * the estimated size of the releases each config service cache holds at most
+   */
+  public int configServiceCacheMaxSizeInMB() {
+    int size = getIntProperty("config-service.cache.max-size-in-mb", DEFAULT_CONFIG_SERVICE_CACHE_MAX_SIZE_IN_MB);
+    return checkInt(size, 1, Integer.MAX_VALUE, DEFAULT_CONFIG_SERVICE_CACHE_MAX_SIZE_IN_MB);
+  }
+
+  /**
+   * the pending instance config audits are written to db every interval
+   */
+  public int instanceConfigAuditFlushIntervalInMilli() {
+    int interval = getIntProperty("apollo.instance-config.audit.flush.interval", DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI);
+    return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI);
+  }
+
+  public int instanceConfigAuditBatch() {
+    int batch = getIntProperty("apollo.instance-config.audit.batch", DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+    return checkInt(batch, 1, 1000, DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+  }
+
+  public int instanceConfigAuditWorkers() {
+    int workers = getIntProperty("apollo.instance-config.audit.workers", DEFAULT_INSTANCE_CONFIG_AUDIT_WORKERS);
+    return checkInt(workers, 1, 64, DEFAULT_INSTANCE_CONFIG_AUDIT_WORKERS);
+  }
+
   int checkInt(int value, int min, int max, int defaultValue) {
     if (value >= min && value <= max) {
       return value;
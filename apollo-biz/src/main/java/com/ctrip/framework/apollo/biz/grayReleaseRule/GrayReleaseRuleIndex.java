@@ -0,0 +1,66 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 灰度规则索引，按 clientAppId 和 clientIp 直接查找灰度 Release
+ * <p>
+ * The index of the active rules of a configAppId+configCluster+configNamespace. It is immutable and rebuilt whenever
+ * the rules change, so matching a client costs two hash lookups without locking or copying the rules. A client ip
+ * listed explicitly takes precedence over the rules for all ips.
+ */
+final class GrayReleaseRuleIndex {
+  //clientAppId -> clientIp -> releaseId
+  private final Map<String, Map<String, Long>> releaseIdsByIp;
+  //clientAppId -> releaseId, for the rules of all ips
+  private final Map<String, Long> releaseIdsForAllIps;
+
+  private GrayReleaseRuleIndex(Map<String, Map<String, Long>> releaseIdsByIp, Map<String, Long> releaseIdsForAllIps) {
+    this.releaseIdsByIp = releaseIdsByIp;
+    this.releaseIdsForAllIps = releaseIdsForAllIps;
+  }
+
+  /**
+   * @return null if there are no active rules
+   */
+  static GrayReleaseRuleIndex build(Collection<GrayReleaseRuleCache> rules) {
+    Map<String, Map<String, Long>> releaseIdsByIp = Maps.newHashMap();
+    Map<String, Long> releaseIdsForAllIps = Maps.newHashMap();
+    for (GrayReleaseRuleCache rule : rules) {
+      if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+        continue;
+      }
+      for (GrayReleaseRuleItemDTO ruleItem : rule.getRuleItems()) {
+        if (ruleItem.getClientIpList().contains(GrayReleaseRuleItemDTO.ALL_IP)) {
+          releaseIdsForAllIps.putIfAbsent(ruleItem.getClientAppId(), rule.getReleaseId());
+          continue;
+        }
+        Map<String, Long> releaseIds =
+            releaseIdsByIp.computeIfAbsent(ruleItem.getClientAppId(), clientAppId -> Maps.newHashMap());
+        for (String clientIp : ruleItem.getClientIpList()) {
+          releaseIds.putIfAbsent(clientIp, rule.getReleaseId());
+        }
+      }
+    }
+    if (releaseIdsByIp.isEmpty() && releaseIdsForAllIps.isEmpty()) {
+      return null;
+    }
+    return new GrayReleaseRuleIndex(releaseIdsByIp, releaseIdsForAllIps);
+  }
+
+  Long findReleaseId(String clientAppId, String clientIp) {
+    Map<String, Long> releaseIds = releaseIdsByIp.get(clientAppId);
+    if (releaseIds != null) {
+      Long releaseId = releaseIds.get(clientIp);
+      if (releaseId != null) {
+        return releaseId;
+      }
+    }
+    return releaseIdsForAllIps.get(clientAppId);
+  }
+}
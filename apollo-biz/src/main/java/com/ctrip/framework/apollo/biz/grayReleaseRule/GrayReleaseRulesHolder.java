@@ -5,6 +5,7 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
@@ -29,8 +30,12 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -44,6 +49,8 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
   private static final Splitter STRING_SPLITTER =
       Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+  //the new rule scans start from a bit before the max id loaded, to pick up the rules committed out of id order
+  private static final long NEW_RULE_SCAN_LOOKBACK = 100;
 
   @Autowired
   private GrayReleaseRuleRepository grayReleaseRuleRepository;
@@ -51,9 +58,16 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   private BizConfig bizConfig;
 
   private int databaseScanInterval;
+  private int databaseFullScanInterval;
+  private volatile long lastFullScanTime;
+  private volatile boolean fullScanned;
+  //the max id of the rules loaded, guarded by this
+  private long maxIdLoaded;
   private ScheduledExecutorService executorService;
   //store configAppId+configCluster+configNamespace -> GrayReleaseRuleCache map
   private Multimap<String, GrayReleaseRuleCache> grayReleaseRuleCache;
+  //store configAppId+configCluster -> configNamespace -> index of the active rules, rebuilt when the rules change
+  private ConcurrentMap<String, ConcurrentMap<String, GrayReleaseRuleIndex>> grayReleaseRuleIndexes;
   //store clientAppId+clientNamespace+ip -> ruleId map
   private Multimap<String, Long> reversedGrayReleaseRuleCache;
   //an auto increment version to indicate the age of rules
@@ -62,6 +76,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   public GrayReleaseRulesHolder() {
     loadVersion = new AtomicLong();
     grayReleaseRuleCache = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    grayReleaseRuleIndexes = Maps.newConcurrentMap();
     reversedGrayReleaseRuleCache = Multimaps.synchronizedSetMultimap(HashMultimap.create());
     executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
         .create("GrayReleaseRulesHolder", true));
@@ -70,7 +85,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   @Override
   public void afterPropertiesSet() throws Exception {
     populateDataBaseInterval();
-    //force sync load for the first time
+    //force sync full load for the first time
     periodicScanRules();
     executorService.scheduleWithFixedDelay(this::periodicScanRules,
         getDatabaseScanIntervalSecond(), getDatabaseScanIntervalSecond(), getDatabaseScanTimeUnit()
@@ -94,6 +109,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     String cluster = keys.get(1);
     String namespace = keys.get(2);
 
+    //load the rules of the namespace directly, so a rule committed after ones with greater ids is not missed
     List<GrayReleaseRule> rules = grayReleaseRuleRepository
         .findByAppIdAndClusterNameAndNamespaceName(appId, cluster, namespace);
 
@@ -101,11 +117,18 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   }
 
   private void periodicScanRules() {
+    boolean fullScan = isFullScanDue();
     Transaction transaction = Tracer.newTransaction("Apollo.GrayReleaseRulesScanner",
-        "scanGrayReleaseRules");
+        fullScan ? "scanGrayReleaseRules" : "scanNewGrayReleaseRules");
     try {
-      loadVersion.incrementAndGet();
-      scanGrayReleaseRules();
+      if (fullScan) {
+        loadVersion.incrementAndGet();
+        scanGrayReleaseRules(0);
+        lastFullScanTime = System.nanoTime();
+        fullScanned = true;
+      } else {
+        scanNewGrayReleaseRules();
+      }
       transaction.setStatus(Transaction.SUCCESS);
     } catch (Throwable ex) {
       transaction.setStatus(ex);
@@ -117,22 +140,36 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
 
   public Long findReleaseIdFromGrayReleaseRule(String clientAppId, String clientIp, String
       configAppId, String configCluster, String configNamespaceName) {
-    String key = assembleGrayReleaseRuleKey(configAppId, configCluster, configNamespaceName);
-    if (!grayReleaseRuleCache.containsKey(key)) {
+    Map<String, GrayReleaseRuleIndex> indexes = grayReleaseRuleIndexes.get(STRING_JOINER.join(configAppId,
+        configCluster));
+    GrayReleaseRuleIndex index = indexes == null ? null : indexes.get(configNamespaceName);
+    if (index == null) {
       return null;
     }
-    //create a new list to avoid ConcurrentModificationException
-    List<GrayReleaseRuleCache> rules = Lists.newArrayList(grayReleaseRuleCache.get(key));
-    for (GrayReleaseRuleCache rule : rules) {
-      //check branch status
-      if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
-        continue;
-      }
-      if (rule.matches(clientAppId, clientIp)) {
-        return rule.getReleaseId();
+    return index.findReleaseId(clientAppId, clientIp);
+  }
+
+  /**
+   * 批量查找多个 Namespace 的灰度 Release，同一 appId+cluster 的规则只查找一次
+   *
+   * @return configNamespace -> gray release id, namespaces without matched rules are absent
+   */
+  public Map<String, Long> findReleaseIdsFromGrayReleaseRules(String clientAppId, String clientIp,
+      String configAppId, String configCluster, Collection<String> configNamespaceNames) {
+    Map<String, GrayReleaseRuleIndex> indexes = grayReleaseRuleIndexes.get(STRING_JOINER.join(configAppId,
+        configCluster));
+    if (indexes == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Long> result = Maps.newHashMap();
+    for (String configNamespaceName : configNamespaceNames) {
+      GrayReleaseRuleIndex index = indexes.get(configNamespaceName);
+      Long releaseId = index == null ? null : index.findReleaseId(clientAppId, clientIp);
+      if (releaseId != null) {
+        result.put(configNamespaceName, releaseId);
       }
     }
-    return null;
+    return result;
   }
 
   /**
@@ -147,8 +184,21 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
             .ALL_IP));
   }
 
-  private void scanGrayReleaseRules() {
-    long maxIdScanned = 0;
+  /**
+   * the full scan reconciles the rules missed by the new rule scans, e.g. the ones committed out of id order beyond
+   * the lookback, and removes the outdated inactive rules
+   */
+  private boolean isFullScanDue() {
+    return !fullScanned
+        || System.nanoTime() - lastFullScanTime >= TimeUnit.SECONDS.toNanos(databaseFullScanInterval);
+  }
+
+  private synchronized void scanNewGrayReleaseRules() {
+    scanGrayReleaseRules(Math.max(0, maxIdLoaded - NEW_RULE_SCAN_LOOKBACK));
+  }
+
+  private synchronized void scanGrayReleaseRules(long fromId) {
+    long maxIdScanned = fromId;
     boolean hasMore = true;
 
     while (hasMore && !Thread.currentThread().isInterrupted()) {
@@ -163,12 +213,15 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
       //batch is 500
       hasMore = rulesScanned == 500;
     }
+    maxIdLoaded = Math.max(maxIdLoaded, maxIdScanned);
   }
 
   private void mergeGrayReleaseRules(List<GrayReleaseRule> grayReleaseRules) {
     if (CollectionUtils.isEmpty(grayReleaseRules)) {
       return;
     }
+    //key -> any of the changed rules
+    Map<String, GrayReleaseRule> changedRules = Maps.newHashMap();
     for (GrayReleaseRule grayReleaseRule : grayReleaseRules) {
       if (grayReleaseRule.getReleaseId() == null || grayReleaseRule.getReleaseId() == 0) {
         //filter rules with no release id, i.e. never released
@@ -197,6 +250,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         if (oldRule != null) {
           removeCache(key, oldRule);
         }
+        changedRules.put(key, grayReleaseRule);
       } else {
         if (oldRule.getBranchStatus() == NamespaceBranchStatus.ACTIVE) {
           //update load version
@@ -204,8 +258,39 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         } else if ((loadVersion.get() - oldRule.getLoadVersion()) > 1) {
           //remove outdated inactive branch rule after 2 update cycles
           removeCache(key, oldRule);
+          changedRules.put(key, grayReleaseRule);
+        }
+      }
+    }
+
+    for (Map.Entry<String, GrayReleaseRule> entry : changedRules.entrySet()) {
+      GrayReleaseRule rule = entry.getValue();
+      rebuildIndex(entry.getKey(), rule.getAppId(), rule.getClusterName(), rule.getNamespaceName());
+    }
+  }
+
+  /**
+   * synchronized so that an index built from older rules never replaces a newer one
+   */
+  private synchronized void rebuildIndex(String key, String configAppId, String configCluster,
+                                         String configNamespaceName) {
+    List<GrayReleaseRuleCache> rules;
+    synchronized (grayReleaseRuleCache) {
+      rules = Lists.newArrayList(grayReleaseRuleCache.get(key));
+    }
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(rules);
+    String appClusterKey = STRING_JOINER.join(configAppId, configCluster);
+    if (index == null) {
+      ConcurrentMap<String, GrayReleaseRuleIndex> indexes = grayReleaseRuleIndexes.get(appClusterKey);
+      if (indexes != null) {
+        indexes.remove(configNamespaceName);
+        if (indexes.isEmpty()) {
+          grayReleaseRuleIndexes.remove(appClusterKey);
         }
       }
+    } else {
+      grayReleaseRuleIndexes.computeIfAbsent(appClusterKey, k -> Maps.newConcurrentMap())
+          .put(configNamespaceName, index);
     }
   }
 
@@ -250,6 +335,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
 
   private void populateDataBaseInterval() {
     databaseScanInterval = bizConfig.grayReleaseRuleScanInterval();
+    databaseFullScanInterval = bizConfig.grayReleaseRuleFullScanInterval();
   }
 
   private int getDatabaseScanIntervalSecond() {
@@ -37,15 +37,19 @@ public class DatabaseMessageSender implements MessageSender {
   private final AtomicBoolean cleanStopped;
 
   private final ReleaseMessageRepository releaseMessageRepository;
+  private final ReleaseMessagePusher releaseMessagePusher;
 
   /**
    * 构造函数的依赖注入
    * @param releaseMessageRepository
+   * @param releaseMessagePusher
    */
-  public DatabaseMessageSender(final ReleaseMessageRepository releaseMessageRepository) {
+  public DatabaseMessageSender(final ReleaseMessageRepository releaseMessageRepository,
+      final ReleaseMessagePusher releaseMessagePusher) {
     cleanExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("DatabaseMessageSender", true));
     cleanStopped = new AtomicBoolean(false);
     this.releaseMessageRepository = releaseMessageRepository;
+    this.releaseMessagePusher = releaseMessagePusher;
   }
 
   @Override
@@ -64,6 +68,8 @@ public class DatabaseMessageSender implements MessageSender {
       ReleaseMessage newMessage = releaseMessageRepository.save(new ReleaseMessage(message));
       //添加到清理 Message 队列。若队列已满，添加失败，不阻塞等待。
       toClean.offer(newMessage.getId());
+      //通知 Config Service 立即扫描，事务提交后才会推送
+      releaseMessagePusher.push(message);
       transaction.setStatus(Transaction.SUCCESS);
     } catch (Throwable ex) {
       logger.error("Sending message to database failed", ex);
@@ -0,0 +1,146 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 按依赖关系并行分发 ReleaseMessage 给各个监听器
+ * <p>
+ * Each listener handles a message once all the listeners it depends on have handled the same message, listeners
+ * without dependencies between each other run in parallel. Messages with the same content are handled by a listener
+ * in the order they are dispatched, and an order sensitive listener handles all the messages one by one in order.
+ */
+class ReleaseMessageDispatcher {
+  private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageDispatcher.class);
+  private static final String TRACER_TYPE_LISTENER = "Apollo.ReleaseMessageListener";
+  private static final String ORDER_KEY_SEPARATOR = "|";
+
+  private final List<ListenerNode> nodes = Lists.newCopyOnWriteArrayList();
+  //(listener, message) or listener if order sensitive -> the last dispatched task, used to keep the order
+  private final ConcurrentMap<String, CompletableFuture<Void>> lastTasks = new ConcurrentHashMap<>();
+  private final ExecutorService executorService;
+
+  ReleaseMessageDispatcher(int threads) {
+    executorService = Executors.newFixedThreadPool(threads,
+        ApolloThreadFactory.create("ReleaseMessageDispatcher", true));
+  }
+
+  synchronized void addListener(ReleaseMessageListener listener,
+      Collection<ReleaseMessageListener> dependencies) {
+    if (findNode(listener) != null) {
+      return;
+    }
+    List<ListenerNode> dependencyNodes = Lists.newArrayList();
+    for (ReleaseMessageListener dependency : dependencies) {
+      ListenerNode dependencyNode = findNode(dependency);
+      if (dependencyNode == null) {
+        throw new IllegalArgumentException(String.format("Dependency %s of listener %s is not registered",
+            dependency.getClass(), listener.getClass()));
+      }
+      dependencyNodes.add(dependencyNode);
+    }
+    nodes.add(new ListenerNode(nodes.size(), listener, dependencyNodes));
+  }
+
+  List<ReleaseMessageListener> getListeners() {
+    List<ReleaseMessageListener> listeners = Lists.newArrayList();
+    for (ListenerNode node : nodes) {
+      listeners.add(node.listener);
+    }
+    return listeners;
+  }
+
+  /**
+   * @return the future completed when all the listeners have handled the messages
+   */
+  synchronized CompletableFuture<Void> dispatch(List<ReleaseMessage> messages, String channel) {
+    List<CompletableFuture<Void>> tasks = Lists.newArrayList();
+    for (ReleaseMessage message : messages) {
+      //nodes are registered after their dependencies, so the dependency tasks are always created first
+      Map<ListenerNode, CompletableFuture<Void>> messageTasks = Maps.newHashMap();
+      for (ListenerNode node : nodes) {
+        CompletableFuture<Void> task = dispatch(node, message, channel, messageTasks);
+        messageTasks.put(node, task);
+        tasks.add(task);
+      }
+    }
+    return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
+  }
+
+  private CompletableFuture<Void> dispatch(ListenerNode node, ReleaseMessage message, String channel,
+      Map<ListenerNode, CompletableFuture<Void>> messageTasks) {
+    List<CompletableFuture<Void>> waitFor = Lists.newArrayList();
+    for (ListenerNode dependency : node.dependencies) {
+      waitFor.add(messageTasks.get(dependency));
+    }
+
+    String orderKey = node.orderSensitive ? String.valueOf(node.index)
+        : node.index + ORDER_KEY_SEPARATOR + message.getMessage();
+    CompletableFuture<Void> lastTask = lastTasks.get(orderKey);
+    if (lastTask != null) {
+      waitFor.add(lastTask);
+    }
+
+    CompletableFuture<Void> task = CompletableFuture.allOf(waitFor.toArray(new CompletableFuture[0]))
+        .thenRunAsync(() -> invoke(node, message, channel), executorService);
+    lastTasks.put(orderKey, task);
+    task.whenComplete((result, ex) -> lastTasks.remove(orderKey, task));
+
+    return task;
+  }
+
+  private void invoke(ListenerNode node, ReleaseMessage message, String channel) {
+    Transaction transaction = Tracer.newTransaction(TRACER_TYPE_LISTENER, node.name);
+    try {
+      node.listener.handleMessage(message, channel);
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      Tracer.logError(ex);
+      logger.error("Failed to invoke message listener {}", node.listener.getClass(), ex);
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  private ListenerNode findNode(ReleaseMessageListener listener) {
+    for (ListenerNode node : nodes) {
+      if (node.listener.equals(listener)) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  private static class ListenerNode {
+    private final int index;
+    private final String name;
+    private final boolean orderSensitive;
+    private final ReleaseMessageListener listener;
+    private final List<ListenerNode> dependencies;
+
+    ListenerNode(int index, ReleaseMessageListener listener, List<ListenerNode> dependencies) {
+      this.index = index;
+      this.name = ClassUtils.getUserClass(listener).getSimpleName();
+      this.orderSensitive = listener.isOrderSensitive();
+      this.listener = listener;
+      this.dependencies = dependencies;
+    }
+  }
+}
@@ -7,4 +7,12 @@ import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
  */
 public interface ReleaseMessageListener {
   void handleMessage(ReleaseMessage message, String channel);
+
+  /**
+   * @return true if all the messages should be handled one by one in the order of their ids, otherwise only the
+   * messages with the same content are handled in order
+   */
+  default boolean isOrderSensitive() {
+    return false;
+  }
 }
@@ -0,0 +1,101 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 发布消息后主动通知 Config Service 立即扫描 ReleaseMessage，替代等待定时扫描
+ * <p>
+ * The push only carries a scan hint, config services still load the messages from database, so the message order
+ * and the notification ids stay the same as the polling mode, and a lost push is covered by the periodic scan.
+ */
+@Component
+public class ReleaseMessagePusher {
+  private static final Logger logger = LoggerFactory.getLogger(ReleaseMessagePusher.class);
+  private static final String SCAN_URL_PATTERN = "%s/release-messages/scan?message={message}";
+  private static final int PUSH_THREAD_POOL_SIZE = 4;
+  private static final int PUSH_TIMEOUT_IN_MILLI = 1000;
+
+  private final BizConfig bizConfig;
+  private final DiscoveryClient discoveryClient;
+  private final ExecutorService pushExecutorService;
+  private RestTemplate restTemplate;
+
+  public ReleaseMessagePusher(final BizConfig bizConfig, final DiscoveryClient discoveryClient) {
+    this.bizConfig = bizConfig;
+    this.discoveryClient = discoveryClient;
+    pushExecutorService = Executors.newFixedThreadPool(PUSH_THREAD_POOL_SIZE,
+        ApolloThreadFactory.create("ReleaseMessagePusher", true));
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(PUSH_TIMEOUT_IN_MILLI);
+    requestFactory.setReadTimeout(PUSH_TIMEOUT_IN_MILLI);
+    restTemplate = new RestTemplate(requestFactory);
+  }
+
+  /**
+   * Push the message to all config services, if there is an active transaction, push after it is committed
+   */
+  public void push(String message) {
+    if (!bizConfig.isReleaseMessagePushEnabled()) {
+      return;
+    }
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit() {
+          doPush(message);
+        }
+      });
+      return;
+    }
+
+    doPush(message);
+  }
+
+  private void doPush(String message) {
+    List<ServiceInstance> configServices;
+    try {
+      configServices = discoveryClient.getInstances(ServiceNameConsts.APOLLO_CONFIGSERVICE);
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.warn("Load config service instances failed, skip pushing message {}", message, ex);
+      return;
+    }
+
+    for (ServiceInstance configService : configServices) {
+      pushExecutorService.submit(() -> pushToConfigService(configService, message));
+    }
+  }
+
+  private void pushToConfigService(ServiceInstance configService, String message) {
+    String url = String.format(SCAN_URL_PATTERN, configService.getUri());
+    Transaction transaction = Tracer.newTransaction("Apollo.AdminService", "pushMessage");
+    try {
+      restTemplate.postForEntity(url, null, Void.class, message);
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      //the config service would still receive the message in the next periodic scan
+      transaction.setStatus(ex);
+      logger.warn("Push message {} to config service {} failed", message, configService.getUri(), ex);
+    } finally {
+      transaction.complete();
+    }
+  }
+}
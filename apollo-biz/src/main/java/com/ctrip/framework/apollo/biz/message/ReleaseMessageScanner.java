@@ -1,9 +1,11 @@
 package com.ctrip.framework.apollo.biz.message;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,7 +19,6 @@ import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
-import com.google.common.collect.Lists;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -25,6 +26,7 @@ import com.google.common.collect.Lists;
 public class ReleaseMessageScanner implements InitializingBean {
 
   private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageScanner.class);
+  private static final int DISPATCH_THREAD_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
 
   @Autowired
   private BizConfig bizConfig;
@@ -34,13 +36,16 @@ public class ReleaseMessageScanner implements InitializingBean {
 
   //从 DB 中扫描 ReleaseMessage 表的频率，单位：毫秒
   private int databaseScanInterval;
-  private List<ReleaseMessageListener> listeners;
+  private final ReleaseMessageDispatcher dispatcher;
   private ScheduledExecutorService executorService;
   //最后扫描到的 ReleaseMessage 的编号
   private long maxIdScanned;
+  //是否已有待执行的即时扫描，用于合并 Admin Service 的推送
+  private final AtomicBoolean scanRequested;
 
   public ReleaseMessageScanner() {
-    listeners = Lists.newCopyOnWriteArrayList();
+    dispatcher = new ReleaseMessageDispatcher(DISPATCH_THREAD_POOL_SIZE);
+    scanRequested = new AtomicBoolean(false);
     executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
         .create("ReleaseMessageScanner", true));
   }
@@ -48,31 +53,60 @@ public class ReleaseMessageScanner implements InitializingBean {
   @Override
   public void afterPropertiesSet() throws Exception {
 
-    databaseScanInterval = bizConfig.releaseMessageScanIntervalInMilli();
+    //若开启了推送，定时扫描只用于补偿丢失的推送，降低扫描频率
+    databaseScanInterval = bizConfig.isReleaseMessagePushEnabled() ?
+        bizConfig.releaseMessagePushScanIntervalInMilli() : bizConfig.releaseMessageScanIntervalInMilli();
     maxIdScanned = loadLargestMessageId();
 
-    executorService.scheduleWithFixedDelay((Runnable) () -> {
-      Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageScanner", "scanMessage");
-      try {
-        scanMessages();
-        transaction.setStatus(Transaction.SUCCESS);
-      } catch (Throwable ex) {
-        transaction.setStatus(ex);
-        logger.error("Scan and send message failed", ex);
-      } finally {
-        transaction.complete();
-      }
-    }, databaseScanInterval, databaseScanInterval, TimeUnit.MILLISECONDS);
+    executorService.scheduleWithFixedDelay((Runnable) () -> scanMessagesWithTransaction("scanMessage"),
+        databaseScanInterval, databaseScanInterval, TimeUnit.MILLISECONDS);
 
   }
 
   /**
-   * add message listeners for release message
+   * Scan messages as soon as possible, e.g. when admin service pushes a new release message.
+   * Requests arriving before the pending scan starts are merged into it.
+   */
+  public void scanNow() {
+    if (!scanRequested.compareAndSet(false, true)) {
+      return;
+    }
+    executorService.execute(() -> {
+      scanRequested.set(false);
+      scanMessagesWithTransaction("scanMessageOnPush");
+    });
+  }
+
+  /**
+   * add message listeners for release message, the listener handles a message after all the previously added
+   * listeners have handled it
    * @param listener
    */
   public void addMessageListener(ReleaseMessageListener listener) {
-    if (!listeners.contains(listener)) {
-      listeners.add(listener);
+    dispatcher.addListener(listener, dispatcher.getListeners());
+  }
+
+  /**
+   * add message listeners for release message, the listener handles a message after the dependencies have handled it,
+   * and runs in parallel with the other listeners
+   * @param listener
+   * @param dependencies listeners which must be added before
+   */
+  public void addMessageListener(ReleaseMessageListener listener,
+      Collection<ReleaseMessageListener> dependencies) {
+    dispatcher.addListener(listener, dependencies);
+  }
+
+  private void scanMessagesWithTransaction(String name) {
+    Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageScanner", name);
+    try {
+      scanMessages();
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      logger.error("Scan and send message failed", ex);
+    } finally {
+      transaction.complete();
     }
   }
 
@@ -114,19 +148,10 @@ public class ReleaseMessageScanner implements InitializingBean {
   }
 
   /**
-   * Notify listeners with messages loaded
+   * Notify listeners with messages loaded, wait until all of them are handled before scanning the next batch
    * @param messages
    */
   private void fireMessageScanned(List<ReleaseMessage> messages) {
-    for (ReleaseMessage message : messages) {
-      for (ReleaseMessageListener listener : listeners) {
-        try {
-          listener.handleMessage(message, Topics.APOLLO_RELEASE_TOPIC);
-        } catch (Throwable ex) {
-          Tracer.logError(ex);
-          logger.error("Failed to invoke message listener {}", listener.getClass(), ex);
-        }
-      }
-    }
+    dispatcher.dispatch(messages, Topics.APOLLO_RELEASE_TOPIC).join();
   }
 }
@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.biz.repository.InstanceConfigRepository;
 import com.ctrip.framework.apollo.biz.repository.InstanceRepository;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import java.util.Objects;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -16,9 +17,11 @@ import org.springframework.util.CollectionUtils;
 
 import java.math.BigInteger;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -42,6 +45,15 @@ public class InstanceService {
         dataCenter, ip);
   }
 
+  public List<Instance> findInstances(String appId, String clusterName, String dataCenter,
+      Collection<String> ips) {
+    if (CollectionUtils.isEmpty(ips)) {
+      return Collections.emptyList();
+    }
+    return instanceRepository.findByAppIdAndClusterNameAndDataCenterAndIpIn(appId, clusterName,
+        dataCenter, ips);
+  }
+
   public List<Instance> findInstancesByIds(Set<Long> instanceIds) {
     Iterable<Instance> instances = instanceRepository.findAllById(instanceIds);
     if (instances == null) {
@@ -57,6 +69,16 @@ public class InstanceService {
     return instanceRepository.save(instance);
   }
 
+  /**
+   * create the instances in one transaction, it fails as a whole if any of them exists
+   */
+  @Transactional
+  public List<Instance> batchCreateInstances(List<Instance> instances) {
+    instances.forEach(instance -> instance.setId(0)); //protection
+
+    return Lists.newArrayList(instanceRepository.saveAll(instances));
+  }
+
   public InstanceConfig findInstanceConfig(long instanceId, String configAppId, String
       configNamespaceName) {
     return instanceConfigRepository
@@ -64,6 +86,13 @@ public class InstanceService {
             instanceId, configAppId, configNamespaceName);
   }
 
+  public List<InstanceConfig> findInstanceConfigsByInstanceIds(Collection<Long> instanceIds) {
+    if (CollectionUtils.isEmpty(instanceIds)) {
+      return Collections.emptyList();
+    }
+    return instanceConfigRepository.findByInstanceIdIn(instanceIds);
+  }
+
   public Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable
       pageable) {
     Page<InstanceConfig> instanceConfigs = instanceConfigRepository
@@ -174,6 +203,41 @@ public class InstanceService {
     return instanceConfigRepository.save(existedInstanceConfig);
   }
 
+  /**
+   * create the instance configs in one transaction, it fails as a whole if any of them exists
+   */
+  @Transactional
+  public List<InstanceConfig> batchCreateInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+    instanceConfigs.forEach(instanceConfig -> instanceConfig.setId(0)); //protection
+
+    return Lists.newArrayList(instanceConfigRepository.saveAll(instanceConfigs));
+  }
+
+  /**
+   * update the instance configs in one transaction, the existing ones are loaded by one query
+   */
+  @Transactional
+  public List<InstanceConfig> batchUpdateInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+    Set<Long> ids = instanceConfigs.stream().map(InstanceConfig::getId).collect(Collectors.toSet());
+    Map<Long, InstanceConfig> existedInstanceConfigs = Maps.newHashMap();
+    instanceConfigRepository.findAllById(ids)
+        .forEach(existed -> existedInstanceConfigs.put(existed.getId(), existed));
+
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      InstanceConfig existedInstanceConfig = existedInstanceConfigs.get(instanceConfig.getId());
+      Preconditions.checkArgument(existedInstanceConfig != null, String.format(
+          "Instance config %d doesn't exist", instanceConfig.getId()));
+
+      existedInstanceConfig.setConfigClusterName(instanceConfig.getConfigClusterName());
+      existedInstanceConfig.setReleaseKey(instanceConfig.getReleaseKey());
+      existedInstanceConfig.setReleaseDeliveryTime(instanceConfig.getReleaseDeliveryTime());
+      existedInstanceConfig.setDataChangeLastModifiedTime(instanceConfig
+          .getDataChangeLastModifiedTime());
+    }
+
+    return Lists.newArrayList(instanceConfigRepository.saveAll(existedInstanceConfigs.values()));
+  }
+
   @Transactional
   public int batchDeleteInstanceConfig(String configAppId, String configClusterName, String configNamespaceName){
     return instanceConfigRepository.batchDelete(configAppId, configClusterName, configNamespaceName);
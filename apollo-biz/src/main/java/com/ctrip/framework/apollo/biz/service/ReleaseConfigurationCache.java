@@ -0,0 +1,214 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已解析的 Release 配置缓存
+ * <p>
+ * Releases are immutable, so the configurations of a release are parsed once per node and shared by all the request
+ * paths. The parsed maps are read-only and backed by sorted arrays, and their keys and short values are interned, as
+ * the releases of the same app in different clusters mostly have the same keys and values.
+ */
+@Service
+public class ReleaseConfigurationCache {
+  private static final Logger logger = LoggerFactory.getLogger(ReleaseConfigurationCache.class);
+  private static final Gson gson = new Gson();
+  private static final long MAX_CACHE_SIZE = 100 * 1024 * 1024; // 100MB
+  private static final long EXPIRE_AFTER_ACCESS = 60;
+  private static final int MAX_INTERNED_VALUE_LENGTH = 128;
+  private static final String TRACER_EVENT_CACHE_LOAD = "ReleaseConfiguration.Cache.Load";
+  private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+
+  private final Cache<Long, ReleaseConfigurations> configurationsCache;
+
+  public ReleaseConfigurationCache() {
+    configurationsCache = CacheBuilder.newBuilder()
+        .expireAfterAccess(EXPIRE_AFTER_ACCESS, TimeUnit.MINUTES)
+        .weigher((Weigher<Long, ReleaseConfigurations>) (key, value) -> value.getEstimatedSize())
+        .maximumWeight(MAX_CACHE_SIZE)
+        .build();
+  }
+
+  /**
+   * @return the read-only configurations of the release
+   */
+  public Map<String, String> getConfigurations(Release release) {
+    //not saved yet, so it has no id to be cached by
+    if (release.getId() <= 0) {
+      return parse(release.getConfigurations()).getConfigurations();
+    }
+    try {
+      return configurationsCache.get(release.getId(), () -> load(release)).getConfigurations();
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      Throwables.propagateIfPossible(ex.getCause());
+      throw new IllegalStateException(
+          String.format("Parse configurations of release %d failed", release.getId()), ex.getCause());
+    }
+  }
+
+  private ReleaseConfigurations load(Release release) {
+    Transaction transaction = Tracer.newTransaction(TRACER_EVENT_CACHE_LOAD, String.valueOf(release.getId()));
+    try {
+      ReleaseConfigurations configurations = parse(release.getConfigurations());
+      transaction.addData("entries", configurations.getConfigurations().size());
+      transaction.addData("estimatedSize", configurations.getEstimatedSize());
+      transaction.setStatus(Transaction.SUCCESS);
+      logger.debug("Release {} parsed, entries: {}, estimated size: {} bytes", release.getId(),
+          configurations.getConfigurations().size(), configurations.getEstimatedSize());
+      return configurations;
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      throw ex;
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  static ReleaseConfigurations parse(String configurations) {
+    Map<String, String> parsed = gson.fromJson(configurations, GsonType.CONFIG);
+    SortedMap<String, String> sorted = parsed == null ? new TreeMap<>() : new TreeMap<>(parsed);
+
+    String[] keys = new String[sorted.size()];
+    String[] values = new String[sorted.size()];
+    //array headers and references
+    long estimatedSize = 2 * (16 + 4L * keys.length);
+    int index = 0;
+    for (Map.Entry<String, String> entry : sorted.entrySet()) {
+      keys[index] = STRING_INTERNER.intern(entry.getKey());
+      values[index] = intern(entry.getValue());
+      estimatedSize += estimateSize(keys[index]) + estimateSize(values[index]);
+      index++;
+    }
+    return new ReleaseConfigurations(new CompactConfigurations(keys, values),
+        (int) Math.min(estimatedSize, Integer.MAX_VALUE));
+  }
+
+  private static String intern(String value) {
+    if (value == null || value.length() > MAX_INTERNED_VALUE_LENGTH) {
+      return value;
+    }
+    return STRING_INTERNER.intern(value);
+  }
+
+  /**
+   * the size without sharing the interned strings, 2 bytes per char
+   */
+  private static long estimateSize(String value) {
+    return value == null ? 0 : 40 + 2L * value.length();
+  }
+
+  static class ReleaseConfigurations {
+    private final Map<String, String> configurations;
+    private final int estimatedSize;
+
+    ReleaseConfigurations(Map<String, String> configurations, int estimatedSize) {
+      this.configurations = configurations;
+      this.estimatedSize = estimatedSize;
+    }
+
+    Map<String, String> getConfigurations() {
+      return configurations;
+    }
+
+    /**
+     * @return the estimated memory used by the entry in bytes
+     */
+    int getEstimatedSize() {
+      return estimatedSize;
+    }
+  }
+
+  /**
+   * read-only map backed by the sorted keys and their values
+   */
+  private static class CompactConfigurations extends AbstractMap<String, String> {
+    private final String[] keys;
+    private final String[] values;
+
+    CompactConfigurations(String[] keys, String[] values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    private int indexOf(Object key) {
+      if (!(key instanceof String)) {
+        return -1;
+      }
+      return Arrays.binarySearch(keys, key);
+    }
+
+    @Override
+    public String get(Object key) {
+      int index = indexOf(key);
+      return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      return new AbstractSet<Entry<String, String>>() {
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+          return new Iterator<Entry<String, String>>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+              return index < keys.length;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+              index++;
+              return entry;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return keys.length;
+        }
+      };
+    }
+  }
+}
@@ -9,7 +9,6 @@ import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
 import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
 import com.ctrip.framework.apollo.biz.utils.ReleaseKeyGenerator;
-import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperationContext;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
@@ -62,6 +61,7 @@ public class ReleaseService {
   private final NamespaceBranchService namespaceBranchService;
   private final ReleaseHistoryService releaseHistoryService;
   private final ItemSetService itemSetService;
+  private final ReleaseConfigurationCache releaseConfigurationCache;
 
   public ReleaseService(
       final ReleaseRepository releaseRepository,
@@ -71,7 +71,8 @@ public class ReleaseService {
       final NamespaceService namespaceService,
       final NamespaceBranchService namespaceBranchService,
       final ReleaseHistoryService releaseHistoryService,
-      final ItemSetService itemSetService) {
+      final ItemSetService itemSetService,
+      final ReleaseConfigurationCache releaseConfigurationCache) {
     this.releaseRepository = releaseRepository;
     this.itemService = itemService;
     this.auditService = auditService;
@@ -80,6 +81,7 @@ public class ReleaseService {
     this.namespaceBranchService = namespaceBranchService;
     this.releaseHistoryService = releaseHistoryService;
     this.itemSetService = itemSetService;
+    this.releaseConfigurationCache = releaseConfigurationCache;
   }
 
   public Release findOne(long releaseId) {
@@ -212,8 +214,7 @@ public class ReleaseService {
                                          String operator, boolean isEmergencyPublish, Set<String> grayDelKeys) {
     Release parentLatestRelease = findLatestActiveRelease(parentNamespace);
     Map<String, String> parentConfigurations = parentLatestRelease != null ?
-            gson.fromJson(parentLatestRelease.getConfigurations(),
-                    GsonType.CONFIG) : new HashMap<>();
+            releaseConfigurationCache.getConfigurations(parentLatestRelease) : new HashMap<>();
     long baseReleaseId = parentLatestRelease == null ? 0 : parentLatestRelease.getId();
 
     Map<String, String> configsToPublish = mergeConfiguration(parentConfigurations, childNamespaceItems);
@@ -269,7 +270,7 @@ public class ReleaseService {
     Map<String, String> childReleaseConfiguration;
     Collection<String> branchReleaseKeys;
     if (childNamespaceLatestActiveRelease != null) {
-      childReleaseConfiguration = gson.fromJson(childNamespaceLatestActiveRelease.getConfigurations(), GsonType.CONFIG);
+      childReleaseConfiguration = releaseConfigurationCache.getConfigurations(childNamespaceLatestActiveRelease);
       branchReleaseKeys = getBranchReleaseKeys(childNamespaceLatestActiveRelease.getId());
     } else {
       childReleaseConfiguration = Collections.emptyMap();
@@ -277,8 +278,7 @@ public class ReleaseService {
     }
 
     Map<String, String> parentNamespaceOldConfiguration = masterPreviousRelease == null ?
-                                                          null : gson.fromJson(masterPreviousRelease.getConfigurations(),
-                                                                        GsonType.CONFIG);
+                                                          null : releaseConfigurationCache.getConfigurations(masterPreviousRelease);
 
     Map<String, String> childNamespaceToPublishConfigs =
         calculateChildNamespaceToPublishConfiguration(parentNamespaceOldConfiguration, parentNamespaceItems,
@@ -476,7 +476,7 @@ public class ReleaseService {
     Map<String, String> childReleaseConfiguration;
     Collection<String> branchReleaseKeys;
     if (childNamespaceLatestActiveRelease != null) {
-      childReleaseConfiguration = gson.fromJson(childNamespaceLatestActiveRelease.getConfigurations(), GsonType.CONFIG);
+      childReleaseConfiguration = releaseConfigurationCache.getConfigurations(childNamespaceLatestActiveRelease);
       branchReleaseKeys = getBranchReleaseKeys(childNamespaceLatestActiveRelease.getId());
     } else {
       childReleaseConfiguration = Collections.emptyMap();
@@ -486,12 +486,11 @@ public class ReleaseService {
     Release abandonedRelease = parentNamespaceTwoLatestActiveRelease.get(0);
     Release parentNamespaceNewLatestRelease = parentNamespaceTwoLatestActiveRelease.get(1);
 
-    Map<String, String> parentNamespaceAbandonedConfiguration = gson.fromJson(abandonedRelease.getConfigurations(),
-                                                                              GsonType.CONFIG);
+    Map<String, String> parentNamespaceAbandonedConfiguration = releaseConfigurationCache.getConfigurations(abandonedRelease);
 
     Map<String, String>
         parentNamespaceNewLatestConfiguration =
-        gson.fromJson(parentNamespaceNewLatestRelease.getConfigurations(), GsonType.CONFIG);
+        releaseConfigurationCache.getConfigurations(parentNamespaceNewLatestRelease);
 
     Map<String, String>
         childNamespaceNewConfiguration =
@@ -0,0 +1,66 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GrayReleaseRuleIndexTest {
+  private static final String someClientAppId = "someClientAppId";
+  private static final String anotherClientAppId = "anotherClientAppId";
+  private static final String someClientIp = "1.1.1.1";
+  private static final String anotherClientIp = "2.2.2.2";
+
+  @Test
+  public void testFindReleaseId() throws Exception {
+    long someReleaseId = 1;
+    GrayReleaseRuleCache someRule = assembleRule(1, "someBranch", someReleaseId, NamespaceBranchStatus.ACTIVE,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(someClientIp, anotherClientIp)));
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(Lists.newArrayList(someRule));
+
+    assertEquals(Long.valueOf(someReleaseId), index.findReleaseId(someClientAppId, someClientIp));
+    assertEquals(Long.valueOf(someReleaseId), index.findReleaseId(someClientAppId, anotherClientIp));
+    assertNull(index.findReleaseId(someClientAppId, "3.3.3.3"));
+    assertNull(index.findReleaseId(anotherClientAppId, someClientIp));
+    assertNull(index.findReleaseId(someClientAppId, null));
+  }
+
+  @Test
+  public void testFindReleaseIdWithAllIps() throws Exception {
+    long someReleaseId = 1;
+    long anotherReleaseId = 2;
+    GrayReleaseRuleCache someRule = assembleRule(1, "someBranch", someReleaseId, NamespaceBranchStatus.ACTIVE,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(GrayReleaseRuleItemDTO.ALL_IP)));
+    GrayReleaseRuleCache anotherRule = assembleRule(2, "anotherBranch", anotherReleaseId,
+        NamespaceBranchStatus.ACTIVE, new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(someClientIp)));
+
+    GrayReleaseRuleIndex index = GrayReleaseRuleIndex.build(Lists.newArrayList(someRule, anotherRule));
+
+    assertEquals(Long.valueOf(anotherReleaseId), index.findReleaseId(someClientAppId, someClientIp));
+    assertEquals(Long.valueOf(someReleaseId), index.findReleaseId(someClientAppId, anotherClientIp));
+    assertEquals(Long.valueOf(someReleaseId), index.findReleaseId(someClientAppId, null));
+    assertNull(index.findReleaseId(anotherClientAppId, someClientIp));
+  }
+
+  @Test
+  public void testBuildWithInactiveRules() throws Exception {
+    GrayReleaseRuleCache someRule = assembleRule(1, "someBranch", 1, NamespaceBranchStatus.DELETED,
+        new GrayReleaseRuleItemDTO(someClientAppId, Sets.newHashSet(someClientIp)));
+
+    assertNull(GrayReleaseRuleIndex.build(Lists.newArrayList(someRule)));
+    assertNull(GrayReleaseRuleIndex.build(Collections.emptyList()));
+  }
+
+  private GrayReleaseRuleCache assembleRule(long ruleId, String branchName, long releaseId, int branchStatus,
+      GrayReleaseRuleItemDTO... ruleItems) {
+    return new GrayReleaseRuleCache(ruleId, branchName, "someNamespace", releaseId, branchStatus, 0,
+        Sets.newHashSet(ruleItems));
+  }
+}
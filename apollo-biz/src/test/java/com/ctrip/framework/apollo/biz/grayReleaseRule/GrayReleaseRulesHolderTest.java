@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.biz.grayReleaseRule;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
@@ -30,6 +31,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -92,6 +95,12 @@ public class GrayReleaseRulesHolderTest {
     assertNull(grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule(anotherClientAppId,
         anotherClientIp, someAppId, someClusterName, someNamespaceName));
 
+    assertEquals(ImmutableMap.of(someNamespaceName, someReleaseId), grayReleaseRulesHolder
+        .findReleaseIdsFromGrayReleaseRules(someClientAppId, someClientIp, someAppId, someClusterName,
+            Lists.newArrayList(someNamespaceName, anotherNamespaceName)));
+    assertTrue(grayReleaseRulesHolder.findReleaseIdsFromGrayReleaseRules(someClientAppId, someClientIp,
+        someAppId, "anotherClusterName", Lists.newArrayList(someNamespaceName)).isEmpty());
+
     assertTrue(grayReleaseRulesHolder.hasGrayReleaseRule(someClientAppId, someClientIp,
         someNamespaceName));
     assertFalse(grayReleaseRulesHolder.hasGrayReleaseRule(someClientAppId, anotherClientIp,
@@ -119,6 +128,8 @@ public class GrayReleaseRulesHolderTest {
         (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
     assertEquals(someReleaseId, grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
         (anotherClientAppId, anotherClientIp, someAppId, someClusterName, someNamespaceName));
+    assertTrue(grayReleaseRulesHolder.findReleaseIdsFromGrayReleaseRules(someClientAppId, someClientIp,
+        someAppId, someClusterName, Lists.newArrayList(someNamespaceName)).isEmpty());
 
     assertFalse(grayReleaseRulesHolder.hasGrayReleaseRule(someClientAppId, someClientIp,
         someNamespaceName));
@@ -133,6 +144,49 @@ public class GrayReleaseRulesHolderTest {
         anotherNamespaceName));
   }
 
+  @Test
+  public void testPeriodicScanLoadsNewRulesOnly() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someNamespaceName = "someNamespaceName";
+    String someClientAppId = "clientAppId1";
+    String someClientIp = "1.1.1.1";
+    Long someReleaseId = 1L;
+    Long anotherReleaseId = 2L;
+    long lookback = 100;
+    idCounter.set(1000);
+
+    GrayReleaseRule someRule = assembleGrayReleaseRule(someAppId, someClusterName,
+        someNamespaceName, Lists.newArrayList(assembleRuleItem(someClientAppId, Sets.newHashSet
+            (someClientIp))), someReleaseId, NamespaceBranchStatus.ACTIVE);
+    GrayReleaseRule anotherRule = assembleGrayReleaseRule(someAppId, someClusterName,
+        someNamespaceName, Lists.newArrayList(assembleRuleItem(someClientAppId, Sets.newHashSet
+            (someClientIp))), anotherReleaseId, NamespaceBranchStatus.ACTIVE);
+
+    when(bizConfig.grayReleaseRuleScanInterval()).thenReturn(30);
+    when(bizConfig.grayReleaseRuleFullScanInterval()).thenReturn(3600);
+    when(grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(Lists
+        .newArrayList(someRule));
+    //the rules within the lookback are scanned again
+    when(grayReleaseRuleRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someRule.getId() - lookback))
+        .thenReturn(Lists.newArrayList(someRule, anotherRule));
+
+    //full scan for the first time
+    grayReleaseRulesHolder.afterPropertiesSet();
+
+    assertEquals(someReleaseId, grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
+
+    //then only the rules after the loaded ones, with the lookback
+    ReflectionTestUtils.invokeMethod(grayReleaseRulesHolder, "periodicScanRules");
+
+    assertEquals(anotherReleaseId, grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule
+        (someClientAppId, someClientIp, someAppId, someClusterName, someNamespaceName));
+
+    verify(grayReleaseRuleRepository, times(1)).findFirst500ByIdGreaterThanOrderByIdAsc(0L);
+    verify(grayReleaseRuleRepository, times(1)).findFirst500ByIdGreaterThanOrderByIdAsc(someRule.getId() - lookback);
+  }
+
   private GrayReleaseRule assembleGrayReleaseRule(String appId, String clusterName, String
       namespaceName, List<GrayReleaseRuleItemDTO> ruleItems, long releaseId, int branchStatus) {
     GrayReleaseRule rule = new GrayReleaseRule();
@@ -18,10 +18,12 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
   private DatabaseMessageSender messageSender;
   @Mock
   private ReleaseMessageRepository releaseMessageRepository;
+  @Mock
+  private ReleaseMessagePusher releaseMessagePusher;
 
   @Before
   public void setUp() throws Exception {
-    messageSender = new DatabaseMessageSender(releaseMessageRepository);
+    messageSender = new DatabaseMessageSender(releaseMessageRepository, releaseMessagePusher);
   }
 
   @Test
@@ -38,6 +40,7 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
 
     verify(releaseMessageRepository, times(1)).save(captor.capture());
     assertEquals(someMessage, captor.getValue().getMessage());
+    verify(releaseMessagePusher, times(1)).push(someMessage);
   }
 
   @Test
@@ -48,6 +51,7 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
     messageSender.sendMessage(someMessage, someUnsupportedTopic);
 
     verify(releaseMessageRepository, never()).save(any(ReleaseMessage.class));
+    verify(releaseMessagePusher, never()).push(anyString());
   }
 
   @Test(expected = RuntimeException.class)
@@ -0,0 +1,164 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReleaseMessageDispatcherTest {
+  private ReleaseMessageDispatcher dispatcher;
+  private String someMessage;
+  private String anotherMessage;
+
+  @Before
+  public void setUp() throws Exception {
+    dispatcher = new ReleaseMessageDispatcher(4);
+    someMessage = "someAppId+someCluster+someNamespace";
+    anotherMessage = "anotherAppId+someCluster+someNamespace";
+  }
+
+  @Test
+  public void testListenerDoesNotWaitForIndependentListener() throws Exception {
+    CountDownLatch slowListenerLatch = new CountDownLatch(1);
+    ReleaseMessageListener slowListener = (message, channel) -> await(slowListenerLatch);
+    List<String> dependencyMessages = Lists.newCopyOnWriteArrayList();
+    ReleaseMessageListener dependencyListener = (message, channel) -> dependencyMessages.add(message.getMessage());
+    SettableFuture<Boolean> notifyFuture = SettableFuture.create();
+    ReleaseMessageListener notifyListener =
+        (message, channel) -> notifyFuture.set(dependencyMessages.contains(message.getMessage()));
+
+    dispatcher.addListener(slowListener, Collections.emptyList());
+    dispatcher.addListener(dependencyListener, Collections.emptyList());
+    dispatcher.addListener(notifyListener, Lists.newArrayList(dependencyListener));
+
+    dispatcher.dispatch(Lists.newArrayList(assembleReleaseMessage(1, someMessage)), Topics.APOLLO_RELEASE_TOPIC);
+
+    //the notify listener should run after its dependency even though the slow listener is blocked
+    assertTrue(notifyFuture.get(5, TimeUnit.SECONDS));
+
+    slowListenerLatch.countDown();
+  }
+
+  @Test
+  public void testSameMessageIsHandledInOrder() throws Exception {
+    CountDownLatch firstMessageLatch = new CountDownLatch(1);
+    List<Long> handledIds = Lists.newCopyOnWriteArrayList();
+    ReleaseMessageListener someListener = (message, channel) -> {
+      if (message.getId() == 1) {
+        await(firstMessageLatch);
+      }
+      handledIds.add(message.getId());
+    };
+    dispatcher.addListener(someListener, Collections.emptyList());
+
+    dispatcher.dispatch(Lists.newArrayList(assembleReleaseMessage(1, someMessage),
+        assembleReleaseMessage(2, anotherMessage), assembleReleaseMessage(3, someMessage)),
+        Topics.APOLLO_RELEASE_TOPIC);
+
+    //another message is not blocked by some message
+    waitUntil(() -> handledIds.contains(2L));
+    assertFalse(handledIds.contains(3L));
+
+    firstMessageLatch.countDown();
+    waitUntil(() -> handledIds.size() == 3);
+
+    assertTrue(handledIds.indexOf(1L) < handledIds.indexOf(3L));
+  }
+
+  @Test
+  public void testOrderSensitiveListenerHandlesAllMessagesInOrder() throws Exception {
+    CountDownLatch firstMessageLatch = new CountDownLatch(1);
+    List<Long> handledIds = Lists.newCopyOnWriteArrayList();
+    ReleaseMessageListener someListener = new ReleaseMessageListener() {
+      @Override
+      public void handleMessage(ReleaseMessage message, String channel) {
+        if (message.getId() == 1) {
+          await(firstMessageLatch);
+        }
+        handledIds.add(message.getId());
+      }
+
+      @Override
+      public boolean isOrderSensitive() {
+        return true;
+      }
+    };
+    dispatcher.addListener(someListener, Collections.emptyList());
+
+    dispatcher.dispatch(Lists.newArrayList(assembleReleaseMessage(1, someMessage),
+        assembleReleaseMessage(2, anotherMessage)), Topics.APOLLO_RELEASE_TOPIC);
+    dispatcher.dispatch(Lists.newArrayList(assembleReleaseMessage(3, anotherMessage)),
+        Topics.APOLLO_RELEASE_TOPIC);
+
+    //another message waits for some message
+    TimeUnit.MILLISECONDS.sleep(100);
+    assertTrue(handledIds.isEmpty());
+
+    firstMessageLatch.countDown();
+    waitUntil(() -> handledIds.size() == 3);
+
+    assertEquals(Lists.newArrayList(1L, 2L, 3L), handledIds);
+  }
+
+  @Test
+  public void testDispatchFutureCompletesAfterAllListeners() throws Exception {
+    List<String> handled = Lists.newCopyOnWriteArrayList();
+    ReleaseMessageListener someListener = (message, channel) -> handled.add("some");
+    ReleaseMessageListener anotherListener = (message, channel) -> {
+      throw new RuntimeException("some exception");
+    };
+    ReleaseMessageListener yetAnotherListener = (message, channel) -> handled.add("yetAnother");
+    dispatcher.addListener(someListener, Collections.emptyList());
+    dispatcher.addListener(anotherListener, Lists.newArrayList(someListener));
+    dispatcher.addListener(yetAnotherListener, Lists.newArrayList(anotherListener));
+
+    dispatcher.dispatch(Lists.newArrayList(assembleReleaseMessage(1, someMessage)), Topics.APOLLO_RELEASE_TOPIC)
+        .get(5, TimeUnit.SECONDS);
+
+    assertEquals(Lists.newArrayList("some", "yetAnother"), handled);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddListenerWithUnknownDependency() throws Exception {
+    ReleaseMessageListener someListener = (message, channel) -> {
+    };
+    ReleaseMessageListener anotherListener = (message, channel) -> {
+    };
+
+    dispatcher.addListener(someListener, Lists.newArrayList(anotherListener));
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      //ignore
+    }
+  }
+
+  private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  private ReleaseMessage assembleReleaseMessage(long id, String message) {
+    ReleaseMessage releaseMessage = new ReleaseMessage();
+    releaseMessage.setId(id);
+    releaseMessage.setMessage(message);
+    return releaseMessage;
+  }
+}
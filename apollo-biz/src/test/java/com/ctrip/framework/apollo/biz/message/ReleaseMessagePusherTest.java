@@ -0,0 +1,76 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+
+import static org.mockito.Mockito.*;
+
+public class ReleaseMessagePusherTest extends AbstractUnitTest {
+  private ReleaseMessagePusher releaseMessagePusher;
+  @Mock
+  private BizConfig bizConfig;
+  @Mock
+  private DiscoveryClient discoveryClient;
+  @Mock
+  private RestTemplate restTemplate;
+  @Mock
+  private ServiceInstance someConfigService;
+  @Mock
+  private ServiceInstance anotherConfigService;
+  private String someMessage;
+
+  @Before
+  public void setUp() throws Exception {
+    releaseMessagePusher = new ReleaseMessagePusher(bizConfig, discoveryClient);
+    ReflectionTestUtils.setField(releaseMessagePusher, "restTemplate", restTemplate);
+
+    someMessage = "someAppId+someCluster+someNamespace";
+  }
+
+  @Test
+  public void testPush() throws Exception {
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+    when(someConfigService.getUri()).thenReturn(URI.create("http://1.1.1.1:8080"));
+    when(anotherConfigService.getUri()).thenReturn(URI.create("http://2.2.2.2:8080"));
+    when(discoveryClient.getInstances(ServiceNameConsts.APOLLO_CONFIGSERVICE))
+        .thenReturn(Lists.newArrayList(someConfigService, anotherConfigService));
+
+    releaseMessagePusher.push(someMessage);
+
+    verify(restTemplate, timeout(1000)).postForEntity("http://1.1.1.1:8080/release-messages/scan?message={message}",
+        null, Void.class, someMessage);
+    verify(restTemplate, timeout(1000)).postForEntity("http://2.2.2.2:8080/release-messages/scan?message={message}",
+        null, Void.class, someMessage);
+  }
+
+  @Test
+  public void testPushFailedShouldNotThrow() throws Exception {
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+    when(discoveryClient.getInstances(ServiceNameConsts.APOLLO_CONFIGSERVICE))
+        .thenThrow(new RuntimeException("some exception"));
+
+    releaseMessagePusher.push(someMessage);
+
+    verify(restTemplate, never()).postForEntity(anyString(), any(), any(Class.class), any(Object[].class));
+  }
+
+  @Test
+  public void testPushDisabled() throws Exception {
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(false);
+
+    releaseMessagePusher.push(someMessage);
+
+    verify(discoveryClient, never()).getInstances(anyString());
+  }
+}
@@ -79,6 +79,36 @@ public class ReleaseMessageScannerTest extends AbstractUnitTest {
 
   }
 
+  @Test
+  public void testScanNowWhenPushEnabled() throws Exception {
+    ReleaseMessageScanner anotherReleaseMessageScanner = new ReleaseMessageScanner();
+    ReflectionTestUtils
+        .setField(anotherReleaseMessageScanner, "releaseMessageRepository", releaseMessageRepository);
+    ReflectionTestUtils.setField(anotherReleaseMessageScanner, "bizConfig", bizConfig);
+    when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+    when(bizConfig.releaseMessagePushScanIntervalInMilli()).thenReturn(60000);
+    anotherReleaseMessageScanner.afterPropertiesSet();
+
+    SettableFuture<ReleaseMessage> someListenerFuture = SettableFuture.create();
+    ReleaseMessageListener someListener = (message, channel) -> someListenerFuture.set(message);
+    anotherReleaseMessageScanner.addMessageListener(someListener);
+
+    String someMessage = "someMessage";
+    long someId = 100;
+    ReleaseMessage someReleaseMessage = assembleReleaseMessage(someId, someMessage);
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(someReleaseMessage));
+
+    anotherReleaseMessageScanner.scanNow();
+
+    ReleaseMessage someListenerMessage =
+        someListenerFuture.get(5000, TimeUnit.MILLISECONDS);
+
+    assertEquals(someMessage, someListenerMessage.getMessage());
+    assertEquals(someId, someListenerMessage.getId());
+  }
+
   private ReleaseMessage assembleReleaseMessage(long id, String message) {
     ReleaseMessage releaseMessage = new ReleaseMessage();
     releaseMessage.setId(id);
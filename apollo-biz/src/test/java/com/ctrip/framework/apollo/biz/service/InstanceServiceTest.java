@@ -75,6 +75,61 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
     assertEquals(Sets.newHashSet(someIp, anotherIp), ips);
   }
 
+  @Test
+  @Rollback
+  public void testBatchCreateAndFindInstances() throws Exception {
+    String someAppId = "someAppId";
+    String someClusterName = "someClusterName";
+    String someDataCenter = "someDataCenter";
+    String someIp = "someIp";
+    String anotherIp = "anotherIp";
+
+    List<Instance> created = instanceService.batchCreateInstances(Lists.newArrayList(
+        assembleInstance(someAppId, someClusterName, someDataCenter, someIp),
+        assembleInstance(someAppId, someClusterName, someDataCenter, anotherIp)));
+
+    List<Instance> instances = instanceService.findInstances(someAppId, someClusterName,
+        someDataCenter, Sets.newHashSet(someIp, anotherIp, "yetAnotherIp"));
+
+    assertEquals(2, created.size());
+    assertEquals(created.stream().map(Instance::getId).collect(Collectors.toSet()),
+        instances.stream().map(Instance::getId).collect(Collectors.toSet()));
+    assertEquals(Sets.newHashSet(someIp, anotherIp),
+        instances.stream().map(Instance::getIp).collect(Collectors.toSet()));
+  }
+
+  @Test
+  @Rollback
+  public void testBatchCreateAndUpdateInstanceConfigs() throws Exception {
+    long someInstanceId = 1;
+    long anotherInstanceId = 2;
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String someConfigNamespaceName = "someConfigNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    List<InstanceConfig> created = instanceService.batchCreateInstanceConfigs(Lists.newArrayList(
+        assembleInstanceConfig(someInstanceId, someConfigAppId, someConfigClusterName,
+            someConfigNamespaceName, someReleaseKey),
+        assembleInstanceConfig(anotherInstanceId, someConfigAppId, someConfigClusterName,
+            someConfigNamespaceName, someReleaseKey)));
+
+    List<InstanceConfig> instanceConfigs = instanceService.findInstanceConfigsByInstanceIds(
+        Sets.newHashSet(someInstanceId, anotherInstanceId));
+
+    assertEquals(2, created.size());
+    assertEquals(2, instanceConfigs.size());
+
+    instanceConfigs.forEach(instanceConfig -> instanceConfig.setReleaseKey(anotherReleaseKey));
+    instanceService.batchUpdateInstanceConfigs(instanceConfigs);
+
+    assertEquals(anotherReleaseKey, instanceService.findInstanceConfig(someInstanceId,
+        someConfigAppId, someConfigNamespaceName).getReleaseKey());
+    assertEquals(anotherReleaseKey, instanceService.findInstanceConfig(anotherInstanceId,
+        someConfigAppId, someConfigNamespaceName).getReleaseKey());
+  }
+
   @Test
   @Rollback
   public void testCreateAndFindInstanceConfig() throws Exception {
@@ -0,0 +1,101 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReleaseConfigurationCacheTest {
+  private ReleaseConfigurationCache releaseConfigurationCache;
+  private Gson gson;
+
+  @Before
+  public void setUp() throws Exception {
+    releaseConfigurationCache = new ReleaseConfigurationCache();
+    gson = new Gson();
+  }
+
+  @Test
+  public void testGetConfigurations() throws Exception {
+    Map<String, String> someConfigurations = ImmutableMap.of("b", "someValue", "a", "anotherValue", "c", "");
+    Release someRelease = assembleRelease(1, gson.toJson(someConfigurations));
+
+    Map<String, String> configurations = releaseConfigurationCache.getConfigurations(someRelease);
+
+    assertEquals(someConfigurations, configurations);
+    assertEquals(new HashMap<>(someConfigurations), configurations);
+    assertTrue(configurations.containsKey("a"));
+    assertFalse(configurations.containsKey("d"));
+    assertNull(configurations.get("d"));
+    assertNull(configurations.get(1));
+  }
+
+  @Test
+  public void testGetConfigurationsParsedOnce() throws Exception {
+    Release someRelease = assembleRelease(1, gson.toJson(ImmutableMap.of("someKey", "someValue")));
+    Release sameRelease = assembleRelease(1, gson.toJson(ImmutableMap.of("someKey", "someValue")));
+
+    assertSame(releaseConfigurationCache.getConfigurations(someRelease),
+        releaseConfigurationCache.getConfigurations(sameRelease));
+  }
+
+  @Test
+  public void testGetConfigurationsInternsStrings() throws Exception {
+    Release someRelease = assembleRelease(1, gson.toJson(ImmutableMap.of("someKey", "someValue")));
+    Release anotherRelease = assembleRelease(2, gson.toJson(ImmutableMap.of("someKey", "someValue")));
+
+    Map.Entry<String, String> someEntry =
+        releaseConfigurationCache.getConfigurations(someRelease).entrySet().iterator().next();
+    Map.Entry<String, String> anotherEntry =
+        releaseConfigurationCache.getConfigurations(anotherRelease).entrySet().iterator().next();
+
+    assertSame(someEntry.getKey(), anotherEntry.getKey());
+    assertSame(someEntry.getValue(), anotherEntry.getValue());
+  }
+
+  @Test
+  public void testGetConfigurationsOfUnsavedRelease() throws Exception {
+    Release someRelease = assembleRelease(0, gson.toJson(ImmutableMap.of("someKey", "someValue")));
+
+    assertEquals(ImmutableMap.of("someKey", "someValue"), releaseConfigurationCache.getConfigurations(someRelease));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testConfigurationsAreReadOnly() throws Exception {
+    Release someRelease = assembleRelease(1, gson.toJson(ImmutableMap.of("someKey", "someValue")));
+
+    releaseConfigurationCache.getConfigurations(someRelease).put("anotherKey", "anotherValue");
+  }
+
+  @Test(expected = JsonSyntaxException.class)
+  public void testGetInvalidConfigurations() throws Exception {
+    releaseConfigurationCache.getConfigurations(assembleRelease(1, "xxx"));
+  }
+
+  @Test
+  public void testEstimatedSize() throws Exception {
+    ReleaseConfigurationCache.ReleaseConfigurations configurations =
+        ReleaseConfigurationCache.parse(gson.toJson(ImmutableMap.of("someKey", "someValue")));
+
+    //arrays + "someKey" + "someValue"
+    assertEquals(2 * (16 + 4) + (40 + 2 * 7) + (40 + 2 * 9), configurations.getEstimatedSize());
+  }
+
+  private Release assembleRelease(long id, String configurations) {
+    Release release = new Release();
+    release.setId(id);
+    release.setConfigurations(configurations);
+    return release;
+  }
+}
@@ -0,0 +1,19 @@
+package com.ctrip.framework.apollo.enums;
+
+/**
+ * 客户端后台任务的线程模型
+ */
+public enum ExecutionMode {
+  /**
+   * each component has its own threads
+   */
+  DEDICATED,
+  /**
+   * scheduled tasks and long polling share a small scheduler
+   */
+  SHARED,
+  /**
+   * like SHARED, but runs on virtual threads when the JDK supports them, otherwise falls back to SHARED
+   */
+  VIRTUAL
+}
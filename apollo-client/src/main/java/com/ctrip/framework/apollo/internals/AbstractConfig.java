@@ -3,7 +3,6 @@ package com.ctrip.framework.apollo.internals;
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.build.ApolloInjector;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.model.ConfigChange;
@@ -11,22 +10,18 @@ import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.concurrent.ApolloExecutors;
 import com.ctrip.framework.apollo.util.function.Functions;
 import com.ctrip.framework.apollo.util.parser.Parsers;
 import com.google.common.base.Function;
-import com.google.common.base.Objects;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 实现 Config 接口，Config 抽象类，实现了
@@ -45,43 +40,24 @@ public abstract class AbstractConfig implements Config {
   private static final ExecutorService m_executorService;
 
   /**
-   * ConfigChangeListener，监听器集合
+   * ConfigChangeListener，监听器及其感兴趣的 key 和前缀的索引
    */
-  private final List<ConfigChangeListener> m_listeners = Lists.newCopyOnWriteArrayList();
-
-  private final Map<ConfigChangeListener, Set<String>> m_interestedKeys = Maps.newConcurrentMap();
-  private final Map<ConfigChangeListener, Set<String>> m_interestedKeyPrefixes = Maps.newConcurrentMap();
+  private final ConfigChangeListenerIndex m_listenerIndex = new ConfigChangeListenerIndex();
 
   private final ConfigUtil m_configUtil;
 
-  private volatile Cache<String, Integer> m_integerCache;
-  private volatile Cache<String, Long> m_longCache;
-  private volatile Cache<String, Short> m_shortCache;
-  private volatile Cache<String, Float> m_floatCache;
-  private volatile Cache<String, Double> m_doubleCache;
-  private volatile Cache<String, Byte> m_byteCache;
-  private volatile Cache<String, Boolean> m_booleanCache;
-  private volatile Cache<String, Date> m_dateCache;
-  private volatile Cache<String, Long> m_durationCache;
-
-  private final Map<String, Cache<String, String[]>> m_arrayCache;
-  private final List<Cache> allCaches;
-
   /**
-   * 缓存版本号，用于解决更新缓存可能存在的并发问题。详细见 {@link #getValueAndStoreToCache(String, Function, Cache, Object)} 方法
+   * 当前配置版本下已解析的属性值，读取时无锁，配置变化时整体替换。详细见 {@link #getValueFromCache(String, Object, Function, Object)} 方法
    */
-  private final AtomicLong m_configVersion; //indicate config version
+  private volatile ValueCache m_valueCache;
 
   static {
-    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory
-        .create("Config", true));
+    m_executorService = ApolloExecutors.newListenerExecutor("Config");
   }
 
   public AbstractConfig() {
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
-    m_configVersion = new AtomicLong();
-    m_arrayCache = Maps.newConcurrentMap();
-    allCaches = Lists.newArrayList();
+    m_valueCache = new ValueCache();
   }
 
   @Override
@@ -96,41 +72,18 @@ public abstract class AbstractConfig implements Config {
 
   @Override
   public void addChangeListener(ConfigChangeListener listener, Set<String> interestedKeys, Set<String> interestedKeyPrefixes) {
-
-    if (!m_listeners.contains(listener)) {
-
-      m_listeners.add(listener);
-
-      if (interestedKeys != null && !interestedKeys.isEmpty()) {
-        m_interestedKeys.put(listener, Sets.newHashSet(interestedKeys));
-      }
-
-      if (interestedKeyPrefixes != null && !interestedKeyPrefixes.isEmpty()) {
-        m_interestedKeyPrefixes.put(listener, Sets.newHashSet(interestedKeyPrefixes));
-      }
-
-    }
+    m_listenerIndex.add(listener, interestedKeys, interestedKeyPrefixes);
   }
 
   @Override
   public boolean removeChangeListener(ConfigChangeListener listener) {
-    m_interestedKeys.remove(listener);
-    m_interestedKeyPrefixes.remove(listener);
-    return m_listeners.remove(listener);
+    return m_listenerIndex.remove(listener);
   }
 
   @Override
   public Integer getIntProperty(String key, Integer defaultValue) {
     try {
-      if (m_integerCache == null) {
-        synchronized (this) {
-          if (m_integerCache == null) {
-            m_integerCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_INT_FUNCTION, m_integerCache, defaultValue);
+      return getValueFromCache(key, ValueType.INTEGER, Functions.TO_INT_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getIntProperty for %s failed, return default value %d", key,
@@ -142,15 +95,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Long getLongProperty(String key, Long defaultValue) {
     try {
-      if (m_longCache == null) {
-        synchronized (this) {
-          if (m_longCache == null) {
-            m_longCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_LONG_FUNCTION, m_longCache, defaultValue);
+      return getValueFromCache(key, ValueType.LONG, Functions.TO_LONG_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getLongProperty for %s failed, return default value %d", key,
@@ -162,15 +107,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Short getShortProperty(String key, Short defaultValue) {
     try {
-      if (m_shortCache == null) {
-        synchronized (this) {
-          if (m_shortCache == null) {
-            m_shortCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_SHORT_FUNCTION, m_shortCache, defaultValue);
+      return getValueFromCache(key, ValueType.SHORT, Functions.TO_SHORT_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getShortProperty for %s failed, return default value %d", key,
@@ -182,15 +119,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Float getFloatProperty(String key, Float defaultValue) {
     try {
-      if (m_floatCache == null) {
-        synchronized (this) {
-          if (m_floatCache == null) {
-            m_floatCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_FLOAT_FUNCTION, m_floatCache, defaultValue);
+      return getValueFromCache(key, ValueType.FLOAT, Functions.TO_FLOAT_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getFloatProperty for %s failed, return default value %f", key,
@@ -202,15 +131,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Double getDoubleProperty(String key, Double defaultValue) {
     try {
-      if (m_doubleCache == null) {
-        synchronized (this) {
-          if (m_doubleCache == null) {
-            m_doubleCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_DOUBLE_FUNCTION, m_doubleCache, defaultValue);
+      return getValueFromCache(key, ValueType.DOUBLE, Functions.TO_DOUBLE_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDoubleProperty for %s failed, return default value %f", key,
@@ -222,15 +143,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Byte getByteProperty(String key, Byte defaultValue) {
     try {
-      if (m_byteCache == null) {
-        synchronized (this) {
-          if (m_byteCache == null) {
-            m_byteCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_BYTE_FUNCTION, m_byteCache, defaultValue);
+      return getValueFromCache(key, ValueType.BYTE, Functions.TO_BYTE_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getByteProperty for %s failed, return default value %d", key,
@@ -242,15 +155,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Boolean getBooleanProperty(String key, Boolean defaultValue) {
     try {
-      if (m_booleanCache == null) {
-        synchronized (this) {
-          if (m_booleanCache == null) {
-            m_booleanCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_BOOLEAN_FUNCTION, m_booleanCache, defaultValue);
+      return getValueFromCache(key, ValueType.BOOLEAN, Functions.TO_BOOLEAN_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getBooleanProperty for %s failed, return default value %b", key,
@@ -262,27 +167,13 @@ public abstract class AbstractConfig implements Config {
   @Override
   public String[] getArrayProperty(String key, final String delimiter, String[] defaultValue) {
     try {
-      if (!m_arrayCache.containsKey(delimiter)) {
-        synchronized (this) {
-          if (!m_arrayCache.containsKey(delimiter)) {
-            m_arrayCache.put(delimiter, this.<String[]>newCache());
-          }
-        }
-      }
-
-      Cache<String, String[]> cache = m_arrayCache.get(delimiter);
-      String[] result = cache.getIfPresent(key);
-
-      if (result != null) {
-        return result;
-      }
-
-      return getValueAndStoreToCache(key, new Function<String, String[]>() {
+      //arrays are cached by delimiter
+      return getValueFromCache(key, delimiter, new Function<String, String[]>() {
         @Override
         public String[] apply(String input) {
           return input.split(delimiter);
         }
-      }, cache, defaultValue);
+      }, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getArrayProperty for %s failed, return default value", key), ex));
@@ -310,15 +201,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Date getDateProperty(String key, Date defaultValue) {
     try {
-      if (m_dateCache == null) {
-        synchronized (this) {
-          if (m_dateCache == null) {
-            m_dateCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_DATE_FUNCTION, m_dateCache, defaultValue);
+      return getValueFromCache(key, ValueType.DATE, Functions.TO_DATE_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDateProperty for %s failed, return default value %s", key,
@@ -365,15 +248,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public long getDurationProperty(String key, long defaultValue) {
     try {
-      if (m_durationCache == null) {
-        synchronized (this) {
-          if (m_durationCache == null) {
-            m_durationCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_DURATION_FUNCTION, m_durationCache, defaultValue);
+      return getValueFromCache(key, ValueType.DURATION, Functions.TO_DURATION_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDurationProperty for %s failed, return default value %d", key,
@@ -401,37 +276,27 @@ public abstract class AbstractConfig implements Config {
   }
 
   /**
+   * 读取已解析的属性值，未命中时解析并放入当前版本的缓存
    *
-   * @param key
-   * @param parser
-   * @param cache
-   * @param defaultValue
-   * @param <T>
-   * @return
+   * @param valueType the type of the value, or the delimiter for arrays
    */
-  private <T> T getValueFromCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
-    T result = cache.getIfPresent(key);
-
-    if (result != null) {
-      return result;
+  @SuppressWarnings("unchecked")
+  private <T> T getValueFromCache(String key, Object valueType, Function<String, T> parser, T defaultValue) {
+    //read the cache before the property, so that values of stale properties are never stored to a newer cache
+    ValueCache valueCache = m_valueCache;
+    Object cachedValue = valueCache.get(valueType, key);
+
+    if (cachedValue != null) {
+      return (T) cachedValue;
     }
 
-    return getValueAndStoreToCache(key, parser, cache, defaultValue);
-  }
-
-  private <T> T getValueAndStoreToCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
-    long currentConfigVersion = m_configVersion.get();
     String value = getProperty(key, null);
 
     if (value != null) {
       T result = parser.apply(value);
 
       if (result != null) {
-        synchronized (this) {
-          if (m_configVersion.get() == currentConfigVersion) {
-            cache.put(key, result);
-          }
-        }
+        valueCache.put(valueType, key, result, m_configUtil.getMaxConfigCacheSize());
         return result;
       }
     }
@@ -439,28 +304,12 @@ public abstract class AbstractConfig implements Config {
     return defaultValue;
   }
 
-  private <T> Cache<String, T> newCache() {
-    Cache<String, T> cache = CacheBuilder.newBuilder()
-        .maximumSize(m_configUtil.getMaxConfigCacheSize())
-        .expireAfterAccess(m_configUtil.getConfigCacheExpireTime(), m_configUtil.getConfigCacheExpireTimeUnit())
-        .build();
-    allCaches.add(cache);
-    return cache;
-  }
-
   /**
-   * synchronized ，用于和 #getValueAndStoreToCache(...) 方法，在更新缓存时的互斥，避免并发。
+   * 配置变化后调用，替换为新版本的空缓存
    * Clear config cache
    */
   protected void clearConfigCache() {
-    synchronized (this) {
-      for (Cache c : allCaches) {
-        if (c != null) {
-          c.invalidateAll();
-        }
-      }
-      m_configVersion.incrementAndGet();
-    }
+    m_valueCache = new ValueCache();
   }
 
   /**
@@ -470,13 +319,8 @@ public abstract class AbstractConfig implements Config {
    */
   protected void fireConfigChange(final ConfigChangeEvent changeEvent) {
 
-    for (final ConfigChangeListener listener : m_listeners) {
-
-      // check whether the listener is interested in this change event
-      if (!isConfigChangeListenerInterested(listener, changeEvent)) {
-        continue;
-      }
-
+    // only the listeners interested in this change event
+    for (final ConfigChangeListener listener : m_listenerIndex.getInterestedListeners(changeEvent.changedKeys())) {
       m_executorService.submit(new Runnable() {
         @Override
         public void run() {
@@ -497,42 +341,16 @@ public abstract class AbstractConfig implements Config {
     }
   }
 
-  private boolean isConfigChangeListenerInterested(ConfigChangeListener configChangeListener, ConfigChangeEvent configChangeEvent) {
-    Set<String> interestedKeys = m_interestedKeys.get(configChangeListener);
-    Set<String> interestedKeyPrefixes = m_interestedKeyPrefixes.get(configChangeListener);
-
-    if ((interestedKeys == null || interestedKeys.isEmpty())
-        && (interestedKeyPrefixes == null || interestedKeyPrefixes.isEmpty())) {
-      return true; // no interested keys means interested in all keys
-    }
-
-    if (interestedKeys != null) {
-      for (String interestedKey : interestedKeys) {
-        if (configChangeEvent.isChanged(interestedKey)) {
-          return true;
-        }
-      }
-    }
-
-    if (interestedKeyPrefixes != null) {
-      for (String prefix : interestedKeyPrefixes) {
-        for (final String changedKey : configChangeEvent.changedKeys()) {
-          if (changedKey.startsWith(prefix)) {
-            return true;
-          }
-        }
-      }
-    }
-
-    return false;
-  }
-
   /**
    * 计算配置变更集合
+   * <p>
+   * Compares the entries of the two properties directly, so only the changed keys allocate. Like
+   * {@link Properties#stringPropertyNames()}, entries whose key or value is not a string are ignored.
+   *
    * @param namespace
    * @param previous
    * @param current
-   * @return
+   * @return the changes, empty if the properties are the same
    */
   List<ConfigChange> calcPropertyChanges(String namespace, Properties previous,
                                          Properties current) {
@@ -544,38 +362,79 @@ public abstract class AbstractConfig implements Config {
       current = new Properties();
     }
 
-    Set<String> previousKeys = previous.stringPropertyNames();
-    Set<String> currentKeys = current.stringPropertyNames();
-
-    //交集
-    Set<String> commonKeys = Sets.intersection(previousKeys, currentKeys);
-    //新增
-    Set<String> newKeys = Sets.difference(currentKeys, commonKeys);
-    //移除
-    Set<String> removedKeys = Sets.difference(previousKeys, commonKeys);
-
     List<ConfigChange> changes = Lists.newArrayList();
 
-    for (String newKey : newKeys) {
-      changes.add(new ConfigChange(namespace, newKey, null, current.getProperty(newKey),
-          PropertyChangeType.ADDED));
-    }
-
-    for (String removedKey : removedKeys) {
-      changes.add(new ConfigChange(namespace, removedKey, previous.getProperty(removedKey), null,
-          PropertyChangeType.DELETED));
+    //新增和修改
+    for (Map.Entry<Object, Object> entry : current.entrySet()) {
+      if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof String)) {
+        continue;
+      }
+      String key = (String) entry.getKey();
+      String currentValue = (String) entry.getValue();
+      String previousValue = stringValue(previous.get(key));
+      if (previousValue == null) {
+        changes.add(new ConfigChange(namespace, key, null, currentValue, PropertyChangeType.ADDED));
+      } else if (!previousValue.equals(currentValue)) {
+        changes.add(new ConfigChange(namespace, key, previousValue, currentValue,
+            PropertyChangeType.MODIFIED));
+      }
     }
 
-    for (String commonKey : commonKeys) {
-      String previousValue = previous.getProperty(commonKey);
-      String currentValue = current.getProperty(commonKey);
-      if (Objects.equal(previousValue, currentValue)) {
+    //移除
+    for (Map.Entry<Object, Object> entry : previous.entrySet()) {
+      if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof String)) {
         continue;
       }
-      changes.add(new ConfigChange(namespace, commonKey, previousValue, currentValue,
-          PropertyChangeType.MODIFIED));
+      String key = (String) entry.getKey();
+      if (stringValue(current.get(key)) == null) {
+        changes.add(new ConfigChange(namespace, key, (String) entry.getValue(), null,
+            PropertyChangeType.DELETED));
+      }
     }
 
     return changes;
   }
+
+  private static String stringValue(Object value) {
+    return value instanceof String ? (String) value : null;
+  }
+
+  private enum ValueType {
+    INTEGER, LONG, SHORT, FLOAT, DOUBLE, BYTE, BOOLEAN, DATE, DURATION
+  }
+
+  /**
+   * 单个配置版本下已解析的属性值，配置变化时整体丢弃
+   * <p>
+   * Each type is bounded by apollo.configCacheSize, an arbitrary value is evicted to make room for a new one.
+   */
+  private static final class ValueCache {
+    //value type or array delimiter -> key -> value
+    private final ConcurrentMap<Object, ConcurrentMap<String, Object>> values = new ConcurrentHashMap<>();
+
+    Object get(Object valueType, String key) {
+      Map<String, Object> typedValues = values.get(valueType);
+      return typedValues == null ? null : typedValues.get(key);
+    }
+
+    void put(Object valueType, String key, Object value, long maxSize) {
+      if (maxSize <= 0) {
+        return;
+      }
+      ConcurrentMap<String, Object> typedValues = values.get(valueType);
+      if (typedValues == null) {
+        ConcurrentMap<String, Object> newTypedValues = new ConcurrentHashMap<>();
+        typedValues = values.putIfAbsent(valueType, newTypedValues);
+        if (typedValues == null) {
+          typedValues = newTypedValues;
+        }
+      }
+      Iterator<String> iterator = typedValues.keySet().iterator();
+      while (typedValues.size() >= maxSize && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+      typedValues.put(key, value);
+    }
+  }
 }
@@ -4,7 +4,6 @@ import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -12,12 +11,12 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.ConfigFile;
 import com.ctrip.framework.apollo.ConfigFileChangeListener;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigFileChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.concurrent.ApolloExecutors;
 import com.google.common.collect.Lists;
 
 /**
@@ -34,8 +33,7 @@ public abstract class AbstractConfigFile implements ConfigFile, RepositoryChange
   private volatile ConfigSourceType m_sourceType = ConfigSourceType.NONE;
 
   static {
-    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory
-        .create("ConfigFile", true));
+    m_executorService = ApolloExecutors.newListenerExecutor("ConfigFile");
   }
 
   public AbstractConfigFile(String namespace, ConfigRepository configRepository) {
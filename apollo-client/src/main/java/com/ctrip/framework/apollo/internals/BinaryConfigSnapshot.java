@@ -0,0 +1,155 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.google.common.base.Charsets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * 本地缓存的二进制快照
+ * <p>
+ * Layout: magic(int), format version(int), payload length(int), payload crc32(long), then the payload, which is the
+ * release key followed by the entry count and the entries. Strings are written as length prefixed UTF-8 bytes, and a
+ * null release key has the length -1.
+ */
+final class BinaryConfigSnapshot {
+  private static final int MAGIC = 0x41504C53;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_LENGTH = 4 + 4 + 4 + 8;
+  private static final int CHECKSUM_BUFFER_SIZE = 8192;
+
+  private final String releaseKey;
+  private final Properties properties;
+
+  private BinaryConfigSnapshot(String releaseKey, Properties properties) {
+    this.releaseKey = releaseKey;
+    this.properties = properties;
+  }
+
+  /**
+   * @return the release key of the snapshot, null if unknown
+   */
+  String getReleaseKey() {
+    return releaseKey;
+  }
+
+  Properties getProperties() {
+    return properties;
+  }
+
+  static byte[] encode(String releaseKey, Properties properties) throws IOException {
+    ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+    DataOutputStream payload = new DataOutputStream(payloadBytes);
+    writeString(payload, releaseKey);
+    //count the string entries first, the same as Properties.stringPropertyNames
+    int count = 0;
+    for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+      if (entry.getKey() instanceof String && entry.getValue() instanceof String) {
+        count++;
+      }
+    }
+    payload.writeInt(count);
+    for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+      if (entry.getKey() instanceof String && entry.getValue() instanceof String) {
+        writeString(payload, (String) entry.getKey());
+        writeString(payload, (String) entry.getValue());
+      }
+    }
+    payload.flush();
+
+    byte[] payloadArray = payloadBytes.toByteArray();
+    CRC32 crc32 = new CRC32();
+    crc32.update(payloadArray, 0, payloadArray.length);
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream(HEADER_LENGTH + payloadArray.length);
+    DataOutputStream out = new DataOutputStream(result);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(payloadArray.length);
+    out.writeLong(crc32.getValue());
+    out.write(payloadArray);
+    out.flush();
+    return result.toByteArray();
+  }
+
+  /**
+   * the snapshots are small, so they are read at once instead of memory mapped, which would keep the file locked on
+   * Windows until the mapping is garbage collected
+   *
+   * @throws IOException if the file is not a valid snapshot, e.g. truncated or corrupted
+   */
+  static BinaryConfigSnapshot read(File file) throws IOException {
+    return decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+  }
+
+  static BinaryConfigSnapshot decode(ByteBuffer buffer) throws IOException {
+    try {
+      if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+        throw new IOException("Not a config snapshot");
+      }
+      int formatVersion = buffer.getInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IOException(String.format("Unsupported config snapshot format version %d", formatVersion));
+      }
+      int payloadLength = buffer.getInt();
+      long checksum = buffer.getLong();
+      if (payloadLength < 0 || payloadLength != buffer.remaining()) {
+        throw new IOException("Config snapshot is truncated");
+      }
+      if (checksum(buffer.duplicate()) != checksum) {
+        throw new IOException("Config snapshot checksum mismatch");
+      }
+
+      String releaseKey = readString(buffer);
+      int count = buffer.getInt();
+      Properties properties = new Properties();
+      for (int i = 0; i < count; i++) {
+        String key = readString(buffer);
+        properties.setProperty(key, readString(buffer));
+      }
+      return new BinaryConfigSnapshot(releaseKey, properties);
+    } catch (BufferUnderflowException | NullPointerException ex) {
+      //inconsistent lengths, only possible if the checksum collides
+      throw new IOException("Config snapshot is corrupted", ex);
+    }
+  }
+
+  private static long checksum(ByteBuffer buffer) {
+    CRC32 crc32 = new CRC32();
+    byte[] chunk = new byte[Math.min(CHECKSUM_BUFFER_SIZE, buffer.remaining())];
+    while (buffer.hasRemaining()) {
+      int length = Math.min(chunk.length, buffer.remaining());
+      buffer.get(chunk, 0, length);
+      crc32.update(chunk, 0, length);
+    }
+    return crc32.getValue();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+}
@@ -0,0 +1,179 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 监听器感兴趣的 key 索引，精确 key 使用 hash，前缀使用 trie
+ * <p>
+ * Finding the interested listeners of a change costs one hash lookup and one trie walk per changed key, no matter how
+ * many listeners or prefixes are registered. Listeners are returned in the order they were added.
+ */
+class ConfigChangeListenerIndex {
+  private final Map<ConfigChangeListener, Registration> m_registrations = Maps.newHashMap();
+  /**
+   * listeners without interested keys or prefixes, which are interested in all keys
+   */
+  private final Set<Registration> m_unconditionalRegistrations = Sets.newLinkedHashSet();
+  private final Map<String, Set<Registration>> m_keyIndex = Maps.newHashMap();
+  private final TrieNode m_prefixRoot = new TrieNode();
+  private long m_sequence;
+
+  /**
+   * @return false if the listener is already added
+   */
+  synchronized boolean add(ConfigChangeListener listener, Set<String> interestedKeys,
+      Set<String> interestedKeyPrefixes) {
+    if (m_registrations.containsKey(listener)) {
+      return false;
+    }
+    Registration registration = new Registration(listener, m_sequence++,
+        interestedKeys == null ? Collections.<String>emptySet() : Sets.newHashSet(interestedKeys),
+        interestedKeyPrefixes == null ? Collections.<String>emptySet() : Sets.newHashSet(interestedKeyPrefixes));
+    m_registrations.put(listener, registration);
+
+    if (registration.interestedKeys.isEmpty() && registration.interestedKeyPrefixes.isEmpty()) {
+      m_unconditionalRegistrations.add(registration);
+      return true;
+    }
+    for (String key : registration.interestedKeys) {
+      Set<Registration> registrations = m_keyIndex.get(key);
+      if (registrations == null) {
+        registrations = Sets.newHashSet();
+        m_keyIndex.put(key, registrations);
+      }
+      registrations.add(registration);
+    }
+    for (String prefix : registration.interestedKeyPrefixes) {
+      m_prefixRoot.getOrCreate(prefix, 0).registrations.add(registration);
+    }
+    return true;
+  }
+
+  synchronized boolean remove(ConfigChangeListener listener) {
+    Registration registration = m_registrations.remove(listener);
+    if (registration == null) {
+      return false;
+    }
+    m_unconditionalRegistrations.remove(registration);
+    for (String key : registration.interestedKeys) {
+      Set<Registration> registrations = m_keyIndex.get(key);
+      registrations.remove(registration);
+      if (registrations.isEmpty()) {
+        m_keyIndex.remove(key);
+      }
+    }
+    for (String prefix : registration.interestedKeyPrefixes) {
+      m_prefixRoot.remove(prefix, 0, registration);
+    }
+    return true;
+  }
+
+  /**
+   * @return the listeners interested in any of the changed keys, in the order they were added
+   */
+  synchronized List<ConfigChangeListener> getInterestedListeners(Collection<String> changedKeys) {
+    if (m_registrations.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Registration> matched = Lists.newArrayList(m_unconditionalRegistrations);
+    if (m_registrations.size() > m_unconditionalRegistrations.size()) {
+      Set<Registration> conditionalMatched = Sets.newHashSet();
+      for (String changedKey : changedKeys) {
+        Set<Registration> registrations = m_keyIndex.get(changedKey);
+        if (registrations != null) {
+          conditionalMatched.addAll(registrations);
+        }
+        m_prefixRoot.collect(changedKey, conditionalMatched);
+      }
+      matched.addAll(conditionalMatched);
+      Collections.sort(matched, Registration.SEQUENCE_COMPARATOR);
+    }
+
+    List<ConfigChangeListener> listeners = Lists.newArrayListWithCapacity(matched.size());
+    for (Registration registration : matched) {
+      listeners.add(registration.listener);
+    }
+    return listeners;
+  }
+
+  private static class Registration {
+    private static final Comparator<Registration> SEQUENCE_COMPARATOR = new Comparator<Registration>() {
+      @Override
+      public int compare(Registration o1, Registration o2) {
+        return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+      }
+    };
+
+    private final ConfigChangeListener listener;
+    private final long sequence;
+    private final Set<String> interestedKeys;
+    private final Set<String> interestedKeyPrefixes;
+
+    Registration(ConfigChangeListener listener, long sequence, Set<String> interestedKeys,
+        Set<String> interestedKeyPrefixes) {
+      this.listener = listener;
+      this.sequence = sequence;
+      this.interestedKeys = interestedKeys;
+      this.interestedKeyPrefixes = interestedKeyPrefixes;
+    }
+  }
+
+  private static class TrieNode {
+    private final Map<Character, TrieNode> children = Maps.newHashMap();
+    private final Set<Registration> registrations = Sets.newHashSet();
+
+    TrieNode getOrCreate(String prefix, int index) {
+      if (index == prefix.length()) {
+        return this;
+      }
+      Character c = prefix.charAt(index);
+      TrieNode child = children.get(c);
+      if (child == null) {
+        child = new TrieNode();
+        children.put(c, child);
+      }
+      return child.getOrCreate(prefix, index + 1);
+    }
+
+    /**
+     * @return whether this node is empty and can be pruned
+     */
+    boolean remove(String prefix, int index, Registration registration) {
+      if (index == prefix.length()) {
+        registrations.remove(registration);
+      } else {
+        Character c = prefix.charAt(index);
+        TrieNode child = children.get(c);
+        if (child != null && child.remove(prefix, index + 1, registration)) {
+          children.remove(c);
+        }
+      }
+      return registrations.isEmpty() && children.isEmpty();
+    }
+
+    /**
+     * collect the registrations of all the prefixes of the key
+     */
+    void collect(String key, Set<Registration> result) {
+      TrieNode node = this;
+      int index = 0;
+      while (node != null) {
+        result.addAll(node.registrations);
+        if (index == key.length()) {
+          break;
+        }
+        node = node.children.get(key.charAt(index++));
+      }
+    }
+  }
+}
@@ -5,7 +5,6 @@ import com.ctrip.framework.foundation.Foundation;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -14,12 +13,12 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.concurrent.ApolloExecutors;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
@@ -51,8 +50,7 @@ public class ConfigServiceLocator {
     }.getType();
     m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
-    this.m_executorService = Executors.newScheduledThreadPool(1,
-        ApolloThreadFactory.create("ConfigServiceLocator", true));
+    this.m_executorService = ApolloExecutors.newScheduledExecutor("ConfigServiceLocator");
     initConfigServices();
   }
 
@@ -1,11 +1,13 @@
 package com.ctrip.framework.apollo.internals;
 
+import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.RateLimiter;
@@ -15,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 
@@ -32,6 +35,10 @@ import java.util.concurrent.atomic.AtomicReference;
 public class DefaultConfig extends AbstractConfig implements RepositoryChangeListener {
 
   private static final Logger logger = LoggerFactory.getLogger(DefaultConfig.class);
+  /**
+   * 系统属性和环境变量的版本号，{@link #refreshLayeredProperties()} 时递增，预先合并的视图版本落后时重建
+   */
+  private static final AtomicLong s_layeredPropertiesVersion = new AtomicLong();
 
   /**
    * 读取属性的优先级上，m_configProperties > m_resourceProperties
@@ -47,6 +54,13 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
   private volatile ConfigSourceType m_sourceType = ConfigSourceType.NONE;
 
+  private final boolean m_precomputedPropertiesEnabled;
+  /**
+   * 预先合并的属性视图，仅在 apollo.precomputedProperties.enabled 时使用
+   */
+  private volatile LayeredProperties m_layeredProperties;
+  private final Object m_layeredPropertiesLock = new Object();
+
   /**
    * Constructor.
    *
@@ -59,6 +73,7 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     m_configRepository = configRepository;
     m_configProperties = new AtomicReference<>();
     m_warnLogRateLimiter = RateLimiter.create(0.017); // 1 warning log output per minute
+    m_precomputedPropertiesEnabled = ApolloInjector.getInstance(ConfigUtil.class).isPrecomputedPropertiesEnabled();
     initialize();
   }
 
@@ -76,8 +91,20 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     }
   }
 
+  /**
+   * Rebuild the precomputed properties of all the configs on next read, should be called after system properties are
+   * changed at runtime if apollo.precomputedProperties.enabled is true.
+   */
+  public static void refreshLayeredProperties() {
+    s_layeredPropertiesVersion.incrementAndGet();
+  }
+
   @Override
   public String getProperty(String key, String defaultValue) {
+    if (m_precomputedPropertiesEnabled) {
+      return getLayeredProperty(key, defaultValue);
+    }
+
     // step 1: check system properties, i.e. -Dkey=value,从系统 Properties 获得属性，例如，JVM 启动参数。
     String value = System.getProperty(key);
 
@@ -107,6 +134,71 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     return value == null ? defaultValue : value;
   }
 
+  private String getLayeredProperty(String key, String defaultValue) {
+    LayeredProperties layeredProperties = m_layeredProperties;
+    if (layeredProperties == null || layeredProperties.version != s_layeredPropertiesVersion.get()) {
+      layeredProperties = rebuildLayeredProperties(true);
+    }
+
+    String value = layeredProperties.properties.get(key);
+
+    if (value == null && m_configProperties.get() == null && m_warnLogRateLimiter.tryAcquire()) {
+      logger.warn("Could not load config for namespace {} from Apollo, please check whether the configs are released in Apollo! Return default value now!", m_namespace);
+    }
+
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * 按 resource < env < config < system 的优先级合并
+   *
+   * @param onlyIfStale whether to skip the rebuild if the current view is up to date
+   */
+  private LayeredProperties rebuildLayeredProperties(boolean onlyIfStale) {
+    synchronized (m_layeredPropertiesLock) {
+      //read the version before the sources, so that changes during the rebuild are picked up by the next read
+      long version = s_layeredPropertiesVersion.get();
+      LayeredProperties current = m_layeredProperties;
+      if (onlyIfStale && current != null && current.version == version) {
+        return current;
+      }
+
+      Map<String, String> merged = new HashMap<>();
+      if (m_resourceProperties != null) {
+        putStringProperties(merged, m_resourceProperties);
+      }
+      merged.putAll(System.getenv());
+      Properties configProperties = m_configProperties.get();
+      if (configProperties != null) {
+        putStringProperties(merged, configProperties);
+      }
+      Properties systemProperties = System.getProperties();
+      //stringPropertyNames is synchronized, system properties might be changed concurrently
+      for (String name : systemProperties.stringPropertyNames()) {
+        String value = systemProperties.getProperty(name);
+        if (value != null) {
+          merged.put(name, value);
+        }
+      }
+
+      LayeredProperties layeredProperties = new LayeredProperties(version, ImmutableMap.copyOf(merged));
+      m_layeredProperties = layeredProperties;
+      if (current != null) {
+        //typed values might be parsed from the previous view
+        clearConfigCache();
+      }
+      return layeredProperties;
+    }
+  }
+
+  private void putStringProperties(Map<String, String> target, Properties properties) {
+    for (Map.Entry<Object, Object> e : properties.entrySet()) {
+      if (e.getKey() instanceof String && e.getValue() instanceof String) {
+        target.put((String) e.getKey(), (String) e.getValue());
+      }
+    }
+  }
+
   @Override
   public Set<String> getPropertyNames() {
     Properties properties = m_configProperties.get();
@@ -142,7 +234,10 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
    */
   @Override
   public synchronized void onRepositoryChange(String namespace, Properties newProperties) {
-    if (newProperties.equals(m_configProperties.get())) {
+    Properties previousProperties = m_configProperties.get();
+    //diff before copying, so an unchanged notification costs no allocation
+    List<ConfigChange> configChanges = calcPropertyChanges(m_namespace, previousProperties, newProperties);
+    if (configChanges.isEmpty() && previousProperties != null) {
       return;
     }
 
@@ -150,7 +245,8 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     Properties newConfigProperties = new Properties();
     newConfigProperties.putAll(newProperties);
 
-    Map<String, ConfigChange> actualChanges = updateAndCalcConfigChanges(newConfigProperties, sourceType);
+    Map<String, ConfigChange> actualChanges =
+        updateAndCalcConfigChanges(configChanges, newConfigProperties, sourceType);
 
     //check double checked result
     if (actualChanges.isEmpty()) {
@@ -165,20 +261,21 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
   private void updateConfig(Properties newConfigProperties, ConfigSourceType sourceType) {
     m_configProperties.set(newConfigProperties);
     m_sourceType = sourceType;
+    if (m_precomputedPropertiesEnabled) {
+      rebuildLayeredProperties(false);
+    }
   }
 
   /**
    * DefaultConfig 有多个属性源，需要对calcPropertyChanges增强
    *
+   * @param configChanges the changes of m_configProperties
    * @param newConfigProperties
    * @param sourceType
    * @return
    */
-  private Map<String, ConfigChange> updateAndCalcConfigChanges(Properties newConfigProperties,
-      ConfigSourceType sourceType) {
-
-    List<ConfigChange> configChanges =
-        calcPropertyChanges(m_namespace, m_configProperties.get(), newConfigProperties);
+  private Map<String, ConfigChange> updateAndCalcConfigChanges(List<ConfigChange> configChanges,
+      Properties newConfigProperties, ConfigSourceType sourceType) {
 
     //结果
     ImmutableMap.Builder<String, ConfigChange> actualChanges =
@@ -254,4 +351,14 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
     return properties;
   }
+
+  private static class LayeredProperties {
+    private final long version;
+    private final Map<String, String> properties;
+
+    LayeredProperties(long version, Map<String, String> properties) {
+      this.version = version;
+      this.properties = properties;
+    }
+  }
 }
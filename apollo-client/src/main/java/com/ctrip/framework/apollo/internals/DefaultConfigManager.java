@@ -9,6 +9,7 @@ import com.ctrip.framework.apollo.spi.ConfigFactoryManager;
 import com.google.common.collect.Maps;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 默认配置管理器实现类
@@ -23,6 +24,10 @@ public class DefaultConfigManager implements ConfigManager {
 
   private Map<String, Config> m_configs = Maps.newConcurrentMap();
   private Map<String, ConfigFile> m_configFiles = Maps.newConcurrentMap();
+  /**
+   * 按 namespace 加锁，不同 namespace 的首次加载可以并行
+   */
+  private final ConcurrentMap<String, Object> m_locks = Maps.newConcurrentMap();
 
   public DefaultConfigManager() {
     //构造函数依赖注入
@@ -40,7 +45,7 @@ public class DefaultConfigManager implements ConfigManager {
     Config config = m_configs.get(namespace);
 
     if (config == null) {
-      synchronized (this) {
+      synchronized (getLock(namespace)) {
         config = m_configs.get(namespace);
 
         if (config == null) {
@@ -61,7 +66,7 @@ public class DefaultConfigManager implements ConfigManager {
     ConfigFile configFile = m_configFiles.get(namespaceFileName);
 
     if (configFile == null) {
-      synchronized (this) {
+      synchronized (getLock(namespaceFileName)) {
         configFile = m_configFiles.get(namespaceFileName);
 
         if (configFile == null) {
@@ -75,4 +80,16 @@ public class DefaultConfigManager implements ConfigManager {
 
     return configFile;
   }
+
+  private Object getLock(String name) {
+    Object lock = m_locks.get(name);
+    if (lock == null) {
+      Object newLock = new Object();
+      lock = m_locks.putIfAbsent(name, newLock);
+      if (lock == null) {
+        lock = newLock;
+      }
+    }
+    return lock;
+  }
 }
@@ -9,19 +9,32 @@ import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.concurrent.ApolloExecutors;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 本地文件配置 Repository 实现类
+ * <p>
+ * If apollo.localCache.binarySnapshot.enabled is true, the config is cached as a checksummed binary snapshot, which
+ * is written by a background thread together with the properties file. The properties file is still read if there is
+ * no valid snapshot, and stays up to date in case the flag is turned off again.
  *
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -34,6 +47,11 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
      * 配置文件目录
      */
     private static final String CONFIG_DIR = "/config-cache";
+    /**
+     * 异步写入二进制快照的线程池，所有 namespace 共享
+     */
+    private static final ExecutorService m_persistExecutor =
+            ApolloExecutors.newScheduledExecutor("LocalConfigPersister");
     /**
      * namespaces名称
      */
@@ -48,6 +66,13 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
      */
     private volatile ConfigRepository m_upstream;
     private volatile Properties m_fileProperties;
+    private volatile String m_releaseKey;
+    private final boolean m_binarySnapshotEnabled;
+    /**
+     * 待写入的配置，多次变化只写入最新的配置
+     */
+    private final AtomicReference<PendingSnapshot> m_pendingSnapshot = new AtomicReference<>();
+    private volatile Future<?> m_persistFuture;
 
     private volatile ConfigSourceType m_sourceType = ConfigSourceType.LOCAL;
 
@@ -63,6 +88,7 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     public LocalFileConfigRepository(String namespace, ConfigRepository upstream) {
         m_namespace = namespace;
         m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+        m_binarySnapshotEnabled = m_configUtil.isLocalCacheBinarySnapshotEnabled();
         this.setLocalCacheDir(findLocalCacheDir(), false);
         this.setUpstreamRepository(upstream);
         this.trySync();
@@ -191,12 +217,37 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
             return;
         }
         this.m_fileProperties = newProperties;
-        persistLocalCacheFile(m_baseDir, m_namespace);
+        this.m_releaseKey = m_upstream instanceof RemoteConfigRepository ?
+                ((RemoteConfigRepository) m_upstream).getReleaseKey() : null;
+        if (m_binarySnapshotEnabled) {
+            schedulePersistLocalSnapshotFile(new PendingSnapshot(m_baseDir, m_releaseKey, newProperties));
+        } else {
+            persistLocalCacheFile(m_baseDir, m_namespace);
+        }
     }
 
     private Properties loadFromLocalCacheFile(File baseDir, String namespace) throws IOException {
         Preconditions.checkNotNull(baseDir, "Basedir cannot be null");
 
+        if (m_binarySnapshotEnabled) {
+            File snapshotFile = assembleLocalSnapshotFile(baseDir, namespace);
+            if (snapshotFile.isFile()) {
+                try {
+                    BinaryConfigSnapshot snapshot = BinaryConfigSnapshot.read(snapshotFile);
+                    m_releaseKey = snapshot.getReleaseKey();
+                    logger.debug("Loading local config snapshot {} with release key {} successfully!",
+                            snapshotFile.getAbsolutePath(), m_releaseKey);
+                    return snapshot.getProperties();
+                } catch (IOException ex) {
+                    //try the properties file then
+                    Tracer.logError(new ApolloConfigException(String.format(
+                            "Loading config from local snapshot file %s failed", snapshotFile.getAbsolutePath()), ex));
+                    logger.warn("Loading config from local snapshot file {} failed, reason: {}",
+                            snapshotFile.getAbsolutePath(), ExceptionUtil.getDetailMessage(ex));
+                }
+            }
+        }
+
         File file = assembleLocalCacheFile(baseDir, namespace);
         Properties properties = null;
 
@@ -231,18 +282,21 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     }
 
     void persistLocalCacheFile(File baseDir, String namespace) {
-        if (baseDir == null) {
+        persistLocalCacheFile(baseDir, namespace, m_fileProperties);
+    }
+
+    private void persistLocalCacheFile(File baseDir, String namespace, Properties properties) {
+        if (baseDir == null || properties == null) {
             return;
         }
         File file = assembleLocalCacheFile(baseDir, namespace);
 
-        OutputStream out = null;
-
         Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigFile");
         transaction.addData("LocalConfigFile", file.getAbsolutePath());
         try {
-            out = new FileOutputStream(file);
-            m_fileProperties.store(out, "Persisted by DefaultConfig");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            properties.store(out, "Persisted by DefaultConfig");
+            writeAtomically(file, out.toByteArray());
             transaction.setStatus(Transaction.SUCCESS);
         } catch (IOException ex) {
             ApolloConfigException exception =
@@ -253,17 +307,88 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
             logger.warn("Persist local cache file {} failed, reason: {}.", file.getAbsolutePath(),
                     ExceptionUtil.getDetailMessage(ex));
         } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException ex) {
-                    //ignore
+            transaction.complete();
+        }
+    }
+
+    /**
+     * the directory and the config are captured when scheduled, only the latest pending one is written
+     */
+    private void schedulePersistLocalSnapshotFile(PendingSnapshot snapshot) {
+        if (m_pendingSnapshot.getAndSet(snapshot) != null) {
+            return;
+        }
+        m_persistFuture = m_persistExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                PendingSnapshot pending = m_pendingSnapshot.getAndSet(null);
+                if (pending == null) {
+                    return;
                 }
+                persistLocalSnapshotFile(pending.baseDir, m_namespace, pending.releaseKey, pending.properties);
+                //keep the properties file up to date in case the binary snapshot is turned off again
+                persistLocalCacheFile(pending.baseDir, m_namespace, pending.properties);
             }
+        });
+    }
+
+    /**
+     * wait for the pending write of the snapshot, if any
+     */
+    void awaitPersistLocalSnapshotFile(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Future<?> future = m_persistFuture;
+        if (future != null) {
+            future.get(timeout, unit);
+        }
+    }
+
+    void persistLocalSnapshotFile(File baseDir, String namespace) {
+        persistLocalSnapshotFile(baseDir, namespace, m_releaseKey, m_fileProperties);
+    }
+
+    private void persistLocalSnapshotFile(File baseDir, String namespace, String releaseKey, Properties properties) {
+        if (baseDir == null || properties == null) {
+            return;
+        }
+        File file = assembleLocalSnapshotFile(baseDir, namespace);
+
+        Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigSnapshot");
+        transaction.addData("LocalConfigFile", file.getAbsolutePath());
+        try {
+            writeAtomically(file, BinaryConfigSnapshot.encode(releaseKey, properties));
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            ApolloConfigException exception =
+                    new ApolloConfigException(
+                            String.format("Persist local snapshot file %s failed", file.getAbsolutePath()), ex);
+            Tracer.logError(exception);
+            transaction.setStatus(exception);
+            logger.warn("Persist local snapshot file {} failed, reason: {}.", file.getAbsolutePath(),
+                    ExceptionUtil.getDetailMessage(ex));
+        } finally {
             transaction.complete();
         }
     }
 
+    /**
+     * write to a temp file in the same directory then rename, so readers never see a partially written file
+     */
+    private void writeAtomically(File file, byte[] content) throws IOException {
+        Path tempFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            Files.write(tempFile, content);
+            try {
+                Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
     private void checkLocalConfigCacheDir(File baseDir) {
         if (baseDir.exists()) {
             return;
@@ -294,4 +419,23 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
                         .join(m_configUtil.getAppId(), m_configUtil.getCluster(), namespace));
         return new File(baseDir, fileName);
     }
+
+    File assembleLocalSnapshotFile(File baseDir, String namespace) {
+        String fileName =
+                String.format("%s.snapshot", Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+                        .join(m_configUtil.getAppId(), m_configUtil.getCluster(), namespace));
+        return new File(baseDir, fileName);
+    }
+
+    private static class PendingSnapshot {
+        private final File baseDir;
+        private final String releaseKey;
+        private final Properties properties;
+
+        PendingSnapshot(File baseDir, String releaseKey, Properties properties) {
+            this.baseDir = baseDir;
+            this.releaseKey = releaseKey;
+            this.properties = properties;
+        }
+    }
 }
@@ -8,12 +8,12 @@ import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
 import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.concurrent.ApolloExecutors;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
@@ -34,7 +34,6 @@ import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -69,8 +68,7 @@ public class RemoteConfigLongPollService {
   public RemoteConfigLongPollService() {
     m_longPollFailSchedulePolicyInSecond = new ExponentialSchedulePolicy(1, 120); //in second
     m_longPollingStopped = new AtomicBoolean(false);
-    m_longPollingService = Executors.newSingleThreadExecutor(
-        ApolloThreadFactory.create("RemoteConfigLongPollService", true));
+    m_longPollingService = ApolloExecutors.newLongRunningExecutor("RemoteConfigLongPollService");
     m_longPollStarted = new AtomicBoolean(false);
     m_longPollNamespaces =
         Multimaps.synchronizedSetMultimap(HashMultimap.<String, RemoteConfigRepository>create());
@@ -211,22 +209,38 @@ public class RemoteConfigLongPollService {
     if (notifications == null || notifications.isEmpty()) {
       return;
     }
+    Map<RemoteConfigRepository, ApolloNotificationMessages> toBeNotified = Maps.newLinkedHashMap();
     for (ApolloConfigNotification notification : notifications) {
       String namespaceName = notification.getNamespaceName();
       //create a new list to avoid ConcurrentModificationException
-      List<RemoteConfigRepository> toBeNotified =
+      List<RemoteConfigRepository> repositories =
           Lists.newArrayList(m_longPollNamespaces.get(namespaceName));
       ApolloNotificationMessages originalMessages = m_remoteNotificationMessages.get(namespaceName);
       ApolloNotificationMessages remoteMessages = originalMessages == null ? null : originalMessages.clone();
       //since .properties are filtered out by default, so we need to check if there is any listener for it
-      toBeNotified.addAll(m_longPollNamespaces
+      repositories.addAll(m_longPollNamespaces
           .get(String.format("%s.%s", namespaceName, ConfigFileFormat.Properties.getValue())));
-      for (RemoteConfigRepository remoteConfigRepository : toBeNotified) {
-        try {
-          remoteConfigRepository.onLongPollNotified(lastServiceDto, remoteMessages);
-        } catch (Throwable ex) {
-          Tracer.logError(ex);
-        }
+      for (RemoteConfigRepository remoteConfigRepository : repositories) {
+        toBeNotified.put(remoteConfigRepository, remoteMessages);
+      }
+    }
+
+    //fetch the configs of all the notified namespaces in one request
+    if (toBeNotified.size() > 1 && m_configUtil.isBatchConfigFetchEnabled()
+        && RemoteConfigRepository.isBatchConfigFetchSupported()) {
+      try {
+        RemoteConfigRepository.onBatchLongPollNotified(lastServiceDto, toBeNotified);
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
+      }
+      return;
+    }
+
+    for (Map.Entry<RemoteConfigRepository, ApolloNotificationMessages> entry : toBeNotified.entrySet()) {
+      try {
+        entry.getKey().onLongPollNotified(lastServiceDto, entry.getValue());
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
       }
     }
   }
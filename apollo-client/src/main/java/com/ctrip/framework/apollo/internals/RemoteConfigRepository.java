@@ -8,7 +8,6 @@ import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
 import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
@@ -16,6 +15,7 @@ import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.concurrent.ApolloExecutors;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
@@ -27,14 +27,17 @@ import com.google.common.escape.Escaper;
 import com.google.common.net.UrlEscapers;
 import com.google.common.util.concurrent.RateLimiter;
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.Executors;
+import java.util.Random;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -65,6 +68,12 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     private volatile AtomicReference<ApolloConfig> m_configCache;
     private final String m_namespace;
     private final static ScheduledExecutorService m_executorService;
+    //turned off for the process once a config service doesn't support the batch endpoint
+    private static volatile boolean m_batchConfigFetchSupported = true;
+    //the deadline in nano time of the config loads on the current thread, set while bootstrapping
+    private static final ThreadLocal<Long> m_loadConfigDeadline = new ThreadLocal<>();
+    private static final Type BATCH_RESPONSE_TYPE = new TypeToken<List<ApolloConfig>>() {
+    }.getType();
     private final AtomicReference<ServiceDTO> m_longPollServiceDto;
     private final AtomicReference<ApolloNotificationMessages> m_remoteMessages;
     private final RateLimiter m_loadConfigRateLimiter;
@@ -73,8 +82,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     private final Gson gson;
 
     static {
-        m_executorService = Executors.newScheduledThreadPool(1,
-                ApolloThreadFactory.create("RemoteConfigRepository", true));
+        m_executorService = ApolloExecutors.newScheduledExecutor("RemoteConfigRepository");
     }
 
     /**
@@ -117,6 +125,30 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         //remote config doesn't need upstream
     }
 
+    /**
+     * 限制当前线程加载配置的截止时间，例如当前线程创建的 Repository 的首次同步
+     * <p>
+     * Loads which can't complete before the deadline fail, so the namespace starts from the local cache file, and is
+     * caught up by the periodic refresh and long polling.
+     *
+     * @param deadline the deadline in {@link System#nanoTime()}
+     */
+    public static void setLoadConfigDeadline(long deadline) {
+        m_loadConfigDeadline.set(deadline);
+    }
+
+    public static void clearLoadConfigDeadline() {
+        m_loadConfigDeadline.remove();
+    }
+
+    /**
+     * @return the release key of the loaded config, null if not loaded yet
+     */
+    String getReleaseKey() {
+        ApolloConfig current = m_configCache.get();
+        return current == null ? null : current.getReleaseKey();
+    }
+
     @Override
     public ConfigSourceType getSourceType() {
         return ConfigSourceType.REMOTE;
@@ -146,21 +178,8 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "syncRemoteConfig");
 
         try {
-            ApolloConfig previous = m_configCache.get();
             ApolloConfig current = loadApolloConfig();
-
-            //reference equals means HTTP 304
-            if (previous != current) {
-                logger.debug("Remote Config refreshed!");
-                m_configCache.set(current);
-                // 发布 Repository 的配置发生变化，触发对应的监听器们
-                this.fireRepositoryChange(m_namespace, this.getConfig());
-            }
-
-            if (current != null) {
-                Tracer.logEvent(String.format("Apollo.Client.Configs.%s", current.getNamespaceName()),
-                        current.getReleaseKey());
-            }
+            onConfigLoaded(current);
 
             transaction.setStatus(Transaction.SUCCESS);
         } catch (Throwable ex) {
@@ -171,6 +190,44 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         }
     }
 
+    private synchronized void onConfigLoaded(ApolloConfig current) {
+        ApolloConfig previous = m_configCache.get();
+
+        //reference equals means HTTP 304
+        if (previous != current) {
+            logger.debug("Remote Config refreshed!");
+            m_configCache.set(current);
+            // 发布 Repository 的配置发生变化，触发对应的监听器们
+            this.fireRepositoryChange(m_namespace, this.getConfig());
+        }
+
+        if (current != null) {
+            Tracer.logEvent(String.format("Apollo.Client.Configs.%s", current.getNamespaceName()),
+                    current.getReleaseKey());
+        }
+    }
+
+    /**
+     * @return false if the batch loaded config could not be applied and should be synced again
+     */
+    private synchronized boolean onBatchConfigLoaded(ApolloConfig previous, ApolloConfig loaded) {
+        //synced by others during the batch request
+        if (m_configCache.get() != previous) {
+            return false;
+        }
+        //not modified
+        if (loaded == null) {
+            return true;
+        }
+        try {
+            onConfigLoaded(loaded.isDelta() ? mergeConfigDelta(previous, loaded) : loaded);
+        } catch (Throwable ex) {
+            Tracer.logError(ex);
+            return false;
+        }
+        return true;
+    }
+
     private Properties transformApolloConfigToProperties(ApolloConfig apolloConfig) {
         Properties result = new Properties();
         result.putAll(apolloConfig.getConfigurations());
@@ -191,6 +248,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         Tracer.logEvent("Apollo.Client.ConfigMeta", STRING_JOINER.join(appId, cluster, m_namespace));
         int maxRetries = m_configNeedForceRefresh.get() ? 2 : 1;
         long onErrorSleepTime = 0; // 0 means no sleep
+        Long deadline = m_loadConfigDeadline.get();
         Throwable exception = null;
 
         //获取configService的列表
@@ -211,6 +269,10 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
                             "Load config failed, will retry in {} {}. appId: {}, cluster: {}, namespaces: {}",
                             onErrorSleepTime, m_configUtil.getOnErrorRetryIntervalTimeUnit(), appId, cluster, m_namespace);
 
+                    if (deadline != null) {
+                        onErrorSleepTime = Math.min(onErrorSleepTime, m_configUtil.getOnErrorRetryIntervalTimeUnit()
+                                .convert(remainingTimeInMillis(deadline), TimeUnit.MILLISECONDS));
+                    }
                     try {
                         m_configUtil.getOnErrorRetryIntervalTimeUnit().sleep(onErrorSleepTime);
                     } catch (InterruptedException e) {
@@ -218,11 +280,25 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
                     }
                 }
 
+                if (deadline != null && remainingTimeInMillis(deadline) <= 0) {
+                    String message = String.format(
+                            "Load Apollo Config exceeded the deadline - appId: %s, cluster: %s, namespace: %s, url: %s",
+                            appId, cluster, m_namespace, url);
+                    throw new ApolloConfigException(message, exception);
+                }
+
+                ApolloConfig previousConfig = m_configCache.get();
                 url = assembleQueryConfigUrl(configService.getHomepageUrl(), appId, cluster, m_namespace,
-                        dataCenter, m_remoteMessages.get(), m_configCache.get());
+                        dataCenter, m_remoteMessages.get(), previousConfig);
 
                 logger.debug("Loading config from {}", url);
                 HttpRequest request = new HttpRequest(url);
+                if (deadline != null) {
+                    //the request doesn't outlive the deadline
+                    int remainingTime = (int) Math.min(Integer.MAX_VALUE, remainingTimeInMillis(deadline));
+                    request.setConnectTimeout(Math.min(m_configUtil.getConnectTimeout(), remainingTime));
+                    request.setReadTimeout(Math.min(m_configUtil.getReadTimeout(), remainingTime));
+                }
 
                 Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "queryConfig");
                 transaction.addData("Url", url);
@@ -241,6 +317,9 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
                     }
 
                     ApolloConfig result = response.getBody();
+                    if (result != null && result.isDelta()) {
+                        result = mergeConfigDelta(previousConfig, result);
+                    }
 
                     logger.debug("Loaded config for {}: {}", m_namespace, result);
 
@@ -279,6 +358,39 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         throw new ApolloConfigException(message, exception);
     }
 
+    private static long remainingTimeInMillis(long deadline) {
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    /**
+     * 将增量配置合并到本地的配置上
+     */
+    private ApolloConfig mergeConfigDelta(ApolloConfig previousConfig, ApolloConfig delta) {
+        if (previousConfig == null || !delta.getBaseReleaseKey().equals(previousConfig.getReleaseKey())) {
+            throw new ApolloConfigException(String.format(
+                    "Config delta base release key %s does not match local release key %s, namespace: %s",
+                    delta.getBaseReleaseKey(), previousConfig == null ? null : previousConfig.getReleaseKey(),
+                    m_namespace));
+        }
+
+        Map<String, String> configurations = Maps.newHashMap(previousConfig.getConfigurations());
+        if (delta.getDeletedKeys() != null) {
+            for (String deletedKey : delta.getDeletedKeys()) {
+                configurations.remove(deletedKey);
+            }
+        }
+        if (delta.getConfigurations() != null) {
+            configurations.putAll(delta.getConfigurations());
+        }
+        Tracer.logEvent("Apollo.Client.ConfigDelta", String.format("%s: %s -> %s", m_namespace,
+                delta.getBaseReleaseKey(), delta.getReleaseKey()));
+
+        ApolloConfig result = new ApolloConfig(delta.getAppId(), delta.getCluster(), delta.getNamespaceName(),
+                delta.getReleaseKey());
+        result.setConfigurations(configurations);
+        return result;
+    }
+
     String assembleQueryConfigUrl(String uri, String appId, String cluster, String namespace,
                                   String dataCenter, ApolloNotificationMessages remoteMessages, ApolloConfig previousConfig) {
 
@@ -290,6 +402,9 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
         if (previousConfig != null) {
             queryParams.put("releaseKey", queryParamEscaper.escape(previousConfig.getReleaseKey()));
+            if (m_configUtil.isConfigDeltaEnabled()) {
+                queryParams.put("delta", "true");
+            }
         }
 
         if (!Strings.isNullOrEmpty(dataCenter)) {
@@ -338,6 +453,164 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
         });
     }
 
+    /**
+     * 多个 Namespace 同时收到长轮询通知时，合并为一次批量请求拉取配置。
+     * 本地还没有配置或批量请求失败的 Namespace ，仍然逐个同步
+     */
+    static void onBatchLongPollNotified(final ServiceDTO longPollNotifiedServiceDto,
+                                        final Map<RemoteConfigRepository, ApolloNotificationMessages> notified) {
+        for (Map.Entry<RemoteConfigRepository, ApolloNotificationMessages> entry : notified.entrySet()) {
+            entry.getKey().m_remoteMessages.set(entry.getValue());
+        }
+        m_executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                batchSync(longPollNotifiedServiceDto, notified.keySet());
+            }
+        });
+    }
+
+    /**
+     * @return false if a config service responded 404 to the batch request, e.g. it predates the endpoint
+     */
+    static boolean isBatchConfigFetchSupported() {
+        return m_batchConfigFetchSupported;
+    }
+
+    private static void batchSync(ServiceDTO longPollNotifiedServiceDto,
+                                  Collection<RemoteConfigRepository> repositories) {
+        Map<RemoteConfigRepository, ApolloConfig> previousConfigs = Maps.newLinkedHashMap();
+        List<RemoteConfigRepository> toBeSynced = Lists.newArrayList();
+        for (RemoteConfigRepository repository : repositories) {
+            ApolloConfig previous = repository.m_configCache.get();
+            if (previous == null) {
+                toBeSynced.add(repository);
+            } else {
+                previousConfigs.put(repository, previous);
+            }
+        }
+
+        if (!m_batchConfigFetchSupported) {
+            toBeSynced.addAll(previousConfigs.keySet());
+            previousConfigs.clear();
+        }
+
+        if (!previousConfigs.isEmpty()) {
+            try {
+                Map<String, ApolloConfig> loadedConfigs =
+                        batchLoadApolloConfig(longPollNotifiedServiceDto, previousConfigs);
+                for (Map.Entry<RemoteConfigRepository, ApolloConfig> entry : previousConfigs.entrySet()) {
+                    RemoteConfigRepository repository = entry.getKey();
+                    if (!repository.onBatchConfigLoaded(entry.getValue(), loadedConfigs.get(repository.m_namespace))) {
+                        toBeSynced.add(repository);
+                    }
+                }
+            } catch (ApolloConfigStatusCodeException ex) {
+                if (ex.getStatusCode() == 404) {
+                    m_batchConfigFetchSupported = false;
+                    Tracer.logEvent("Apollo.Client.BatchConfigFetchUnsupported", longPollNotifiedServiceDto == null ?
+                            null : longPollNotifiedServiceDto.getHomepageUrl());
+                    logger.warn("Config service doesn't support batch config fetch, will sync one by one from now on");
+                } else {
+                    logger.warn("Batch load config failed, will sync one by one, reason: {}",
+                            ExceptionUtil.getDetailMessage(ex));
+                }
+                toBeSynced.addAll(previousConfigs.keySet());
+            } catch (Throwable ex) {
+                logger.warn("Batch load config failed, will sync one by one, reason: {}",
+                        ExceptionUtil.getDetailMessage(ex));
+                toBeSynced.addAll(previousConfigs.keySet());
+            }
+        }
+
+        for (RemoteConfigRepository repository : toBeSynced) {
+            repository.m_longPollServiceDto.set(longPollNotifiedServiceDto);
+            repository.m_configNeedForceRefresh.set(true);
+            repository.trySync();
+        }
+    }
+
+    /**
+     * @return namespace -> loaded config, not modified namespaces are absent
+     */
+    private static Map<String, ApolloConfig> batchLoadApolloConfig(ServiceDTO longPollNotifiedServiceDto,
+                                                                   Map<RemoteConfigRepository, ApolloConfig> previousConfigs) {
+        //collaborators are shared by all the repositories
+        RemoteConfigRepository anyRepository = previousConfigs.keySet().iterator().next();
+        ConfigUtil configUtil = anyRepository.m_configUtil;
+
+        Map<String, String> releaseKeys = Maps.newLinkedHashMap();
+        ApolloNotificationMessages remoteMessages = new ApolloNotificationMessages();
+        for (Map.Entry<RemoteConfigRepository, ApolloConfig> entry : previousConfigs.entrySet()) {
+            releaseKeys.put(entry.getKey().m_namespace, entry.getValue().getReleaseKey());
+            remoteMessages.mergeFrom(entry.getKey().m_remoteMessages.get());
+        }
+
+        ServiceDTO configService = longPollNotifiedServiceDto;
+        if (configService == null) {
+            List<ServiceDTO> configServices = anyRepository.getConfigServices();
+            configService = configServices.get(new Random().nextInt(configServices.size()));
+        }
+
+        String url = anyRepository.assembleBatchQueryConfigUrl(configService.getHomepageUrl(),
+                configUtil.getAppId(), configUtil.getCluster(), configUtil.getDataCenter(), releaseKeys,
+                remoteMessages);
+        logger.debug("Batch loading config from {}", url);
+
+        Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "batchQueryConfig");
+        transaction.addData("Url", url);
+        try {
+            HttpResponse<List<ApolloConfig>> response =
+                    anyRepository.m_httpUtil.doGet(new HttpRequest(url), BATCH_RESPONSE_TYPE);
+            transaction.addData("StatusCode", response.getStatusCode());
+            transaction.setStatus(Transaction.SUCCESS);
+
+            Map<String, ApolloConfig> result = Maps.newHashMap();
+            if (response.getStatusCode() == 304 || response.getBody() == null) {
+                return result;
+            }
+            for (ApolloConfig config : response.getBody()) {
+                result.put(config.getNamespaceName(), config);
+            }
+            return result;
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            throw ex;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    String assembleBatchQueryConfigUrl(String uri, String appId, String cluster, String dataCenter,
+                                       Map<String, String> releaseKeys, ApolloNotificationMessages remoteMessages) {
+        Map<String, String> queryParams = Maps.newLinkedHashMap();
+        queryParams.put("appId", queryParamEscaper.escape(appId));
+        queryParams.put("cluster", queryParamEscaper.escape(cluster));
+        queryParams.put("namespaces", queryParamEscaper.escape(gson.toJson(releaseKeys)));
+
+        if (!Strings.isNullOrEmpty(dataCenter)) {
+            queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
+        }
+
+        String localIp = m_configUtil.getLocalIp();
+        if (!Strings.isNullOrEmpty(localIp)) {
+            queryParams.put("ip", queryParamEscaper.escape(localIp));
+        }
+
+        if (remoteMessages != null && !remoteMessages.isEmpty()) {
+            queryParams.put("messages", queryParamEscaper.escape(gson.toJson(remoteMessages)));
+        }
+
+        if (m_configUtil.isConfigDeltaEnabled()) {
+            queryParams.put("delta", "true");
+        }
+
+        if (!uri.endsWith("/")) {
+            uri += "/";
+        }
+        return uri + "configs/batch?" + MAP_JOINER.join(queryParams);
+    }
+
     private List<ServiceDTO> getConfigServices() {
         List<ServiceDTO> services = m_serviceLocator.getConfigServices();
         if (services.size() == 0) {
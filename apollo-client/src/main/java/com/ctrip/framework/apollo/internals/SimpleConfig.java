@@ -78,13 +78,13 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
 
   @Override
   public synchronized void onRepositoryChange(String namespace, Properties newProperties) {
-    if (newProperties.equals(m_configProperties)) {
+    List<ConfigChange> changes = calcPropertyChanges(namespace, m_configProperties, newProperties);
+    if (changes.isEmpty() && m_configProperties != null) {
       return;
     }
     Properties newConfigProperties = new Properties();
     newConfigProperties.putAll(newProperties);
 
-    List<ConfigChange> changes = calcPropertyChanges(namespace, m_configProperties, newConfigProperties);
     Map<String, ConfigChange> changeMap = Maps.uniqueIndex(changes,
         new Function<ConfigChange, String>() {
           @Override
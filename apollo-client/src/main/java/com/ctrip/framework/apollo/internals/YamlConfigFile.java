@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.internals;
 
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import java.util.Objects;
 import java.util.Properties;
 
 import org.slf4j.Logger;
@@ -19,6 +20,10 @@ import com.ctrip.framework.apollo.util.yaml.YamlParser;
 public class YamlConfigFile extends PlainTextConfigFile implements PropertiesCompatibleConfigFile {
   private static final Logger logger = LoggerFactory.getLogger(YamlConfigFile.class);
   private volatile Properties cachedProperties;
+  /**
+   * the content cachedProperties is transformed from
+   */
+  private String cachedContent;
 
   public YamlConfigFile(String namespace, ConfigRepository configRepository) {
     super(namespace, configRepository);
@@ -56,16 +61,22 @@ public class YamlConfigFile extends PlainTextConfigFile implements PropertiesCom
   }
 
   private synchronized void transformToProperties() {
-    cachedProperties = toProperties();
+    String content = getContent();
+    //the same content is not parsed again, and keeps the same properties instance
+    if (cachedProperties != null && Objects.equals(content, cachedContent)) {
+      return;
+    }
+    cachedProperties = toProperties(content);
+    cachedContent = content;
   }
 
-  private Properties toProperties() {
+  private Properties toProperties(String content) {
     if (!this.hasContent()) {
       return new Properties();
     }
 
     try {
-      return ApolloInjector.getInstance(YamlParser.class).yamlToProperties(getContent());
+      return ApolloInjector.getInstance(YamlParser.class).yamlToProperties(content);
     } catch (Throwable ex) {
       ApolloConfigException exception = new ApolloConfigException(
           "Parse yaml file content failed for namespace: " + m_namespace, ex);
@@ -5,10 +5,13 @@ import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.spring.util.SpringInjector;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
 import com.google.gson.Gson;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -50,29 +53,55 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
     if (CollectionUtils.isEmpty(keys)) {
       return;
     }
+    // 1. find the relevant values and group them by placeholder, values referring to several changed keys are
+    // updated only once
+    Multimap<String, SpringValue> placeholderValues = LinkedHashMultimap.create();
     for (String key : keys) {
-      // 1. check whether the changed key is relevant
       Collection<SpringValue> targetValues = springValueRegistry.get(beanFactory, key);
       if (targetValues == null || targetValues.isEmpty()) {
         continue;
       }
-
-      // 2. update the value
       for (SpringValue val : targetValues) {
-        updateSpringValue(val);
+        placeholderValues.put(val.getPlaceholder(), val);
       }
     }
+
+    // 2. update the values, the placeholder is resolved once for all the values sharing it
+    for (Map.Entry<String, Collection<SpringValue>> entry : placeholderValues.asMap().entrySet()) {
+      updateSpringValues(entry.getKey(), entry.getValue());
+    }
   }
 
-  private void updateSpringValue(SpringValue springValue) {
+  private void updateSpringValues(String placeholder, Collection<SpringValue> springValues) {
+    String strVal;
     try {
-      Object value = resolvePropertyValue(springValue);
+      strVal = beanFactory.resolveEmbeddedValue(placeholder);
+    } catch (Throwable ex) {
+      logger.error("Auto update apollo changed value failed, placeholder: {}", placeholder, ex);
+      return;
+    }
+
+    int updated = 0;
+    for (SpringValue springValue : springValues) {
+      if (updateSpringValue(springValue, strVal)) {
+        updated++;
+      }
+    }
+    logger.info("Auto update apollo changed value successfully, placeholder: {}, new value: {}, updated {} of {}",
+        placeholder, strVal, updated, springValues.size());
+  }
+
+  private boolean updateSpringValue(SpringValue springValue, String strVal) {
+    try {
+      Object value = resolvePropertyValue(springValue, strVal);
       springValue.update(value);
 
-      logger.info("Auto update apollo changed value successfully, new value: {}, {}", value,
+      logger.debug("Auto update apollo changed value successfully, new value: {}, {}", value,
           springValue);
+      return true;
     } catch (Throwable ex) {
       logger.error("Auto update apollo changed value failed, {}", springValue.toString(), ex);
+      return false;
     }
   }
 
@@ -80,10 +109,9 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
    * Logic transplanted from DefaultListableBeanFactory
    * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#doResolveDependency(org.springframework.beans.factory.config.DependencyDescriptor, java.lang.String, java.util.Set, org.springframework.beans.TypeConverter)
    */
-  private Object resolvePropertyValue(SpringValue springValue) {
+  private Object resolvePropertyValue(SpringValue springValue, String strVal) {
     // value will never be null, as @Value and @ApolloJsonValue will not allow that
-    Object value = placeholderHelper
-        .resolvePropertyValue(beanFactory, springValue.getBeanName(), springValue.getPlaceholder());
+    Object value = placeholderHelper.evaluatePropertyValue(beanFactory, springValue.getBeanName(), strVal);
 
     if (springValue.isJson()) {
       value = parseJsonValue((String)value, springValue.getGenericType());
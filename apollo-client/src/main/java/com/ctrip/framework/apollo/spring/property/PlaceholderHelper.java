@@ -34,6 +34,16 @@ public class PlaceholderHelper {
     // resolve string value
     String strVal = beanFactory.resolveEmbeddedValue(placeholder);
 
+    return evaluatePropertyValue(beanFactory, beanName, strVal);
+  }
+
+  /**
+   * The second half of {@link #resolvePropertyValue(ConfigurableBeanFactory, String, String)}, so that the resolved
+   * string value of a placeholder could be shared by beans
+   *
+   * @param strVal the placeholder resolved by {@link ConfigurableBeanFactory#resolveEmbeddedValue(String)}
+   */
+  public Object evaluatePropertyValue(ConfigurableBeanFactory beanFactory, String beanName, String strVal) {
     BeanDefinition bd = (beanFactory.containsBean(beanName) ? beanFactory
         .getMergedBeanDefinition(beanName) : null);
 
@@ -1,10 +1,17 @@
 package com.ctrip.framework.apollo.spring.property;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.springframework.core.MethodParameter;
 
 /**
@@ -14,6 +21,17 @@ import org.springframework.core.MethodParameter;
  * @since 2018/2/6.
  */
 public class SpringValue {
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  /**
+   * 按字段或方法缓存的 MethodHandle，同一个类的多个 bean 共享，按声明类存放以免阻止类的卸载
+   */
+  private static final ClassValue<ConcurrentMap<Member, MethodHandle>> SETTERS =
+      new ClassValue<ConcurrentMap<Member, MethodHandle>>() {
+        @Override
+        protected ConcurrentMap<Member, MethodHandle> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
 
   private MethodParameter methodParameter;
   private Field field;
@@ -24,6 +42,10 @@ public class SpringValue {
   private Class<?> targetType;
   private Type genericType;
   private boolean isJson;
+  /**
+   * 字段或 setter 方法的 MethodHandle，首次更新时获取
+   */
+  private volatile MethodHandle setter;
 
   public SpringValue(String key, String placeholder, Object bean, String beanName, Field field, boolean isJson) {
     this.beanRef = new WeakReference<>(bean);
@@ -65,10 +87,17 @@ public class SpringValue {
     if (bean == null) {
       return;
     }
-    boolean accessible = field.isAccessible();
-    field.setAccessible(true);
-    field.set(bean, newVal);
-    field.setAccessible(accessible);
+    MethodHandle setter = getSetter();
+    try {
+      setter.invokeExact(bean, newVal);
+    } catch (ClassCastException | NullPointerException ex) {
+      //the same as Field.set with a value of wrong type
+      throw new IllegalArgumentException(ex);
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new IllegalStateException(ex);
+    }
   }
 
   private void injectMethod(Object newVal)
@@ -77,7 +106,66 @@ public class SpringValue {
     if (bean == null) {
       return;
     }
-    methodParameter.getMethod().invoke(bean, newVal);
+    MethodHandle setter = getSetter();
+    try {
+      setter.invokeExact(bean, newVal);
+    } catch (Throwable ex) {
+      throw new InvocationTargetException(ex);
+    }
+  }
+
+  /**
+   * The access check is done once per field or method when the handle is created, so the field or method is no longer
+   * made accessible on every update, and the beans of the same class share the handle.
+   */
+  private MethodHandle getSetter() throws IllegalAccessException {
+    MethodHandle result = setter;
+    if (result == null) {
+      Member member = isField() ? field : methodParameter.getMethod();
+      ConcurrentMap<Member, MethodHandle> setters = SETTERS.get(member.getDeclaringClass());
+      result = setters.get(member);
+      if (result == null) {
+        result = createSetter();
+        MethodHandle previous = setters.putIfAbsent(member, result);
+        if (previous != null) {
+          result = previous;
+        }
+      }
+      setter = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return the handle of type (Object bean, Object value)void, the bean is ignored for static members
+   */
+  private MethodHandle createSetter() throws IllegalAccessException {
+    MethodHandle result;
+    int modifiers;
+    if (isField()) {
+      modifiers = field.getModifiers();
+      boolean accessible = field.isAccessible();
+      field.setAccessible(true);
+      try {
+        result = MethodHandles.lookup().unreflectSetter(field);
+      } finally {
+        field.setAccessible(accessible);
+      }
+    } else {
+      Method method = methodParameter.getMethod();
+      modifiers = method.getModifiers();
+      boolean accessible = method.isAccessible();
+      method.setAccessible(true);
+      try {
+        result = MethodHandles.lookup().unreflect(method);
+      } finally {
+        method.setAccessible(accessible);
+      }
+    }
+    if (Modifier.isStatic(modifiers)) {
+      result = MethodHandles.dropArguments(result, 0, Object.class);
+    }
+    return result.asType(SETTER_TYPE);
   }
 
   public String getBeanName() {
@@ -112,8 +200,8 @@ public class SpringValue {
     return isJson;
   }
 
-  boolean isTargetBeanValid() {
-    return beanRef.get() != null;
+  Object getBean() {
+    return beanRef.get();
   }
 
   @Override
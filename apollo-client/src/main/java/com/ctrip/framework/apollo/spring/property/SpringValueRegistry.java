@@ -1,77 +1,89 @@
 package com.ctrip.framework.apollo.spring.property;
 
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
-import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
-import com.google.common.collect.Multimaps;
 import org.springframework.beans.factory.BeanFactory;
 
+/**
+ * SpringValue 注册表
+ * <p>
+ * Each SpringValue is tracked by a weak reference to its bean. When the bean is garbage collected, the reference is
+ * enqueued and the SpringValue is removed on the next register or get, so the cleanup only touches the dead values
+ * and lookups never wait for it.
+ */
 public class SpringValueRegistry {
-  private static final long CLEAN_INTERVAL_IN_SECONDS = 5;
-  private final Map<BeanFactory, Multimap<String, SpringValue>> registry = Maps.newConcurrentMap();
-  private final AtomicBoolean initialized = new AtomicBoolean(false);
-  private final Object LOCK = new Object();
+  private final ConcurrentMap<BeanFactory, ConcurrentMap<String, Set<SpringValue>>> registry =
+      Maps.newConcurrentMap();
+  private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+  /**
+   * keep the references reachable until they are enqueued
+   */
+  private final Set<SpringValueReference> references = Sets.newConcurrentHashSet();
 
   public void register(BeanFactory beanFactory, String key, SpringValue springValue) {
-    if (!registry.containsKey(beanFactory)) {
-      synchronized (LOCK) {
-        if (!registry.containsKey(beanFactory)) {
-          registry.put(beanFactory, Multimaps.synchronizedListMultimap(LinkedListMultimap.<String, SpringValue>create()));
-        }
+    Object bean = springValue.getBean();
+    if (bean == null) {
+      return;
+    }
+    ConcurrentMap<String, Set<SpringValue>> beanFactorySpringValues = registry.get(beanFactory);
+    if (beanFactorySpringValues == null) {
+      beanFactorySpringValues = Maps.newConcurrentMap();
+      ConcurrentMap<String, Set<SpringValue>> previous = registry.putIfAbsent(beanFactory, beanFactorySpringValues);
+      if (previous != null) {
+        beanFactorySpringValues = previous;
       }
     }
 
-    registry.get(beanFactory).put(key, springValue);
-
-    // lazy initialize
-    if (initialized.compareAndSet(false, true)) {
-      initialize();
+    Set<SpringValue> springValues = beanFactorySpringValues.get(key);
+    if (springValues == null) {
+      springValues = Sets.newConcurrentHashSet();
+      Set<SpringValue> previous = beanFactorySpringValues.putIfAbsent(key, springValues);
+      if (previous != null) {
+        springValues = previous;
+      }
     }
+    springValues.add(springValue);
+    references.add(new SpringValueReference(bean, referenceQueue, springValues, springValue));
+
+    cleanUp();
   }
 
   public Collection<SpringValue> get(BeanFactory beanFactory, String key) {
-    Multimap<String, SpringValue> beanFactorySpringValues = registry.get(beanFactory);
+    cleanUp();
+    Map<String, Set<SpringValue>> beanFactorySpringValues = registry.get(beanFactory);
     if (beanFactorySpringValues == null) {
       return null;
     }
     return beanFactorySpringValues.get(key);
   }
 
-  private void initialize() {
-    Executors.newSingleThreadScheduledExecutor(ApolloThreadFactory.create("SpringValueRegistry", true)).scheduleAtFixedRate(
-        new Runnable() {
-          @Override
-          public void run() {
-            try {
-              scanAndClean();
-            } catch (Throwable ex) {
-              ex.printStackTrace();
-            }
-          }
-        }, CLEAN_INTERVAL_IN_SECONDS, CLEAN_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+  /**
+   * remove the values whose beans are garbage collected
+   */
+  void cleanUp() {
+    SpringValueReference reference;
+    while ((reference = (SpringValueReference) referenceQueue.poll()) != null) {
+      reference.springValues.remove(reference.springValue);
+      references.remove(reference);
+    }
   }
 
-  private void scanAndClean() {
-    Iterator<Multimap<String, SpringValue>> iterator = registry.values().iterator();
-    while (!Thread.currentThread().isInterrupted() && iterator.hasNext()) {
-      Multimap<String, SpringValue> springValues = iterator.next();
-      Iterator<Entry<String, SpringValue>> springValueIterator = springValues.entries().iterator();
-      while (springValueIterator.hasNext()) {
-        Entry<String, SpringValue> springValue = springValueIterator.next();
-        if (!springValue.getValue().isTargetBeanValid()) {
-          // clear unused spring values
-          springValueIterator.remove();
-        }
-      }
+  private static class SpringValueReference extends WeakReference<Object> {
+    private final Set<SpringValue> springValues;
+    private final SpringValue springValue;
+
+    SpringValueReference(Object bean, ReferenceQueue<Object> queue, Set<SpringValue> springValues,
+        SpringValue springValue) {
+      super(bean, queue);
+      this.springValues = springValues;
+      this.springValue = springValue;
     }
   }
 }
@@ -0,0 +1,138 @@
+package com.ctrip.framework.apollo.spring.util;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.enums.ConfigSourceType;
+import com.ctrip.framework.apollo.internals.RemoteConfigRepository;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时并行加载 namespace ，总耗时受 apollo.parallelBootstrap.timeoutInMills 限制
+ * <p>
+ * Each namespace is loaded by {@link ConfigService#getConfig(String)} on a temporary thread, so that the property
+ * sources can be assembled in order afterwards without waiting for the config service one namespace at a time.
+ * The remote loads share the deadline, a namespace missing it starts from the local cache file and is caught up by the
+ * periodic refresh and long polling.
+ */
+public final class ConfigBootstrapUtil {
+  private static final Logger logger = LoggerFactory.getLogger(ConfigBootstrapUtil.class);
+  private static final int MAX_THREADS = 8;
+
+  private ConfigBootstrapUtil() {
+  }
+
+  /**
+   * load the namespaces in parallel if apollo.parallelBootstrap.enabled is true
+   *
+   * @return the loading time in milliseconds of each namespace loaded from the config service before the deadline
+   */
+  public static Map<String, Long> preloadConfigs(Collection<String> namespaces) {
+    ConfigUtil configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    if (!configUtil.isParallelBootstrapEnabled()) {
+      return Collections.emptyMap();
+    }
+    return preloadConfigs(namespaces, configUtil.getParallelBootstrapTimeoutInMills());
+  }
+
+  static Map<String, Long> preloadConfigs(Collection<String> namespaces, long timeoutInMills) {
+    Set<String> distinctNamespaces = Sets.newLinkedHashSet(namespaces);
+    if (distinctNamespaces.size() <= 1) {
+      return Collections.emptyMap();
+    }
+
+    long start = System.nanoTime();
+    final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutInMills);
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(distinctNamespaces.size(), MAX_THREADS),
+        ApolloThreadFactory.create("Bootstrap", true));
+    try {
+      Map<String, Future<Long>> futures = Maps.newLinkedHashMap();
+      for (final String namespace : distinctNamespaces) {
+        futures.put(namespace, executorService.submit(new Callable<Long>() {
+          @Override
+          public Long call() {
+            return loadConfig(namespace, deadline);
+          }
+        }));
+      }
+
+      Map<String, Long> loadingTimes = Maps.newLinkedHashMap();
+      List<String> slowNamespaces = Lists.newArrayList();
+      for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+        try {
+          //the remote loads are bounded by the deadline, so the wait is too
+          Long loadingTime = entry.getValue().get();
+          if (loadingTime != null) {
+            loadingTimes.put(entry.getKey(), loadingTime);
+          } else {
+            slowNamespaces.add(entry.getKey());
+          }
+        } catch (ExecutionException ex) {
+          slowNamespaces.add(entry.getKey());
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return loadingTimes;
+        }
+      }
+
+      if (!slowNamespaces.isEmpty()) {
+        String slow = Joiner.on(',').join(slowNamespaces);
+        Tracer.logEvent("Apollo.Client.BootstrapSlowLoad", slow);
+        logger.warn("Namespaces {} are not loaded from the config service in {} ms, they start from the local cache " +
+            "and will be refreshed later, loading times of the others: {}", slow, timeoutInMills, loadingTimes);
+      } else {
+        logger.info("Apollo bootstrap loaded {} namespaces in {} ms, loading times: {}", loadingTimes.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), loadingTimes);
+      }
+      return loadingTimes;
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  /**
+   * @return the loading time in milliseconds, or null if the config is not loaded from the config service before the
+   * deadline
+   */
+  private static Long loadConfig(String namespace, long deadline) {
+    long start = System.nanoTime();
+    Transaction transaction = Tracer.newTransaction("Apollo.Client.Bootstrap", namespace);
+    RemoteConfigRepository.setLoadConfigDeadline(deadline);
+    try {
+      Config config = ConfigService.getConfig(namespace);
+      transaction.setStatus(Transaction.SUCCESS);
+      if (System.nanoTime() - deadline >= 0 && config.getSourceType() != ConfigSourceType.REMOTE) {
+        return null;
+      }
+    } catch (Throwable ex) {
+      //ConfigService.getConfig will be called again when assembling the property sources
+      transaction.setStatus(ex);
+      Tracer.logError(ex);
+    } finally {
+      RemoteConfigRepository.clearLoadConfigDeadline();
+      transaction.complete();
+    }
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
@@ -11,6 +11,7 @@ import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.MetaDomainConsts;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.enums.EnvUtils;
+import com.ctrip.framework.apollo.enums.ExecutionMode;
 import com.ctrip.framework.foundation.Foundation;
 import com.google.common.base.Strings;
 
@@ -35,6 +36,15 @@ public class ConfigUtil {
   private TimeUnit configCacheExpireTimeUnit = TimeUnit.MINUTES;//1 minute
   private long longPollingInitialDelayInMills = 2000;//2 seconds
   private boolean autoUpdateInjectedSpringProperties = true;
+  private boolean configDeltaEnabled = true;
+  private boolean batchConfigFetchEnabled = true;
+  private ExecutionMode executionMode = ExecutionMode.DEDICATED;
+  private int listenerExecutorThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+  private int listenerExecutorQueueCapacity = 1000;
+  private boolean precomputedPropertiesEnabled = false;
+  private boolean localCacheBinarySnapshotEnabled = false;
+  private boolean parallelBootstrapEnabled = false;
+  private long parallelBootstrapTimeoutInMills = 30000;//30 seconds
   private final RateLimiter warnLogRateLimiter;
 
   public ConfigUtil() {
@@ -47,6 +57,13 @@ public class ConfigUtil {
     initMaxConfigCacheSize();
     initLongPollingInitialDelayInMills();
     initAutoUpdateInjectedSpringProperties();
+    initConfigDeltaEnabled();
+    initBatchConfigFetchEnabled();
+    initExecutionMode();
+    initListenerExecutor();
+    initPrecomputedPropertiesEnabled();
+    initLocalCacheBinarySnapshotEnabled();
+    initParallelBootstrap();
   }
 
   /**
@@ -263,10 +280,18 @@ public class ConfigUtil {
     return maxConfigCacheSize;
   }
 
+  /**
+   * @deprecated typed values are no longer expired, they are dropped when the config changes
+   */
+  @Deprecated
   public long getConfigCacheExpireTime() {
     return configCacheExpireTime;
   }
 
+  /**
+   * @deprecated typed values are no longer expired, they are dropped when the config changes
+   */
+  @Deprecated
   public TimeUnit getConfigCacheExpireTimeUnit() {
     return configCacheExpireTimeUnit;
   }
@@ -301,4 +326,168 @@ public class ConfigUtil {
   public boolean isAutoUpdateInjectedSpringPropertiesEnabled() {
     return autoUpdateInjectedSpringProperties;
   }
+
+  private void initConfigDeltaEnabled() {
+    // 1. Get from System Property
+    String enableConfigDelta = System.getProperty("apollo.configDelta.enabled");
+    if (Strings.isNullOrEmpty(enableConfigDelta)) {
+      // 2. Get from app.properties
+      enableConfigDelta = Foundation.app().getProperty("apollo.configDelta.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableConfigDelta)) {
+      configDeltaEnabled = Boolean.parseBoolean(enableConfigDelta.trim());
+    }
+  }
+
+  /**
+   * 是否只拉取相对于本地 Release 的增量配置
+   */
+  public boolean isConfigDeltaEnabled() {
+    return configDeltaEnabled;
+  }
+
+  private void initBatchConfigFetchEnabled() {
+    // 1. Get from System Property
+    String enableBatchConfigFetch = System.getProperty("apollo.batchConfigFetch.enabled");
+    if (Strings.isNullOrEmpty(enableBatchConfigFetch)) {
+      // 2. Get from app.properties
+      enableBatchConfigFetch = Foundation.app().getProperty("apollo.batchConfigFetch.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableBatchConfigFetch)) {
+      batchConfigFetchEnabled = Boolean.parseBoolean(enableBatchConfigFetch.trim());
+    }
+  }
+
+  /**
+   * 多个 Namespace 同时收到通知时，是否合并为一次请求拉取配置
+   */
+  public boolean isBatchConfigFetchEnabled() {
+    return batchConfigFetchEnabled;
+  }
+
+  private void initExecutionMode() {
+    // 1. Get from System Property
+    String customizedExecutionMode = System.getProperty("apollo.executionMode");
+    if (Strings.isNullOrEmpty(customizedExecutionMode)) {
+      // 2. Get from app.properties
+      customizedExecutionMode = Foundation.app().getProperty("apollo.executionMode", null);
+    }
+    if (!Strings.isNullOrEmpty(customizedExecutionMode)) {
+      try {
+        executionMode = ExecutionMode.valueOf(customizedExecutionMode.trim().toUpperCase());
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.executionMode is invalid: {}", customizedExecutionMode);
+      }
+    }
+  }
+
+  /**
+   * 后台任务的线程模型，默认每个组件独占线程
+   */
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  private void initListenerExecutor() {
+    String customizedThreads = System.getProperty("apollo.listenerExecutor.threads");
+    if (!Strings.isNullOrEmpty(customizedThreads)) {
+      try {
+        listenerExecutorThreads = Math.max(1, Integer.parseInt(customizedThreads));
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.listenerExecutor.threads is invalid: {}", customizedThreads);
+      }
+    }
+    String customizedQueueCapacity = System.getProperty("apollo.listenerExecutor.queueCapacity");
+    if (!Strings.isNullOrEmpty(customizedQueueCapacity)) {
+      try {
+        listenerExecutorQueueCapacity = Math.max(1, Integer.parseInt(customizedQueueCapacity));
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.listenerExecutor.queueCapacity is invalid: {}", customizedQueueCapacity);
+      }
+    }
+  }
+
+  public int getListenerExecutorThreads() {
+    return listenerExecutorThreads;
+  }
+
+  public int getListenerExecutorQueueCapacity() {
+    return listenerExecutorQueueCapacity;
+  }
+
+  private void initPrecomputedPropertiesEnabled() {
+    // 1. Get from System Property
+    String enablePrecomputedProperties = System.getProperty("apollo.precomputedProperties.enabled");
+    if (Strings.isNullOrEmpty(enablePrecomputedProperties)) {
+      // 2. Get from app.properties
+      enablePrecomputedProperties = Foundation.app().getProperty("apollo.precomputedProperties.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enablePrecomputedProperties)) {
+      precomputedPropertiesEnabled = Boolean.parseBoolean(enablePrecomputedProperties.trim());
+    }
+  }
+
+  /**
+   * 是否预先合并系统属性、远程配置、环境变量和本地资源文件，合并后的视图仅在配置变化或显式刷新时重建
+   */
+  public boolean isPrecomputedPropertiesEnabled() {
+    return precomputedPropertiesEnabled;
+  }
+
+  private void initLocalCacheBinarySnapshotEnabled() {
+    // 1. Get from System Property
+    String enableBinarySnapshot = System.getProperty("apollo.localCache.binarySnapshot.enabled");
+    if (Strings.isNullOrEmpty(enableBinarySnapshot)) {
+      // 2. Get from app.properties
+      enableBinarySnapshot = Foundation.app().getProperty("apollo.localCache.binarySnapshot.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableBinarySnapshot)) {
+      localCacheBinarySnapshotEnabled = Boolean.parseBoolean(enableBinarySnapshot.trim());
+    }
+  }
+
+  /**
+   * 本地缓存是否使用带校验和的二进制快照，并由后台线程异步写入
+   */
+  public boolean isLocalCacheBinarySnapshotEnabled() {
+    return localCacheBinarySnapshotEnabled;
+  }
+
+  private void initParallelBootstrap() {
+    // 1. Get from System Property
+    String enableParallelBootstrap = System.getProperty("apollo.parallelBootstrap.enabled");
+    if (Strings.isNullOrEmpty(enableParallelBootstrap)) {
+      // 2. Get from app.properties
+      enableParallelBootstrap = Foundation.app().getProperty("apollo.parallelBootstrap.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableParallelBootstrap)) {
+      parallelBootstrapEnabled = Boolean.parseBoolean(enableParallelBootstrap.trim());
+    }
+
+    String customizedTimeout = System.getProperty("apollo.parallelBootstrap.timeoutInMills");
+    if (Strings.isNullOrEmpty(customizedTimeout)) {
+      customizedTimeout = Foundation.app().getProperty("apollo.parallelBootstrap.timeoutInMills", null);
+    }
+    if (!Strings.isNullOrEmpty(customizedTimeout)) {
+      try {
+        parallelBootstrapTimeoutInMills = Long.parseLong(customizedTimeout.trim());
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.parallelBootstrap.timeoutInMills is invalid: {}", customizedTimeout);
+      }
+    }
+  }
+
+  /**
+   * 启动时是否并行加载所有 namespace
+   */
+  public boolean isParallelBootstrapEnabled() {
+    return parallelBootstrapEnabled;
+  }
+
+  /**
+   * 并行加载的截止时间，超过后未加载完成的 namespace 从本地缓存文件启动
+   */
+  public long getParallelBootstrapTimeoutInMills() {
+    return parallelBootstrapTimeoutInMills;
+  }
 }
@@ -0,0 +1,122 @@
+package com.ctrip.framework.apollo.util.concurrent;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.enums.ExecutionMode;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 客户端后台线程池的统一入口，按 {@link ExecutionMode} 创建
+ * <p>
+ * In shared and virtual modes, the scheduled tasks and the long polling loop of all the components run on one small
+ * scheduler instead of a thread per component. Listener dispatch always uses executors with bounded threads, as
+ * listeners are user code and must not block the scheduler. Change events are never dropped: when the queue is full,
+ * the listener is run by the submitting thread only in dedicated mode, where that thread belongs to the submitting
+ * component alone, otherwise it is queued beyond the capacity and traced.
+ */
+public final class ApolloExecutors {
+  private static final Logger logger = LoggerFactory.getLogger(ApolloExecutors.class);
+  //the long polling loop occupies one of them
+  private static final int SHARED_SCHEDULER_THREADS = 2;
+  private static final String SHARED_SCHEDULER_NAME = "Apollo";
+
+  private static volatile ScheduledExecutorService s_sharedScheduler;
+
+  private ApolloExecutors() {
+  }
+
+  /**
+   * executor of periodic tasks, e.g. refreshing configs or services
+   */
+  public static ScheduledExecutorService newScheduledExecutor(String name) {
+    return newScheduledExecutor(name, getExecutionMode());
+  }
+
+  /**
+   * executor of long running loops, i.e. long polling
+   */
+  public static ExecutorService newLongRunningExecutor(String name) {
+    return newLongRunningExecutor(name, getExecutionMode());
+  }
+
+  /**
+   * executor to notify listeners, bounded by apollo.listenerExecutor.threads, apollo.listenerExecutor.queueCapacity
+   * is the backlog beyond which the submitting thread runs the listener or the backlog is traced
+   */
+  public static InstrumentedThreadPoolExecutor newListenerExecutor(String name) {
+    ConfigUtil configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    return newListenerExecutor(name, configUtil.getExecutionMode(), configUtil.getListenerExecutorThreads(),
+        configUtil.getListenerExecutorQueueCapacity());
+  }
+
+  static ScheduledExecutorService newScheduledExecutor(String name, ExecutionMode mode) {
+    if (mode == ExecutionMode.DEDICATED) {
+      return Executors.newScheduledThreadPool(1, ApolloThreadFactory.create(name, true));
+    }
+    return getSharedScheduler(mode);
+  }
+
+  static ExecutorService newLongRunningExecutor(String name, ExecutionMode mode) {
+    if (mode == ExecutionMode.DEDICATED) {
+      return Executors.newSingleThreadExecutor(ApolloThreadFactory.create(name, true));
+    }
+    return getSharedScheduler(mode);
+  }
+
+  static InstrumentedThreadPoolExecutor newListenerExecutor(String name, ExecutionMode mode, int threads,
+                                                            int queueCapacity) {
+    return new InstrumentedThreadPoolExecutor(name, threads, queueCapacity, createThreadFactory(name, mode),
+        mode == ExecutionMode.DEDICATED);
+  }
+
+  private static ScheduledExecutorService getSharedScheduler(ExecutionMode mode) {
+    if (s_sharedScheduler == null) {
+      synchronized (ApolloExecutors.class) {
+        if (s_sharedScheduler == null) {
+          s_sharedScheduler = Executors.newScheduledThreadPool(SHARED_SCHEDULER_THREADS,
+              createThreadFactory(SHARED_SCHEDULER_NAME, mode));
+        }
+      }
+    }
+    return s_sharedScheduler;
+  }
+
+  private static ThreadFactory createThreadFactory(String name, ExecutionMode mode) {
+    if (mode == ExecutionMode.VIRTUAL) {
+      ThreadFactory virtualThreadFactory = createVirtualThreadFactory(name);
+      if (virtualThreadFactory != null) {
+        return virtualThreadFactory;
+      }
+    }
+    return ApolloThreadFactory.create(name, true);
+  }
+
+  /**
+   * Thread.ofVirtual().name(name + "-", 1).factory() via reflection, returns null if the JDK doesn't support it
+   */
+  static ThreadFactory createVirtualThreadFactory(String name) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+      builder = nameMethod.invoke(builder, name + "-", 1L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (Throwable ex) {
+      logger.warn("Virtual threads are not supported by the current JDK, fall back to platform threads for {}",
+          name);
+      return null;
+    }
+  }
+
+  private static ExecutionMode getExecutionMode() {
+    return ApolloInjector.getInstance(ConfigUtil.class).getExecutionMode();
+  }
+}
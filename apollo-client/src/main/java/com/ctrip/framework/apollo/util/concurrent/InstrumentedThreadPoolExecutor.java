@@ -0,0 +1,83 @@
+package com.ctrip.framework.apollo.util.concurrent;
+
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程数有界的线程池，任务不会因为积压而丢失
+ * <p>
+ * When the backlog reaches the queue capacity, the task is either run by the submitting thread, which slows it down,
+ * or queued beyond the capacity if the submitting thread is shared by other components and must not be blocked by the
+ * task. Both report an event to {@link Tracer}. Idle threads exit after the keep alive time.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+  private static final Logger logger = LoggerFactory.getLogger(InstrumentedThreadPoolExecutor.class);
+  private static final long KEEP_ALIVE_TIME_IN_SECONDS = 60;
+
+  private final String name;
+  private final int queueCapacity;
+  private final boolean callerRunsWhenSaturated;
+  private final AtomicLong rejectedTaskCount = new AtomicLong();
+  private final RateLimiter backlogLogRateLimiter = RateLimiter.create(0.017); // 1 warning log output per minute
+
+  /**
+   * @param callerRunsWhenSaturated whether the submitting thread runs the task when the queue is full, otherwise the
+   * queue is unbounded and the backlog beyond the capacity is only reported
+   */
+  public InstrumentedThreadPoolExecutor(String name, int threads, int queueCapacity, ThreadFactory threadFactory,
+                                        boolean callerRunsWhenSaturated) {
+    super(threads, threads, KEEP_ALIVE_TIME_IN_SECONDS, TimeUnit.SECONDS,
+        callerRunsWhenSaturated ? new LinkedBlockingQueue<Runnable>(queueCapacity) :
+            new LinkedBlockingQueue<Runnable>(), threadFactory);
+    this.name = name;
+    this.queueCapacity = queueCapacity;
+    this.callerRunsWhenSaturated = callerRunsWhenSaturated;
+    allowCoreThreadTimeOut(true);
+    setRejectedExecutionHandler(new CallerRunsWithTracePolicy());
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (!callerRunsWhenSaturated && getQueue().size() >= queueCapacity) {
+      rejectedTaskCount.incrementAndGet();
+      Tracer.logEvent("Apollo.Client.ExecutorBacklog", name);
+      if (backlogLogRateLimiter.tryAcquire()) {
+        logger.warn("Executor {} has more than {} pending tasks, {} tasks queued beyond the capacity in total", name,
+            queueCapacity, rejectedTaskCount.get());
+      }
+    }
+    super.execute(command);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of tasks submitted when the queue is full, whether run by the submitting thread or queued
+   * beyond the capacity
+   */
+  public long getRejectedTaskCount() {
+    return rejectedTaskCount.get();
+  }
+
+  private class CallerRunsWithTracePolicy implements RejectedExecutionHandler {
+    private final RejectedExecutionHandler delegate = new CallerRunsPolicy();
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      rejectedTaskCount.incrementAndGet();
+      Tracer.logEvent("Apollo.Client.ExecutorSaturated", name);
+      delegate.rejectedExecution(task, executor);
+    }
+  }
+}
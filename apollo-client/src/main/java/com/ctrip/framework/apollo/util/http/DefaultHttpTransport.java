@@ -0,0 +1,112 @@
+package com.ctrip.framework.apollo.util.http;
+
+import com.ctrip.framework.apollo.core.spi.Ordered;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.google.common.base.Function;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 基于 HttpURLConnection 的默认实现
+ * <p>
+ * The body is decoded straight from the connection stream, and the stream is always read to the end before closing,
+ * so that the underlying connection could be reused by the keep-alive cache of JDK. Responses are requested compressed
+ * and inflated transparently, the config service only compresses responses that are large enough.
+ */
+public class DefaultHttpTransport implements HttpTransport {
+  private static final int DRAIN_BUFFER_SIZE = 1024;
+  private static final String ACCEPT_ENCODING = "gzip, deflate";
+  private static final String GZIP_ENCODING = "gzip";
+  private static final String DEFLATE_ENCODING = "deflate";
+
+  @Override
+  public <T> HttpResponse<T> doGet(HttpRequest httpRequest, int connectTimeout, int readTimeout,
+                                   Function<Reader, T> responseBodyReader) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
+
+    conn.setRequestMethod("GET");
+    conn.setConnectTimeout(connectTimeout);
+    conn.setReadTimeout(readTimeout);
+    conn.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+
+    conn.connect();
+
+    int statusCode = conn.getResponseCode();
+
+    if (statusCode == 200) {
+      InputStream in = decode(conn.getInputStream(), conn.getContentEncoding());
+      try {
+        T body = responseBodyReader.apply(new InputStreamReader(in, StandardCharsets.UTF_8));
+        drain(in);
+        return new HttpResponse<>(statusCode, body);
+      } finally {
+        in.close();
+      }
+    }
+
+    if (statusCode == 304) {
+      drainAndClose(conn.getInputStream());
+      return new HttpResponse<>(statusCode, null);
+    }
+
+    /**
+     * according to https://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html,
+     * we should clean up the connection by reading the response body so that the connection
+     * could be reused.
+     */
+    try {
+      drainAndClose(statusCode >= 400 ? conn.getErrorStream() : conn.getInputStream());
+    } catch (IOException ex) {
+      //ignore
+    }
+
+    throw new ApolloConfigStatusCodeException(statusCode,
+        String.format("Get operation failed for %s", httpRequest.getUrl()));
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE;
+  }
+
+  private InputStream decode(InputStream in, String contentEncoding) throws IOException {
+    try {
+      if (GZIP_ENCODING.equalsIgnoreCase(contentEncoding)) {
+        return new GZIPInputStream(in);
+      }
+      if (DEFLATE_ENCODING.equalsIgnoreCase(contentEncoding)) {
+        return new InflaterInputStream(in);
+      }
+      return in;
+    } catch (IOException ex) {
+      in.close();
+      throw ex;
+    }
+  }
+
+  private void drainAndClose(InputStream in) throws IOException {
+    if (in == null) {
+      return;
+    }
+    try {
+      drain(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  private void drain(InputStream in) throws IOException {
+    byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+    while (in.read(buffer) >= 0) {
+      //read to the end
+    }
+  }
+}
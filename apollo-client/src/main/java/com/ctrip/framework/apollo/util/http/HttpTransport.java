@@ -0,0 +1,26 @@
+package com.ctrip.framework.apollo.util.http;
+
+import com.ctrip.framework.apollo.core.spi.Ordered;
+import com.google.common.base.Function;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Http 传输层 SPI ，通过 META-INF/services 注册，order 最小的实现生效。
+ * <p>
+ * Custom transports, e.g. pooled or HTTP/2 clients, could be plugged in without changing the callers.
+ */
+public interface HttpTransport extends Ordered {
+
+  /**
+   * Do get operation for the http request.
+   *
+   * @param responseBodyReader reads the body of 200 responses, the reader is closed after it returns
+   * @return the response, with null body for 304 responses
+   * @throws com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException if response code is neither 200
+   *                                                                                nor 304
+   */
+  <T> HttpResponse<T> doGet(HttpRequest httpRequest, int connectTimeout, int readTimeout,
+                            Function<Reader, T> responseBodyReader) throws IOException;
+}
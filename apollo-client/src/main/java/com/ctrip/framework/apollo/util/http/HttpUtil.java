@@ -4,22 +4,18 @@ import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
 import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.foundation.internals.ServiceBootstrap;
 import com.google.common.base.Function;
-import com.google.common.io.CharStreams;
 import com.google.gson.Gson;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 public class HttpUtil {
   private ConfigUtil m_configUtil;
+  private HttpTransport m_transport;
   private Gson gson;
 
   /**
@@ -27,6 +23,7 @@ public class HttpUtil {
    */
   public HttpUtil() {
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_transport = ServiceBootstrap.loadPrimary(HttpTransport.class);
     gson = new Gson();
   }
 
@@ -39,9 +36,9 @@ public class HttpUtil {
    * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
    */
   public <T> HttpResponse<T> doGet(HttpRequest httpRequest, final Class<T> responseType) {
-    Function<String, T> convertResponse = new Function<String, T>() {
+    Function<Reader, T> convertResponse = new Function<Reader, T>() {
       @Override
-      public T apply(String input) {
+      public T apply(Reader input) {
         return gson.fromJson(input, responseType);
       }
     };
@@ -58,9 +55,9 @@ public class HttpUtil {
    * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
    */
   public <T> HttpResponse<T> doGet(HttpRequest httpRequest, final Type responseType) {
-    Function<String, T> convertResponse = new Function<String, T>() {
+    Function<Reader, T> convertResponse = new Function<Reader, T>() {
       @Override
-      public T apply(String input) {
+      public T apply(Reader input) {
         return gson.fromJson(input, responseType);
       }
     };
@@ -69,93 +66,35 @@ public class HttpUtil {
   }
 
   private <T> HttpResponse<T> doGetWithSerializeFunction(HttpRequest httpRequest,
-                                                         Function<String, T> serializeFunction) {
-    InputStreamReader isr = null;
-    InputStreamReader esr = null;
-    int statusCode;
+                                                         Function<Reader, T> serializeFunction) {
     try {
-      HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
-
-      conn.setRequestMethod("GET");
-
-      int connectTimeout = httpRequest.getConnectTimeout();
-      if (connectTimeout < 0) {
-        connectTimeout = m_configUtil.getConnectTimeout();
-      }
-
-      int readTimeout = httpRequest.getReadTimeout();
-      if (readTimeout < 0) {
-        readTimeout = m_configUtil.getReadTimeout();
-      }
-
-      conn.setConnectTimeout(connectTimeout);
-      conn.setReadTimeout(readTimeout);
-
-      conn.connect();
-
-      statusCode = conn.getResponseCode();
-      String response;
-
-      try {
-        isr = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8);
-        response = CharStreams.toString(isr);
-      } catch (IOException ex) {
-        /**
-         * according to https://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html,
-         * we should clean up the connection by reading the response body so that the connection
-         * could be reused.
-         */
-        InputStream errorStream = conn.getErrorStream();
-
-        if (errorStream != null) {
-          esr = new InputStreamReader(errorStream, StandardCharsets.UTF_8);
-          try {
-            CharStreams.toString(esr);
-          } catch (IOException ioe) {
-            //ignore
-          }
-        }
-
-        // 200 and 304 should not trigger IOException, thus we must throw the original exception out
-        if (statusCode == 200 || statusCode == 304) {
-          throw ex;
-        } else {
-          // for status codes like 404, IOException is expected when calling conn.getInputStream()
-          throw new ApolloConfigStatusCodeException(statusCode, ex);
-        }
-      }
-
-      if (statusCode == 200) {
-        return new HttpResponse<>(statusCode, serializeFunction.apply(response));
-      }
-
-      if (statusCode == 304) {
-        return new HttpResponse<>(statusCode, null);
-      }
-    } catch (ApolloConfigStatusCodeException ex) {
-      throw ex;
+      return m_transport.doGet(httpRequest, getConnectTimeout(httpRequest), getReadTimeout(httpRequest),
+          serializeFunction);
     } catch (Throwable ex) {
-      throw new ApolloConfigException("Could not complete get operation", ex);
-    } finally {
-      if (isr != null) {
-        try {
-          isr.close();
-        } catch (IOException ex) {
-          // ignore
-        }
-      }
+      throw translateException(ex);
+    }
+  }
 
-      if (esr != null) {
-        try {
-          esr.close();
-        } catch (IOException ex) {
-          // ignore
-        }
-      }
+  private int getConnectTimeout(HttpRequest httpRequest) {
+    int connectTimeout = httpRequest.getConnectTimeout();
+    if (connectTimeout < 0) {
+      connectTimeout = m_configUtil.getConnectTimeout();
     }
+    return connectTimeout;
+  }
 
-    throw new ApolloConfigStatusCodeException(statusCode,
-        String.format("Get operation failed for %s", httpRequest.getUrl()));
+  private int getReadTimeout(HttpRequest httpRequest) {
+    int readTimeout = httpRequest.getReadTimeout();
+    if (readTimeout < 0) {
+      readTimeout = m_configUtil.getReadTimeout();
+    }
+    return readTimeout;
   }
 
+  private RuntimeException translateException(Throwable ex) {
+    if (ex instanceof ApolloConfigStatusCodeException) {
+      return (ApolloConfigStatusCodeException) ex;
+    }
+    return new ApolloConfigException("Could not complete get operation", ex);
+  }
 }
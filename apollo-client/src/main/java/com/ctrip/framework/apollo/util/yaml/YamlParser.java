@@ -4,6 +4,7 @@ import java.util.AbstractMap;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -16,30 +17,152 @@ import org.yaml.snakeyaml.nodes.MappingNode;
 import org.yaml.snakeyaml.parser.ParserException;
 
 import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * Transplanted from org.springframework.beans.factory.config.YamlProcessor since apollo can't depend on Spring directly
+ * <p>
+ * A document whose top level is a block mapping is split into top-level sections, e.g. <code>spring:</code> and the
+ * lines indented under it, and the flattened properties of each section are cached by the section text. So parsing
+ * the same content again, or a content with only a few sections changed, only parses the changed sections. Documents
+ * that can't be split safely, e.g. with multiple documents or aliases across sections, are parsed as a whole.
  *
  * @since 1.3.0
  */
 public class YamlParser {
   private static final Logger logger = LoggerFactory.getLogger(YamlParser.class);
+  /**
+   * the total length of the cached section texts
+   */
+  private static final long MAX_CACHED_SECTION_LENGTH = 4 * 1024 * 1024;
+
+  /**
+   * {@link Yaml} is not thread-safe, so each thread reuses its own instance
+   */
+  private final ThreadLocal<Yaml> yaml = new ThreadLocal<Yaml>() {
+    @Override
+    protected Yaml initialValue() {
+      return createYaml();
+    }
+  };
+
+  private final Cache<String, Section> sectionCache = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_CACHED_SECTION_LENGTH)
+      .weigher(new Weigher<String, Section>() {
+        @Override
+        public int weigh(String sectionText, Section section) {
+          return sectionText.length();
+        }
+      })
+      .recordStats()
+      .build();
 
   /**
    * Transform yaml content to properties
    */
   public Properties yamlToProperties(String yamlContent) {
-    Yaml yaml = createYaml();
+    List<String> sections = splitTopLevelSections(yamlContent);
+    if (sections != null) {
+      Properties result = sectionsToProperties(sections);
+      if (result != null) {
+        return result;
+      }
+    }
+
     final Properties result = new Properties();
     process(new MatchCallback() {
       @Override
       public void process(Properties properties, Map<String, Object> map) {
         result.putAll(properties);
       }
-    }, yaml, yamlContent);
+    }, yaml.get(), yamlContent);
+    return result;
+  }
+
+  CacheStats sectionCacheStats() {
+    return sectionCache.stats();
+  }
+
+  /**
+   * @return null if any section can't be parsed alone or the sections have duplicate keys, then the content should be
+   * parsed as a whole to get the same result or error
+   */
+  private Properties sectionsToProperties(List<String> sectionTexts) {
+    Set<Object> keys = Sets.newHashSetWithExpectedSize(sectionTexts.size());
+    Properties result = new Properties();
+    for (String sectionText : sectionTexts) {
+      Section section = sectionCache.getIfPresent(sectionText);
+      if (section == null) {
+        section = parseSection(sectionText);
+        if (section == null) {
+          return null;
+        }
+        sectionCache.put(sectionText, section);
+      }
+      if (!keys.add(section.key)) {
+        return null;
+      }
+      result.putAll(section.properties);
+    }
     return result;
   }
 
+  private Section parseSection(String sectionText) {
+    Object document;
+    try {
+      document = yaml.get().load(sectionText);
+    } catch (RuntimeException ex) {
+      logger.debug("Section can't be parsed alone, will parse the whole content: {}", sectionText, ex);
+      return null;
+    }
+    if (!(document instanceof Map) || ((Map<?, ?>) document).size() != 1) {
+      return null;
+    }
+    Object key = ((Map<?, ?>) document).keySet().iterator().next();
+    Properties properties = new Properties();
+    properties.putAll(getFlattenedMap(asMap(document)));
+    return new Section(key, properties);
+  }
+
+  /**
+   * Split the content by the lines starting at column 0, leading comments and blank lines belong to the first section
+   *
+   * @return null if the content is not a single block mapping
+   */
+  private List<String> splitTopLevelSections(String content) {
+    List<String> sections = Lists.newArrayList();
+    int sectionStart = 0;
+    boolean hasKey = false;
+    int lineStart = 0;
+    while (lineStart < content.length()) {
+      int lineEnd = content.indexOf('\n', lineStart);
+      lineEnd = lineEnd < 0 ? content.length() : lineEnd + 1;
+      char c = content.charAt(lineStart);
+      if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != '#') {
+        // document markers, directives, sequences and complex keys
+        if (c == '-' || c == '?' || c == '%' || content.startsWith("...", lineStart)) {
+          return null;
+        }
+        if (hasKey) {
+          sections.add(content.substring(sectionStart, lineStart));
+          sectionStart = lineStart;
+        }
+        hasKey = true;
+      }
+      lineStart = lineEnd;
+    }
+    if (!hasKey) {
+      return null;
+    }
+    sections.add(content.substring(sectionStart));
+    return sections;
+  }
+
   /**
    * Create the {@link Yaml} instance to use.
    */
@@ -139,6 +262,16 @@ public class YamlParser {
     }
   }
 
+  private static class Section {
+    private final Object key;
+    private final Properties properties;
+
+    Section(Object key, Properties properties) {
+      this.key = key;
+      this.properties = properties;
+    }
+  }
+
   private interface MatchCallback {
     void process(Properties properties, Map<String, Object> map);
   }
@@ -0,0 +1,68 @@
+package com.ctrip.framework.apollo.internals;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BinaryConfigSnapshotTest {
+
+  @Test
+  public void testEncodeAndDecode() throws Exception {
+    String someReleaseKey = "someReleaseKey";
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue\nxxx");
+    someProperties.setProperty("中文", "值");
+    someProperties.setProperty("emptyKey", "");
+    someProperties.put("objectKey", new Object());
+
+    BinaryConfigSnapshot snapshot =
+        BinaryConfigSnapshot.decode(ByteBuffer.wrap(BinaryConfigSnapshot.encode(someReleaseKey, someProperties)));
+
+    assertEquals(someReleaseKey, snapshot.getReleaseKey());
+    assertEquals(3, snapshot.getProperties().size());
+    assertEquals("someValue\nxxx", snapshot.getProperties().getProperty("someKey"));
+    assertEquals("值", snapshot.getProperties().getProperty("中文"));
+    assertEquals("", snapshot.getProperties().getProperty("emptyKey"));
+  }
+
+  @Test
+  public void testEncodeAndDecodeWithoutReleaseKey() throws Exception {
+    BinaryConfigSnapshot snapshot =
+        BinaryConfigSnapshot.decode(ByteBuffer.wrap(BinaryConfigSnapshot.encode(null, new Properties())));
+
+    assertNull(snapshot.getReleaseKey());
+    assertEquals(0, snapshot.getProperties().size());
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeCorruptedSnapshot() throws Exception {
+    byte[] bytes = BinaryConfigSnapshot.encode("someReleaseKey", someProperties());
+    bytes[bytes.length - 1] ^= 1;
+
+    BinaryConfigSnapshot.decode(ByteBuffer.wrap(bytes));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeTruncatedSnapshot() throws Exception {
+    byte[] bytes = BinaryConfigSnapshot.encode("someReleaseKey", someProperties());
+
+    BinaryConfigSnapshot.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodePropertiesFile() throws Exception {
+    BinaryConfigSnapshot.decode(ByteBuffer.wrap("someKey=someValue\nanotherKey=anotherValue".getBytes()));
+  }
+
+  private Properties someProperties() {
+    Properties properties = new Properties();
+    properties.setProperty("someKey", "someValue");
+    return properties;
+  }
+}
@@ -0,0 +1,93 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigChangeListenerIndexTest {
+  private ConfigChangeListenerIndex listenerIndex;
+
+  @Before
+  public void setUp() throws Exception {
+    listenerIndex = new ConfigChangeListenerIndex();
+  }
+
+  @Test
+  public void testGetInterestedListeners() throws Exception {
+    ConfigChangeListener someListener = new MockListener();
+    ConfigChangeListener anotherListener = new MockListener();
+    ConfigChangeListener yetAnotherListener = new MockListener();
+    ConfigChangeListener unconditionalListener = new MockListener();
+
+    listenerIndex.add(someListener, Sets.newHashSet("someKey"), null);
+    listenerIndex.add(anotherListener, null, Sets.newHashSet("some.prefix.", "another"));
+    listenerIndex.add(unconditionalListener, null, null);
+    listenerIndex.add(yetAnotherListener, Sets.newHashSet("yetAnotherKey"), Sets.newHashSet("some."));
+
+    assertEquals(Lists.newArrayList(someListener, anotherListener, unconditionalListener),
+        listenerIndex.getInterestedListeners(Sets.newHashSet("someKey", "anotherKey")));
+    assertEquals(Lists.newArrayList(anotherListener, unconditionalListener, yetAnotherListener),
+        listenerIndex.getInterestedListeners(Collections.singleton("some.prefix.key")));
+    assertEquals(Lists.newArrayList(unconditionalListener, yetAnotherListener),
+        listenerIndex.getInterestedListeners(Sets.newHashSet("some.", "yetAnotherKey")));
+    assertEquals(Lists.newArrayList(unconditionalListener),
+        listenerIndex.getInterestedListeners(Sets.newHashSet("some", "someKey2", "prefix")));
+  }
+
+  @Test
+  public void testAddSameListenerTwice() throws Exception {
+    ConfigChangeListener someListener = new MockListener();
+
+    assertTrue(listenerIndex.add(someListener, Sets.newHashSet("someKey"), null));
+    assertFalse(listenerIndex.add(someListener, null, null));
+
+    assertEquals(Collections.emptyList(),
+        listenerIndex.getInterestedListeners(Collections.singleton("anotherKey")));
+  }
+
+  @Test
+  public void testEmptyPrefixMatchesAllKeys() throws Exception {
+    ConfigChangeListener someListener = new MockListener();
+
+    listenerIndex.add(someListener, Collections.<String>emptySet(), Sets.newHashSet(""));
+
+    assertEquals(Lists.newArrayList(someListener),
+        listenerIndex.getInterestedListeners(Collections.singleton("anyKey")));
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    ConfigChangeListener someListener = new MockListener();
+    ConfigChangeListener anotherListener = new MockListener();
+
+    listenerIndex.add(someListener, Sets.newHashSet("someKey"), Sets.newHashSet("some.prefix"));
+    listenerIndex.add(anotherListener, null, Sets.newHashSet("some."));
+
+    assertTrue(listenerIndex.remove(someListener));
+    assertFalse(listenerIndex.remove(someListener));
+
+    List<ConfigChangeListener> listeners =
+        listenerIndex.getInterestedListeners(Sets.newHashSet("someKey", "some.prefix.key"));
+    assertEquals(Lists.newArrayList(anotherListener), listeners);
+
+    assertTrue(listenerIndex.remove(anotherListener));
+    assertEquals(Collections.emptyList(),
+        listenerIndex.getInterestedListeners(Collections.singleton("some.prefix.key")));
+  }
+
+  private static class MockListener implements ConfigChangeListener {
+    @Override
+    public void onChange(ConfigChangeEvent changeEvent) {
+    }
+  }
+}
@@ -129,6 +129,82 @@ public class DefaultConfigTest {
     assertEquals(someSourceType, defaultConfig.getSourceType());
   }
 
+  @Test
+  public void testGetPropertyWithPrecomputedProperties() throws Exception {
+    String someKey = "someKey";
+    String someSystemPropertyValue = "system-property-value";
+    String anotherSystemPropertyValue = "another-system-property-value";
+
+    String anotherKey = "anotherKey";
+    String someLocalFileValue = "local-file-value";
+    String anotherLocalFileValue = "another-local-file-value";
+
+    String lastKey = "lastKey";
+    String someResourceValue = "resource-value";
+
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithPrecomputedProperties());
+
+    System.setProperty(someKey, someSystemPropertyValue);
+
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, someLocalFileValue);
+    someProperties.setProperty(anotherKey, someLocalFileValue);
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    File resourceFile = new File(someResourceDir, someNamespace + ".properties");
+    Files.write(lastKey + "=" + someResourceValue, resourceFile, Charsets.UTF_8);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    try {
+      assertEquals(someSystemPropertyValue, defaultConfig.getProperty(someKey, null));
+      assertEquals(someLocalFileValue, defaultConfig.getProperty(anotherKey, null));
+      assertEquals(someResourceValue, defaultConfig.getProperty(lastKey, null));
+
+      //system properties are only read again after refresh
+      System.setProperty(someKey, anotherSystemPropertyValue);
+      assertEquals(someSystemPropertyValue, defaultConfig.getProperty(someKey, null));
+
+      DefaultConfig.refreshLayeredProperties();
+      assertEquals(anotherSystemPropertyValue, defaultConfig.getProperty(someKey, null));
+    } finally {
+      System.clearProperty(someKey);
+    }
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(anotherKey, anotherLocalFileValue);
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertEquals(anotherLocalFileValue, defaultConfig.getProperty(anotherKey, null));
+    assertEquals(someResourceValue, defaultConfig.getProperty(lastKey, null));
+  }
+
+  @Test
+  public void testGetIntPropertyWithPrecomputedPropertiesAndRefresh() throws Exception {
+    String someKey = "someKey";
+    Integer someDefaultValue = -1;
+
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithPrecomputedProperties());
+    when(configRepository.getConfig()).thenReturn(new Properties());
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    System.setProperty(someKey, "1");
+    try {
+      DefaultConfig.refreshLayeredProperties();
+      assertEquals(Integer.valueOf(1), defaultConfig.getIntProperty(someKey, someDefaultValue));
+
+      System.setProperty(someKey, "2");
+      DefaultConfig.refreshLayeredProperties();
+      //the parsed value is cleared as well
+      assertEquals(Integer.valueOf(2), defaultConfig.getIntProperty(someKey, someDefaultValue));
+    } finally {
+      System.clearProperty(someKey);
+    }
+  }
+
   @Test
   public void testGetIntProperty() throws Exception {
     String someStringKey = "someStringKey";
@@ -226,6 +302,7 @@ public class DefaultConfigTest {
 
     verify(someProperties, times(1)).getProperty(someKey);
 
+    //the cache is full, so some key is evicted
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
 
@@ -237,33 +314,26 @@ public class DefaultConfigTest {
   }
 
   @Test
-  public void testGetIntPropertyMultipleTimesWithShortExpireTime() throws Exception {
+  public void testGetPropertiesOfDifferentTypesWithSameKey() throws Exception {
     String someKey = "someKey";
-    Integer someValue = 2;
-
-    Integer someDefaultValue = -1;
-
-    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithShortExpireTime());
+    String someValue = "2";
 
     //set up config repo
     someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
+    when(someProperties.getProperty(someKey)).thenReturn(someValue);
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
         new DefaultConfig(someNamespace, configRepository);
 
-    assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
-    assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
-
-    verify(someProperties, times(1)).getProperty(someKey);
-
-    TimeUnit.MILLISECONDS.sleep(50);
-
-    assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
-    assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
+    assertEquals(Integer.valueOf(2), defaultConfig.getIntProperty(someKey, -1));
+    assertEquals(Long.valueOf(2), defaultConfig.getLongProperty(someKey, -1L));
+    assertArrayEquals(new String[]{someValue}, defaultConfig.getArrayProperty(someKey, ",", null));
+    assertEquals(Integer.valueOf(2), defaultConfig.getIntProperty(someKey, -1));
+    assertEquals(Long.valueOf(2), defaultConfig.getLongProperty(someKey, -1L));
+    assertArrayEquals(new String[]{someValue}, defaultConfig.getArrayProperty(someKey, ",", null));
 
-    verify(someProperties, times(2)).getProperty(someKey);
+    verify(someProperties, times(3)).getProperty(someKey);
   }
 
   @Test
@@ -670,6 +740,55 @@ public class DefaultConfigTest {
     assertEquals(anotherSourceType, defaultConfig.getSourceType());
   }
 
+  @Test
+  public void testOnRepositoryChangeWithSingleKeyChangeInLargeNamespace() throws Exception {
+    int someSize = 10000;
+    String someKey = "someKey";
+    String someValue = "someValue";
+    String someNewValue = "someNewValue";
+
+    someProperties = new Properties();
+    for (int i = 0; i < someSize; i++) {
+      someProperties.setProperty("key" + i, "value" + i);
+    }
+    someProperties.setProperty(someKey, someValue);
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    final List<ConfigChangeEvent> changeEvents = Lists.newCopyOnWriteArrayList();
+    final SettableFuture<ConfigChangeEvent> configChangeFuture = SettableFuture.create();
+    defaultConfig.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        changeEvents.add(changeEvent);
+        configChangeFuture.set(changeEvent);
+      }
+    });
+
+    Properties sameProperties = new Properties();
+    sameProperties.putAll(someProperties);
+    defaultConfig.onRepositoryChange(someNamespace, sameProperties);
+
+    Properties newProperties = new Properties();
+    newProperties.putAll(someProperties);
+    newProperties.setProperty(someKey, someNewValue);
+    //non-string entries are ignored
+    newProperties.put(someKey + "Object", new Object());
+    defaultConfig.onRepositoryChange(someNamespace, newProperties);
+
+    ConfigChangeEvent changeEvent = configChangeFuture.get(500, TimeUnit.MILLISECONDS);
+
+    assertEquals(1, changeEvents.size());
+    assertEquals(Collections.singleton(someKey), changeEvent.changedKeys());
+    ConfigChange someKeyChange = changeEvent.getChange(someKey);
+    assertEquals(someValue, someKeyChange.getOldValue());
+    assertEquals(someNewValue, someKeyChange.getNewValue());
+    assertEquals(PropertyChangeType.MODIFIED, someKeyChange.getChangeType());
+    assertEquals(someNewValue, defaultConfig.getProperty(someKey, null));
+  }
+
   @Test
   public void testFireConfigChangeWithInterestedKeys() throws Exception {
     String someKeyChanged = "someKeyChanged";
@@ -912,15 +1031,10 @@ public class DefaultConfigTest {
     }
   }
 
-  public static class MockConfigUtilWithShortExpireTime extends MockConfigUtil {
+  public static class MockConfigUtilWithPrecomputedProperties extends MockConfigUtil {
     @Override
-    public long getConfigCacheExpireTime() {
-      return 50;
-    }
-
-    @Override
-    public TimeUnit getConfigCacheExpireTimeUnit() {
-      return TimeUnit.MILLISECONDS;
+    public boolean isPrecomputedPropertiesEnabled() {
+      return true;
     }
   }
 }
@@ -2,7 +2,9 @@ package com.ctrip.framework.apollo.internals;
 
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -14,6 +16,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -83,6 +86,10 @@ public class LocalFileConfigRepositoryTest {
         .join(someAppId, someCluster, someNamespace));
   }
 
+  private String assembleLocalSnapshotFileName() {
+    return String.format("%s.snapshot", Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someCluster, someNamespace));
+  }
 
   @Test
   public void testLoadConfigWithLocalFile() throws Exception {
@@ -184,6 +191,62 @@ public class LocalFileConfigRepositoryTest {
     assertEquals(anotherSourceType, localFileConfigRepository.getSourceType());
   }
 
+  @Test
+  public void testPersistAndLoadBinarySnapshot() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithBinarySnapshot());
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, false);
+    localRepo.setUpstreamRepository(upstreamRepo);
+
+    //written by the background thread
+    localRepo.awaitPersistLocalSnapshotFile(5, TimeUnit.SECONDS);
+
+    assertTrue(new File(someBaseDir, assembleLocalSnapshotFileName()).isFile());
+    //the properties file is kept up to date as well
+    assertTrue(new File(someBaseDir, assembleLocalCacheFileName()).isFile());
+
+    LocalFileConfigRepository anotherLocalRepoWithNoFallback = new LocalFileConfigRepository(someNamespace);
+    anotherLocalRepoWithNoFallback.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(someProperties, anotherLocalRepoWithNoFallback.getConfig());
+    assertEquals(ConfigSourceType.LOCAL, anotherLocalRepoWithNoFallback.getSourceType());
+  }
+
+  @Test
+  public void testPersistBinarySnapshotToTheDirWhenScheduled() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithBinarySnapshot());
+    File anotherBaseDir = new File(someBaseDir, "another");
+    anotherBaseDir.mkdir();
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, false);
+    localRepo.setUpstreamRepository(upstreamRepo);
+    localRepo.setLocalCacheDir(anotherBaseDir, false);
+
+    localRepo.awaitPersistLocalSnapshotFile(5, TimeUnit.SECONDS);
+
+    assertTrue(new File(someBaseDir, assembleLocalSnapshotFileName()).isFile());
+    assertFalse(new File(anotherBaseDir, assembleLocalSnapshotFileName()).exists());
+  }
+
+  @Test
+  public void testLoadCorruptedBinarySnapshotFallbackToPropertiesFile() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithBinarySnapshot());
+
+    String someKey = "someKey";
+    String someValue = "someValue";
+    Properties someProperties = new Properties();
+    someProperties.setProperty(someKey, someValue);
+    createLocalCachePropertyFile(someProperties);
+    Files.write("corrupted", new File(someBaseDir, assembleLocalSnapshotFileName()), Charsets.UTF_8);
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(someValue, localRepo.getConfig().getProperty(someKey));
+  }
+
   public static class MockConfigUtil extends ConfigUtil {
     @Override
     public String getAppId() {
@@ -196,6 +259,19 @@ public class LocalFileConfigRepositoryTest {
     }
   }
 
+  public static class MockConfigUtilWithBinarySnapshot extends MockConfigUtil {
+    @Override
+    public boolean isLocalCacheBinarySnapshotEnabled() {
+      return true;
+    }
+
+    //keep the default cache dir under the test dir, which is cleaned after each test
+    @Override
+    public String getDefaultLocalCacheDir() {
+      return "src/test/resources";
+    }
+  }
+
   private File createLocalCachePropertyFile(Properties properties) throws IOException {
     File file = new File(someBaseDir, assembleLocalCacheFileName());
     FileOutputStream in = null;
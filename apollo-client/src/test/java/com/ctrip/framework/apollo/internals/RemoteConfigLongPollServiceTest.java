@@ -495,6 +495,12 @@ public class RemoteConfigLongPollServiceTest {
     public long getLongPollingInitialDelayInMills() {
       return 0;
     }
+
+    @Override
+    public boolean isBatchConfigFetchEnabled() {
+      //notify the mocked repositories one by one
+      return false;
+    }
   }
 
 }
@@ -1,7 +1,9 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.atLeast;
@@ -18,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -29,6 +32,7 @@ import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
@@ -36,6 +40,7 @@ import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.http.HttpRequest;
 import com.ctrip.framework.apollo.util.http.HttpResponse;
@@ -110,6 +115,75 @@ public class RemoteConfigRepositoryTest {
     remoteConfigLongPollService.stopLongPollingRefresh();
   }
 
+  @Test
+  public void testLoadConfigWithDelta() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue", "anotherKey", "anotherValue",
+        "yetAnotherKey", "yetAnotherValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    ApolloConfig someDelta = new ApolloConfig(someApolloConfig.getAppId(), someApolloConfig.getCluster(),
+        someNamespace, "2");
+    someDelta.setBaseReleaseKey(someApolloConfig.getReleaseKey());
+    someDelta.setConfigurations(ImmutableMap.of("someKey", "someNewValue", "newKey", "newValue"));
+    someDelta.setDeletedKeys(Lists.newArrayList("anotherKey"));
+    when(someResponse.getBody()).thenReturn(someDelta);
+
+    remoteConfigRepository.sync();
+
+    final ArgumentCaptor<HttpRequest> httpRequestArgumentCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(2)).doGet(httpRequestArgumentCaptor.capture(), eq(ApolloConfig.class));
+    assertTrue(httpRequestArgumentCaptor.getValue().getUrl().contains("delta=true"));
+
+    Map<String, String> expected = ImmutableMap.of("someKey", "someNewValue", "yetAnotherKey", "yetAnotherValue",
+        "newKey", "newValue");
+    assertEquals(expected, remoteConfigRepository.getConfig());
+  }
+
+  @Test
+  public void testLoadConfigWithDeadline() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(assembleApolloConfig(configurations));
+    int someRemainingTime = 100;
+
+    RemoteConfigRepository remoteConfigRepository;
+    RemoteConfigRepository.setLoadConfigDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(someRemainingTime));
+    try {
+      remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+      remoteConfigLongPollService.stopLongPollingRefresh();
+
+      //the request doesn't outlive the deadline
+      ArgumentCaptor<HttpRequest> httpRequestArgumentCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+      verify(httpUtil, times(1)).doGet(httpRequestArgumentCaptor.capture(), eq(ApolloConfig.class));
+      assertTrue(httpRequestArgumentCaptor.getValue().getReadTimeout() <= someRemainingTime);
+      assertTrue(httpRequestArgumentCaptor.getValue().getConnectTimeout() <= someRemainingTime);
+
+      TimeUnit.MILLISECONDS.sleep(someRemainingTime);
+
+      //exceeded, so it fails without requesting the config service
+      try {
+        remoteConfigRepository.sync();
+        fail();
+      } catch (ApolloConfigException ex) {
+        //expected
+      }
+      verify(httpUtil, times(1)).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+    } finally {
+      RemoteConfigRepository.clearLoadConfigDeadline();
+    }
+
+    //later loads are not bounded
+    remoteConfigRepository.sync();
+    verify(httpUtil, times(2)).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+    assertEquals(configurations, remoteConfigRepository.getConfig());
+  }
+
   @Test(expected = ApolloConfigException.class)
   public void testGetRemoteConfigWithServerError() throws Exception {
 
@@ -205,6 +279,117 @@ public class RemoteConfigRepositoryTest {
     assertTrue(request.getUrl().contains("messages=%7B%22details%22%3A%7B%22someKey%22%3A1%7D%7D"));
   }
 
+  @Test
+  public void testBatchLoadConfigOnLongPollNotified() throws Exception {
+    String anotherNamespace = "anotherName";
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    final SettableFuture<HttpRequest> batchRequest = SettableFuture.create();
+    final HttpResponse<List<ApolloConfig>> batchResponse = mock(HttpResponse.class);
+    ApolloConfig anotherApolloConfig = new ApolloConfig("appId", "cluster", anotherNamespace, "2");
+    anotherApolloConfig.setConfigurations(ImmutableMap.of("someKey", "anotherValue"));
+    when(batchResponse.getStatusCode()).thenReturn(200);
+    when(batchResponse.getBody()).thenReturn(Lists.newArrayList(anotherApolloConfig));
+    doAnswer(new Answer<HttpResponse<?>>() {
+      @Override
+      public HttpResponse<?> answer(InvocationOnMock invocation) throws Throwable {
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        if (request.getUrl().contains("configs/batch")) {
+          batchRequest.set(request);
+          return batchResponse;
+        }
+        TimeUnit.MILLISECONDS.sleep(50);
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), any(Type.class));
+
+    RemoteConfigRepository someRepository = new RemoteConfigRepository(someNamespace);
+    RemoteConfigRepository anotherRepository = new RemoteConfigRepository(anotherNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    final SettableFuture<Properties> anotherRepositoryChanged = SettableFuture.create();
+    anotherRepository.addChangeListener(new RepositoryChangeListener() {
+      @Override
+      public void onRepositoryChange(String namespace, Properties newProperties) {
+        anotherRepositoryChanged.set(newProperties);
+      }
+    });
+    ServiceDTO someServiceDTO = mock(ServiceDTO.class);
+    when(someServiceDTO.getHomepageUrl()).thenReturn(someServerUrl);
+    Map<RemoteConfigRepository, ApolloNotificationMessages> notified = Maps.newLinkedHashMap();
+    notified.put(someRepository, null);
+    notified.put(anotherRepository, null);
+
+    RemoteConfigRepository.onBatchLongPollNotified(someServiceDTO, notified);
+
+    assertEquals(ImmutableMap.of("someKey", "anotherValue"), anotherRepositoryChanged.get(5, TimeUnit.SECONDS));
+    String url = batchRequest.get(5, TimeUnit.SECONDS).getUrl();
+    assertTrue(url.startsWith(someServerUrl + "/configs/batch?"));
+    assertTrue(url.contains(someNamespace) && url.contains(anotherNamespace));
+    //not modified namespaces keep their configs and are not loaded again
+    assertEquals(configurations, someRepository.getConfig());
+    verify(httpUtil, times(2)).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+  }
+
+  @Test
+  public void testBatchConfigFetchTurnedOffWhenNotSupported() throws Exception {
+    String anotherNamespace = "anotherName";
+    ApolloConfig someApolloConfig = assembleApolloConfig(ImmutableMap.of("someKey", "someValue"));
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    final AtomicInteger batchRequests = new AtomicInteger();
+    doAnswer(new Answer<HttpResponse<?>>() {
+      @Override
+      public HttpResponse<?> answer(InvocationOnMock invocation) throws Throwable {
+        HttpRequest request = invocation.getArgumentAt(0, HttpRequest.class);
+        if (request.getUrl().contains("configs/batch")) {
+          batchRequests.incrementAndGet();
+          throw new ApolloConfigStatusCodeException(404, "not found");
+        }
+        TimeUnit.MILLISECONDS.sleep(50);
+        return pollResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), any(Type.class));
+
+    RemoteConfigRepository someRepository = new RemoteConfigRepository(someNamespace);
+    RemoteConfigRepository anotherRepository = new RemoteConfigRepository(anotherNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    final SettableFuture<Properties> anotherRepositoryChanged = SettableFuture.create();
+    anotherRepository.addChangeListener(new RepositoryChangeListener() {
+      @Override
+      public void onRepositoryChange(String namespace, Properties newProperties) {
+        anotherRepositoryChanged.set(newProperties);
+      }
+    });
+    ApolloConfig anotherApolloConfig = new ApolloConfig("appId", "cluster", anotherNamespace, "2");
+    anotherApolloConfig.setConfigurations(ImmutableMap.of("someKey", "anotherValue"));
+    when(someResponse.getBody()).thenReturn(anotherApolloConfig);
+
+    ServiceDTO someServiceDTO = mock(ServiceDTO.class);
+    when(someServiceDTO.getHomepageUrl()).thenReturn(someServerUrl);
+    Map<RemoteConfigRepository, ApolloNotificationMessages> notified = Maps.newLinkedHashMap();
+    notified.put(someRepository, null);
+    notified.put(anotherRepository, null);
+
+    try {
+      RemoteConfigRepository.onBatchLongPollNotified(someServiceDTO, notified);
+
+      //synced one by one instead
+      assertEquals(ImmutableMap.of("someKey", "anotherValue"), anotherRepositoryChanged.get(5, TimeUnit.SECONDS));
+      assertEquals(1, batchRequests.get());
+      assertFalse(RemoteConfigRepository.isBatchConfigFetchSupported());
+    } finally {
+      ReflectionTestUtils.setField(RemoteConfigRepository.class, "m_batchConfigFetchSupported", true);
+    }
+  }
+
   @Test
   public void testAssembleQueryConfigUrl() throws Exception {
     Gson gson = new Gson();
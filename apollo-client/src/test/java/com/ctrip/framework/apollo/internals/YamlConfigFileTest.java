@@ -1,6 +1,8 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.ctrip.framework.apollo.build.MockInjector;
@@ -150,6 +152,31 @@ public class YamlConfigFileTest {
     assertSame(anotherYamlProperties, configFile.asProperties());
   }
 
+  @Test
+  public void testOnRepositoryChangeWithSameContent() throws Exception {
+    Properties someProperties = new Properties();
+    String key = ConfigConsts.CONFIG_FILE_CONTENT_KEY;
+    String someValue = "someKey: 'someValue'";
+    someProperties.setProperty(key, someValue);
+
+    Properties someYamlProperties = new Properties();
+    someYamlProperties.setProperty("someKey", "someValue");
+
+    when(configRepository.getConfig()).thenReturn(someProperties);
+    when(yamlParser.yamlToProperties(someValue)).thenReturn(someYamlProperties);
+
+    YamlConfigFile configFile = new YamlConfigFile(someNamespace, configRepository);
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(key, new String(someValue));
+    anotherProperties.setProperty("someOtherKey", "someOtherValue");
+
+    configFile.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertSame(someYamlProperties, configFile.asProperties());
+    verify(yamlParser, times(1)).yamlToProperties(someValue);
+  }
+
   @Test
   public void testWhenConfigRepositoryHasErrorAndThenRecovered() throws Exception {
     Properties someProperties = new Properties();
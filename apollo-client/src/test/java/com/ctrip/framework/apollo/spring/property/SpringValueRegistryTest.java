@@ -0,0 +1,69 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanFactory;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class SpringValueRegistryTest {
+  private SpringValueRegistry springValueRegistry;
+  private BeanFactory someBeanFactory;
+  private Field someField;
+
+  @Before
+  public void setUp() throws Exception {
+    springValueRegistry = new SpringValueRegistry();
+    someBeanFactory = mock(BeanFactory.class);
+    someField = SomeBean.class.getDeclaredField("someValue");
+  }
+
+  @Test
+  public void testRegisterAndGet() throws Exception {
+    String someKey = "someKey";
+    SomeBean someBean = new SomeBean();
+    SpringValue someSpringValue = new SpringValue(someKey, "${someKey}", someBean, "someBean", someField, false);
+    SpringValue anotherSpringValue = new SpringValue(someKey, "${someKey:default}", new SomeBean(), "anotherBean",
+        someField, false);
+
+    springValueRegistry.register(someBeanFactory, someKey, someSpringValue);
+    springValueRegistry.register(someBeanFactory, someKey, anotherSpringValue);
+
+    Collection<SpringValue> springValues = springValueRegistry.get(someBeanFactory, someKey);
+    assertTrue(springValues.contains(someSpringValue));
+    assertNull(springValueRegistry.get(someBeanFactory, "anotherKey"));
+    assertNull(springValueRegistry.get(mock(BeanFactory.class), someKey));
+  }
+
+  @Test
+  public void testCleanUpGarbageCollectedBeans() throws Exception {
+    String someKey = "someKey";
+    SomeBean someBean = new SomeBean();
+    springValueRegistry.register(someBeanFactory, someKey,
+        new SpringValue(someKey, "${someKey}", someBean, "someBean", someField, false));
+    springValueRegistry.register(someBeanFactory, someKey,
+        new SpringValue(someKey, "${someKey}", new SomeBean(), "anotherBean", someField, false));
+
+    Collection<SpringValue> springValues = springValueRegistry.get(someBeanFactory, someKey);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (springValues.size() > 1 && System.currentTimeMillis() < deadline) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(10);
+      springValueRegistry.cleanUp();
+    }
+
+    assertEquals(1, springValues.size());
+    assertEquals(someBean, springValues.iterator().next().getBean());
+  }
+
+  private static class SomeBean {
+    private String someValue;
+  }
+}
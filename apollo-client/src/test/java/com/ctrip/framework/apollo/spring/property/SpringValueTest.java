@@ -0,0 +1,131 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class SpringValueTest {
+
+  @Test
+  public void testUpdatePrivateField() throws Exception {
+    SomeBean someBean = new SomeBean();
+    Field field = SomeBean.class.getDeclaredField("someString");
+    SpringValue springValue = new SpringValue("someKey", "${someKey}", someBean, "someBean", field, false);
+
+    springValue.update("someValue");
+    springValue.update("anotherValue");
+
+    assertEquals("anotherValue", someBean.someString);
+    assertFalse(field.isAccessible());
+  }
+
+  @Test
+  public void testUpdatePrimitiveField() throws Exception {
+    SomeBean someBean = new SomeBean();
+    SpringValue springValue = new SpringValue("someKey", "${someKey}", someBean, "someBean",
+        SomeBean.class.getDeclaredField("someInt"), false);
+
+    springValue.update(10);
+
+    assertEquals(10, someBean.someInt);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdateFieldWithWrongType() throws Exception {
+    SpringValue springValue = new SpringValue("someKey", "${someKey}", new SomeBean(), "someBean",
+        SomeBean.class.getDeclaredField("someInt"), false);
+
+    springValue.update("notAnInt");
+  }
+
+  @Test
+  public void testUpdatePrivateMethod() throws Exception {
+    SomeBean someBean = new SomeBean();
+    Method method = SomeBean.class.getDeclaredMethod("setSomeString", String.class);
+    SpringValue springValue = new SpringValue("someKey", "${someKey}", someBean, "someBean", method, false);
+
+    springValue.update("someValue");
+
+    assertEquals("someValue", someBean.someString);
+    assertFalse(method.isAccessible());
+  }
+
+  @Test
+  public void testUpdateMethodThrowingException() throws Exception {
+    SpringValue springValue = new SpringValue("someKey", "${someKey}", new SomeBean(), "someBean",
+        SomeBean.class.getDeclaredMethod("setFailure", String.class), false);
+
+    try {
+      springValue.update("someValue");
+    } catch (InvocationTargetException ex) {
+      assertSame(SomeBean.FAILURE, ex.getCause());
+      return;
+    }
+    throw new AssertionError("InvocationTargetException is expected");
+  }
+
+  @Test
+  public void testUpdateStaticField() throws Exception {
+    SpringValue springValue = new SpringValue("someKey", "${someKey}", new SomeBean(), "someBean",
+        SomeBean.class.getDeclaredField("someStaticString"), false);
+
+    springValue.update("someValue");
+
+    assertEquals("someValue", SomeBean.someStaticString);
+  }
+
+  @Test
+  public void testUpdateStaticMethod() throws Exception {
+    SpringValue springValue = new SpringValue("someKey", "${someKey}", new SomeBean(), "someBean",
+        SomeBean.class.getDeclaredMethod("setSomeStaticString", String.class), false);
+
+    springValue.update("anotherValue");
+
+    assertEquals("anotherValue", SomeBean.someStaticString);
+  }
+
+  @Test
+  public void testSetterIsSharedByBeansOfTheSameClass() throws Exception {
+    SomeBean someBean = new SomeBean();
+    SomeBean anotherBean = new SomeBean();
+    SpringValue someSpringValue = new SpringValue("someKey", "${someKey}", someBean, "someBean",
+        SomeBean.class.getDeclaredField("someString"), false);
+    SpringValue anotherSpringValue = new SpringValue("someKey", "${someKey}", anotherBean, "anotherBean",
+        SomeBean.class.getDeclaredField("someString"), false);
+
+    someSpringValue.update("someValue");
+    anotherSpringValue.update("anotherValue");
+
+    assertEquals("someValue", someBean.someString);
+    assertEquals("anotherValue", anotherBean.someString);
+    assertSame(ReflectionTestUtils.getField(someSpringValue, "setter"),
+        ReflectionTestUtils.getField(anotherSpringValue, "setter"));
+  }
+
+  private static class SomeBean {
+    private static final IllegalStateException FAILURE = new IllegalStateException("failure");
+    private static String someStaticString;
+
+    private static void setSomeStaticString(String value) {
+      someStaticString = value;
+    }
+
+    private String someString;
+    private int someInt;
+
+    private void setSomeString(String someString) {
+      this.someString = someString;
+    }
+
+    private void setFailure(String value) {
+      throw FAILURE;
+    }
+  }
+}
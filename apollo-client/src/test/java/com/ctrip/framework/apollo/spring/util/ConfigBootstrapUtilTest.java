@@ -0,0 +1,114 @@
+package com.ctrip.framework.apollo.spring.util;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigFile;
+import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.enums.ConfigSourceType;
+import com.ctrip.framework.apollo.internals.ConfigManager;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConfigBootstrapUtilTest {
+  private MockConfigManager configManager;
+
+  @Before
+  public void setUp() throws Exception {
+    resetConfigService();
+    MockInjector.reset();
+    configManager = new MockConfigManager();
+    MockInjector.setInstance(ConfigManager.class, configManager);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    resetConfigService();
+    MockInjector.reset();
+  }
+
+  @Test
+  public void testPreloadConfigsInParallel() throws Exception {
+    long someLoadingTime = 200;
+    configManager.loadingTimeInMills = someLoadingTime;
+    Set<String> someNamespaces = Sets.newHashSet("someNamespace", "anotherNamespace", "yetAnotherNamespace");
+
+    long start = System.currentTimeMillis();
+    Map<String, Long> loadingTimes = ConfigBootstrapUtil.preloadConfigs(
+        Lists.newArrayList(someNamespaces), 5000);
+    long elapsed = System.currentTimeMillis() - start;
+
+    assertEquals(someNamespaces, loadingTimes.keySet());
+    assertEquals(someNamespaces, configManager.loadedNamespaces);
+    for (Long loadingTime : loadingTimes.values()) {
+      assertTrue(loadingTime >= someLoadingTime);
+    }
+    assertTrue(elapsed < someLoadingTime * someNamespaces.size());
+  }
+
+  @Test
+  public void testPreloadConfigsExceedingDeadline() throws Exception {
+    configManager.loadingTimeInMills = 500;
+    //what the local file fallback reports when the remote load misses the deadline
+    configManager.sourceType = ConfigSourceType.LOCAL;
+
+    long start = System.currentTimeMillis();
+    Map<String, Long> loadingTimes = ConfigBootstrapUtil.preloadConfigs(
+        Lists.newArrayList("someNamespace", "anotherNamespace"), 10);
+
+    assertTrue(loadingTimes.isEmpty());
+    assertTrue(System.currentTimeMillis() - start < 500 * 2);
+  }
+
+  @Test
+  public void testPreloadSingleNamespace() throws Exception {
+    Map<String, Long> loadingTimes = ConfigBootstrapUtil.preloadConfigs(
+        Lists.newArrayList("someNamespace", "someNamespace"), 5000);
+
+    assertTrue(loadingTimes.isEmpty());
+    assertTrue(configManager.loadedNamespaces.isEmpty());
+  }
+
+  private void resetConfigService() throws Exception {
+    Method reset = ConfigService.class.getDeclaredMethod("reset");
+    reset.setAccessible(true);
+    reset.invoke(null);
+  }
+
+  private static class MockConfigManager implements ConfigManager {
+    private final Set<String> loadedNamespaces = Sets.newConcurrentHashSet();
+    private volatile long loadingTimeInMills;
+    private volatile ConfigSourceType sourceType = ConfigSourceType.REMOTE;
+
+    @Override
+    public Config getConfig(String namespace) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(loadingTimeInMills);
+      } catch (InterruptedException ex) {
+        //ignore
+      }
+      loadedNamespaces.add(namespace);
+      Config config = mock(Config.class);
+      when(config.getSourceType()).thenReturn(sourceType);
+      return config;
+    }
+
+    @Override
+    public ConfigFile getConfigFile(String namespace, ConfigFileFormat configFileFormat) {
+      return null;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.util;
 
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.enums.ExecutionMode;
 
 import java.io.File;
 import org.junit.After;
@@ -27,6 +28,12 @@ public class ConfigUtilTest {
     System.clearProperty("apollo.longPollingInitialDelayInMills");
     System.clearProperty("apollo.autoUpdateInjectedSpringProperties");
     System.clearProperty("apollo.cacheDir");
+    System.clearProperty("apollo.configDelta.enabled");
+    System.clearProperty("apollo.executionMode");
+    System.clearProperty("apollo.listenerExecutor.threads");
+    System.clearProperty("apollo.listenerExecutor.queueCapacity");
+    System.clearProperty("apollo.precomputedProperties.enabled");
+    System.clearProperty("apollo.localCache.binarySnapshot.enabled");
   }
 
   @Test
@@ -191,6 +198,66 @@ public class ConfigUtilTest {
         configUtil.isAutoUpdateInjectedSpringPropertiesEnabled());
   }
 
+  @Test
+  public void testCustomizeConfigDeltaEnabled() throws Exception {
+    System.setProperty("apollo.configDelta.enabled", "false");
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertFalse(configUtil.isConfigDeltaEnabled());
+  }
+
+  @Test
+  public void testCustomizeExecutionMode() throws Exception {
+    System.setProperty("apollo.executionMode", "shared");
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertEquals(ExecutionMode.SHARED, configUtil.getExecutionMode());
+  }
+
+  @Test
+  public void testCustomizeInvalidExecutionMode() throws Exception {
+    System.setProperty("apollo.executionMode", "someInvalidMode");
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertEquals(ExecutionMode.DEDICATED, configUtil.getExecutionMode());
+  }
+
+  @Test
+  public void testCustomizeListenerExecutor() throws Exception {
+    int someThreads = 3;
+    int someQueueCapacity = 10;
+    System.setProperty("apollo.listenerExecutor.threads", String.valueOf(someThreads));
+    System.setProperty("apollo.listenerExecutor.queueCapacity", String.valueOf(someQueueCapacity));
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertEquals(someThreads, configUtil.getListenerExecutorThreads());
+    assertEquals(someQueueCapacity, configUtil.getListenerExecutorQueueCapacity());
+  }
+
+  @Test
+  public void testCustomizePrecomputedPropertiesEnabled() throws Exception {
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertFalse(configUtil.isPrecomputedPropertiesEnabled());
+
+    System.setProperty("apollo.precomputedProperties.enabled", "true");
+
+    assertTrue(new ConfigUtil().isPrecomputedPropertiesEnabled());
+  }
+
+  @Test
+  public void testCustomizeLocalCacheBinarySnapshotEnabled() throws Exception {
+    assertFalse(new ConfigUtil().isLocalCacheBinarySnapshotEnabled());
+
+    System.setProperty("apollo.localCache.binarySnapshot.enabled", "true");
+
+    assertTrue(new ConfigUtil().isLocalCacheBinarySnapshotEnabled());
+  }
+
   @Test
   public void testLocalCacheDirWithSystemProperty() throws Exception {
     String someCacheDir = "someCacheDir";
@@ -0,0 +1,154 @@
+package com.ctrip.framework.apollo.util.concurrent;
+
+import com.ctrip.framework.apollo.enums.ExecutionMode;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ApolloExecutorsTest {
+
+  @Test
+  public void testDedicatedMode() throws Exception {
+    ScheduledExecutorService someExecutor = ApolloExecutors.newScheduledExecutor("some", ExecutionMode.DEDICATED);
+    ScheduledExecutorService anotherExecutor =
+        ApolloExecutors.newScheduledExecutor("another", ExecutionMode.DEDICATED);
+
+    assertNotSame(someExecutor, anotherExecutor);
+
+    someExecutor.shutdown();
+    anotherExecutor.shutdown();
+  }
+
+  @Test
+  public void testSharedMode() throws Exception {
+    ScheduledExecutorService someExecutor = ApolloExecutors.newScheduledExecutor("some", ExecutionMode.SHARED);
+    ScheduledExecutorService anotherExecutor = ApolloExecutors.newScheduledExecutor("another", ExecutionMode.SHARED);
+    ExecutorService longRunningExecutor = ApolloExecutors.newLongRunningExecutor("someLoop", ExecutionMode.SHARED);
+
+    assertSame(someExecutor, anotherExecutor);
+    assertSame(someExecutor, longRunningExecutor);
+  }
+
+  @Test
+  public void testSharedModeWithLongRunningTask() throws Exception {
+    final CountDownLatch blockingLatch = new CountDownLatch(1);
+    ExecutorService longRunningExecutor = ApolloExecutors.newLongRunningExecutor("someLoop", ExecutionMode.SHARED);
+    longRunningExecutor.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          blockingLatch.await();
+        } catch (InterruptedException ex) {
+          //ignore
+        }
+      }
+    });
+
+    final SettableFuture<Boolean> scheduledTaskRun = SettableFuture.create();
+    ApolloExecutors.newScheduledExecutor("some", ExecutionMode.SHARED).schedule(new Runnable() {
+      @Override
+      public void run() {
+        scheduledTaskRun.set(true);
+      }
+    }, 10, TimeUnit.MILLISECONDS);
+
+    assertTrue(scheduledTaskRun.get(5, TimeUnit.SECONDS));
+    blockingLatch.countDown();
+  }
+
+  @Test
+  public void testVirtualModeFallsBackWhenNotSupported() throws Exception {
+    InstrumentedThreadPoolExecutor executor = ApolloExecutors.newListenerExecutor("some", ExecutionMode.VIRTUAL, 1, 1);
+
+    final SettableFuture<Boolean> taskRun = SettableFuture.create();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        taskRun.set(true);
+      }
+    });
+
+    assertTrue(taskRun.get(5, TimeUnit.SECONDS));
+    executor.shutdown();
+  }
+
+  @Test
+  public void testListenerExecutorRunsInCallerWhenSaturated() throws Exception {
+    InstrumentedThreadPoolExecutor executor =
+        ApolloExecutors.newListenerExecutor("some", ExecutionMode.DEDICATED, 1, 1);
+    final CountDownLatch blockingLatch = new CountDownLatch(1);
+    Runnable blockingTask = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          blockingLatch.await();
+        } catch (InterruptedException ex) {
+          //ignore
+        }
+      }
+    };
+    //one running and one queued
+    executor.execute(blockingTask);
+    executor.execute(blockingTask);
+
+    final SettableFuture<Thread> runningThread = SettableFuture.create();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        runningThread.set(Thread.currentThread());
+      }
+    });
+
+    assertSame(Thread.currentThread(), runningThread.get(5, TimeUnit.SECONDS));
+    assertEquals(1, executor.getRejectedTaskCount());
+
+    blockingLatch.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  public void testListenerExecutorQueuesTaskWhenSaturatedInSharedMode() throws Exception {
+    InstrumentedThreadPoolExecutor executor =
+        ApolloExecutors.newListenerExecutor("some", ExecutionMode.SHARED, 1, 1);
+    final CountDownLatch blockingLatch = new CountDownLatch(1);
+    Runnable blockingTask = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          blockingLatch.await();
+        } catch (InterruptedException ex) {
+          //ignore
+        }
+      }
+    };
+    //one running and one queued
+    executor.execute(blockingTask);
+    executor.execute(blockingTask);
+
+    final SettableFuture<Thread> runningThread = SettableFuture.create();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        runningThread.set(Thread.currentThread());
+      }
+    });
+
+    //the submitting thread is not blocked and the task is not lost
+    assertFalse(runningThread.isDone());
+    assertEquals(1, executor.getRejectedTaskCount());
+
+    blockingLatch.countDown();
+    assertNotSame(Thread.currentThread(), runningThread.get(5, TimeUnit.SECONDS));
+    executor.shutdown();
+  }
+}
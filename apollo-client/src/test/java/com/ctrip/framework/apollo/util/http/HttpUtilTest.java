@@ -0,0 +1,140 @@
+package com.ctrip.framework.apollo.util.http;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpUtilTest {
+  private Server server;
+  private String someServerUrl;
+  private HttpUtil httpUtil;
+  private ServiceDTO someServiceDTO;
+  private Gson gson = new Gson();
+  private volatile String lastAcceptEncoding;
+
+  @Before
+  public void setUp() throws Exception {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+
+    someServiceDTO = new ServiceDTO();
+    someServiceDTO.setAppName("someAppName");
+    someServiceDTO.setHomepageUrl("http://someServer");
+
+    server = new Server(0);
+    server.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        int statusCode = Integer.parseInt(target.substring(1));
+        lastAcceptEncoding = request.getHeader("Accept-Encoding");
+        response.setStatus(statusCode);
+        if (statusCode == HttpServletResponse.SC_OK) {
+          response.setContentType("application/json;charset=UTF-8");
+          byte[] body = gson.toJson(Lists.newArrayList(someServiceDTO)).getBytes(StandardCharsets.UTF_8);
+          String encoding = request.getParameter("encoding");
+          OutputStream out = response.getOutputStream();
+          if ("gzip".equals(encoding)) {
+            response.setHeader("Content-Encoding", encoding);
+            out = new GZIPOutputStream(out);
+          } else if ("deflate".equals(encoding)) {
+            response.setHeader("Content-Encoding", encoding);
+            out = new DeflaterOutputStream(out);
+          }
+          out.write(body);
+          out.close();
+        }
+        baseRequest.setHandled(true);
+      }
+    });
+    server.start();
+    someServerUrl = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+
+    httpUtil = new HttpUtil();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void testDoGet() throws Exception {
+    HttpResponse<ServiceDTO[]> response = httpUtil.doGet(new HttpRequest(someServerUrl + "/200"),
+        ServiceDTO[].class);
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals(1, response.getBody().length);
+    assertEquals(someServiceDTO.getHomepageUrl(), response.getBody()[0].getHomepageUrl());
+  }
+
+  @Test
+  public void testDoGetWithGzip() throws Exception {
+    HttpResponse<ServiceDTO[]> response = httpUtil.doGet(
+        new HttpRequest(someServerUrl + "/200?encoding=gzip"), ServiceDTO[].class);
+
+    assertTrue(lastAcceptEncoding.contains("gzip"));
+    assertEquals(200, response.getStatusCode());
+    assertEquals(someServiceDTO.getHomepageUrl(), response.getBody()[0].getHomepageUrl());
+  }
+
+  @Test
+  public void testDoGetWithDeflate() throws Exception {
+    HttpResponse<ServiceDTO[]> response = httpUtil.doGet(
+        new HttpRequest(someServerUrl + "/200?encoding=deflate"), ServiceDTO[].class);
+
+    assertTrue(lastAcceptEncoding.contains("deflate"));
+    assertEquals(200, response.getStatusCode());
+    assertEquals(someServiceDTO.getHomepageUrl(), response.getBody()[0].getHomepageUrl());
+  }
+
+  @Test
+  public void testDoGetWith304() throws Exception {
+    HttpResponse<ServiceDTO[]> response = httpUtil.doGet(new HttpRequest(someServerUrl + "/304"),
+        ServiceDTO[].class);
+
+    assertEquals(304, response.getStatusCode());
+    assertNull(response.getBody());
+  }
+
+  @Test
+  public void testDoGetWith404() throws Exception {
+    try {
+      httpUtil.doGet(new HttpRequest(someServerUrl + "/404"), ServiceDTO[].class);
+      fail();
+    } catch (ApolloConfigStatusCodeException ex) {
+      assertEquals(404, ex.getStatusCode());
+    }
+  }
+
+  @Test(expected = ApolloConfigException.class)
+  public void testDoGetWithConnectionRefused() throws Exception {
+    server.stop();
+
+    httpUtil.doGet(new HttpRequest(someServerUrl + "/200"), ServiceDTO[].class);
+  }
+}
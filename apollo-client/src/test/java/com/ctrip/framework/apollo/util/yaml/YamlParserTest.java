@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.util.yaml;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -37,6 +38,30 @@ public class YamlParserTest {
     testInvalid("case8.yaml");
   }
 
+  @Test
+  public void testParseChangedSectionsOnly() throws Exception {
+    String someSection = "someRoot:\n  someKey: someValue\n  someList:\n  - 1\n  - 2\n";
+    String anotherSection = "# some comment\nanotherRoot:\n  anotherKey: |\n    some text\n";
+    String yetAnotherSection = "yetAnotherKey: 100\n";
+
+    check(someSection + anotherSection + yetAnotherSection);
+    assertEquals(3, parser.sectionCacheStats().missCount());
+
+    check(someSection + anotherSection + "yetAnotherKey: 200\n");
+    assertEquals(4, parser.sectionCacheStats().missCount());
+    assertEquals(2, parser.sectionCacheStats().hitCount());
+  }
+
+  @Test
+  public void testAliasAcrossSections() throws Exception {
+    check("base: &base\n  name: someName\nfoo:\n  <<: *base\n  age: 10\n");
+  }
+
+  @Test(expected = ParserException.class)
+  public void testDuplicateTopLevelKeys() throws Exception {
+    parser.yamlToProperties("someKey: someValue\nanotherKey: anotherValue\nsomeKey: yetAnotherValue\n");
+  }
+
   private void test(String caseName) throws Exception {
     File file = new File("src/test/resources/yaml/" + caseName);
 
@@ -2,18 +2,24 @@ package com.ctrip.framework.apollo.configservice;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
 import com.ctrip.framework.apollo.configservice.controller.ConfigFileController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.DefaultConfigService;
+import com.google.common.collect.Lists;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -52,6 +58,7 @@ public class ConfigServiceAutoConfiguration {
     private final GrayReleaseRulesHolder grayReleaseRulesHolder;
     private final ReleaseMessageServiceWithCache releaseMessageServiceWithCache;
     private final ConfigService configService;
+    private final ConfigResponseCache configResponseCache;
 
     public MessageScannerConfiguration(
         final NotificationController notificationController,
@@ -59,32 +66,39 @@ public class ConfigServiceAutoConfiguration {
         final NotificationControllerV2 notificationControllerV2,
         final GrayReleaseRulesHolder grayReleaseRulesHolder,
         final ReleaseMessageServiceWithCache releaseMessageServiceWithCache,
-        final ConfigService configService) {
+        final ConfigService configService,
+        final ConfigResponseCache configResponseCache) {
       this.notificationController = notificationController;
       this.configFileController = configFileController;
       this.notificationControllerV2 = notificationControllerV2;
       this.grayReleaseRulesHolder = grayReleaseRulesHolder;
       this.releaseMessageServiceWithCache = releaseMessageServiceWithCache;
       this.configService = configService;
+      this.configResponseCache = configResponseCache;
     }
 
     /**
      * 发布信息监听器列表
+     * 相互独立的缓存类监听器并行执行，通知客户端只等待其依赖的缓存刷新完成
      * @return
      */
     @Bean
     public ReleaseMessageScanner releaseMessageScanner() {
       ReleaseMessageScanner releaseMessageScanner = new ReleaseMessageScanner();
       //0. handle release message cache
-      releaseMessageScanner.addMessageListener(releaseMessageServiceWithCache);
+      releaseMessageScanner.addMessageListener(releaseMessageServiceWithCache, Collections.emptyList());
       //1. handle gray release rule
-      releaseMessageScanner.addMessageListener(grayReleaseRulesHolder);
-      //2. handle server cache
-      releaseMessageScanner.addMessageListener(configService);
-      releaseMessageScanner.addMessageListener(configFileController);
-      //3. notify clients
-      releaseMessageScanner.addMessageListener(notificationControllerV2);
-      releaseMessageScanner.addMessageListener(notificationController);
+      releaseMessageScanner.addMessageListener(grayReleaseRulesHolder, Collections.emptyList());
+      //2. handle server cache, config file cache is reloaded through config service, so it must wait for it
+      releaseMessageScanner.addMessageListener(configService, Collections.emptyList());
+      releaseMessageScanner.addMessageListener(configFileController, Lists.newArrayList(configService));
+      //config responses are keyed by release key, so clients never read stale ones and need not wait for it
+      releaseMessageScanner.addMessageListener(configResponseCache, Collections.emptyList());
+      //3. notify clients, after the caches they would read next are refreshed
+      List<ReleaseMessageListener> notificationDependencies =
+          Lists.newArrayList(releaseMessageServiceWithCache, grayReleaseRulesHolder, configFileController);
+      releaseMessageScanner.addMessageListener(notificationControllerV2, notificationDependencies);
+      releaseMessageScanner.addMessageListener(notificationController, notificationDependencies);
       return releaseMessageScanner;
     }
   }
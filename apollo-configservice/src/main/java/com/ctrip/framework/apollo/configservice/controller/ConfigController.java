@@ -1,9 +1,14 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.ReleaseConfigurationCache;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil.ContentEncoding;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
@@ -12,10 +17,14 @@ import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -25,11 +34,18 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -43,9 +59,17 @@ public class ConfigController {
   private final AppNamespaceServiceWithCache appNamespaceService;
   private final NamespaceUtil namespaceUtil;
   private final InstanceConfigAuditUtil instanceConfigAuditUtil;
+  private final ConfigResponseCache configResponseCache;
+  private final ReleaseService releaseService;
+  private final ContentEncodingUtil contentEncodingUtil;
+  private final ReleaseConfigurationCache releaseConfigurationCache;
   private final Gson gson;
 
-  private static final Type configurationTypeReference = new TypeToken<Map<String, String>>() {
+  private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+  private static final String NO_CLIENT_SIDE_RELEASE_KEY = "-1";
+  private static final Splitter RELEASE_KEY_SPLITTER =
+      Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+  private static final Type batchNamespacesTypeReference = new TypeToken<LinkedHashMap<String, String>>() {
       }.getType();
 
   public ConfigController(
@@ -53,34 +77,207 @@ public class ConfigController {
       final AppNamespaceServiceWithCache appNamespaceService,
       final NamespaceUtil namespaceUtil,
       final InstanceConfigAuditUtil instanceConfigAuditUtil,
+      final ConfigResponseCache configResponseCache,
+      final ReleaseService releaseService,
+      final ContentEncodingUtil contentEncodingUtil,
+      final ReleaseConfigurationCache releaseConfigurationCache,
       final Gson gson) {
     this.configService = configService;
     this.appNamespaceService = appNamespaceService;
     this.namespaceUtil = namespaceUtil;
     this.instanceConfigAuditUtil = instanceConfigAuditUtil;
+    this.configResponseCache = configResponseCache;
+    this.releaseService = releaseService;
+    this.contentEncodingUtil = contentEncodingUtil;
+    this.releaseConfigurationCache = releaseConfigurationCache;
     this.gson = gson;
   }
 
+  /**
+   * 返回预先编码好的响应，相同 Release 的请求不再重复解析和序列化配置
+   */
   @GetMapping(value = "/{appId}/{clusterName}/{namespace:.+}")
-  public ApolloConfig queryConfig(@PathVariable String appId, @PathVariable String clusterName,
+  public void queryConfigResponse(@PathVariable String appId, @PathVariable String clusterName,
                                   @PathVariable String namespace,
                                   @RequestParam(value = "dataCenter", required = false) String dataCenter,
                                   @RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
                                   @RequestParam(value = "ip", required = false) String clientIp,
                                   @RequestParam(value = "messages", required = false) String messagesAsString,
+                                  @RequestParam(value = "delta", defaultValue = "false") boolean delta,
                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
-    String originalNamespace = namespace;
-    //strip out .properties suffix
-    namespace = namespaceUtil.filterNamespaceName(namespace);
-    //fix the character case issue, such as FX.apollo <-> fx.apollo
-    namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+    ResolvedConfig resolvedConfig = resolveConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey,
+        clientIp, messagesAsString, request, response);
+    if (resolvedConfig == null) {
+      return;
+    }
+
+    ConfigResponseCache.ConfigResponse configResponse = loadConfigResponse(appId, resolvedConfig,
+        clientSideReleaseKey, delta);
+
+    ContentEncoding encoding = contentEncodingUtil.negotiate(request, configResponse.getBody().length);
+    byte[] body = configResponse.getBody(encoding);
+    setContentEncoding(response, encoding);
+    response.setContentType(JSON_CONTENT_TYPE);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+
+    Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, resolvedConfig.appClusterNameLoaded,
+        resolvedConfig.originalNamespace, dataCenter));
+  }
+
+  public ApolloConfig queryConfig(String appId, String clusterName, String namespace, String dataCenter,
+                                  String clientSideReleaseKey, String clientIp, String messagesAsString,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+    ResolvedConfig resolvedConfig = resolveConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey,
+        clientIp, messagesAsString, request, response);
+    if (resolvedConfig == null) {
+      return null;
+    }
+
+    ApolloConfig apolloConfig = assembleApolloConfig(appId, resolvedConfig);
 
+    Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, resolvedConfig.appClusterNameLoaded,
+        resolvedConfig.originalNamespace, dataCenter));
+    return apolloConfig;
+  }
+
+  /**
+   * 批量获取多个 Namespace 的配置，返回有变化的 Namespace 的配置数组，均无变化时返回 304
+   *
+   * @param namespacesAsString namespace -> client side release key, in json format
+   */
+  @GetMapping(value = "/batch")
+  public void queryConfigsResponse(@RequestParam(value = "appId") String appId,
+                                   @RequestParam(value = "cluster") String clusterName,
+                                   @RequestParam(value = "namespaces") String namespacesAsString,
+                                   @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                   @RequestParam(value = "ip", required = false) String clientIp,
+                                   @RequestParam(value = "messages", required = false) String messagesAsString,
+                                   @RequestParam(value = "delta", defaultValue = "false") boolean delta,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Map<String, String> clientSideReleaseKeys = null;
+    try {
+      clientSideReleaseKeys = gson.fromJson(namespacesAsString, batchNamespacesTypeReference);
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+    }
+    if (clientSideReleaseKeys == null || clientSideReleaseKeys.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "namespaces are invalid");
+      return;
+    }
+
+    //shared by all the namespaces
+    if (Strings.isNullOrEmpty(clientIp)) {
+      clientIp = tryToGetClientIp(request);
+    }
+    ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
+    Map<String, ResolvedConfig> resolvedConfigs = resolveConfigs(appId, clusterName, clientSideReleaseKeys.keySet(),
+        dataCenter, clientIp, clientMessages);
+
+    List<ConfigResponseCache.ConfigResponse> configResponses = Lists.newArrayListWithCapacity(clientSideReleaseKeys.size());
+    for (Map.Entry<String, String> entry : clientSideReleaseKeys.entrySet()) {
+      String clientSideReleaseKey = Strings.isNullOrEmpty(entry.getValue()) ? NO_CLIENT_SIDE_RELEASE_KEY :
+          entry.getValue();
+      ResolvedConfig resolvedConfig = resolvedConfigs.get(entry.getKey());
+      //not found and not modified namespaces are left out, clients would keep their current configs
+      if (resolvedConfig.releases.isEmpty()) {
+        Tracer.logEvent("Apollo.Config.NotFound", assembleKey(appId, clusterName, entry.getKey(), dataCenter));
+        continue;
+      }
+      if (resolvedConfig.mergedReleaseKey.equals(clientSideReleaseKey)) {
+        continue;
+      }
+      configResponses.add(loadConfigResponse(appId, resolvedConfig, clientSideReleaseKey, delta));
+      Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, resolvedConfig.appClusterNameLoaded,
+          resolvedConfig.originalNamespace, dataCenter));
+    }
+
+    if (configResponses.isEmpty()) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    //the cached bodies are json objects already, so just join them as a json array
+    int contentLength = configResponses.size() + 1;
+    for (ConfigResponseCache.ConfigResponse configResponse : configResponses) {
+      contentLength += configResponse.getBody().length;
+    }
+    ContentEncoding encoding = contentEncodingUtil.negotiate(request, contentLength);
+    setContentEncoding(response, encoding);
+    response.setContentType(JSON_CONTENT_TYPE);
+    OutputStream out = response.getOutputStream();
+
+    //compressed as one stream, clients may not read concatenated gzip members from network streams reliably
+    OutputStream encodedOut = encoding.wrap(out);
+    encodedOut.write('[');
+    for (int i = 0; i < configResponses.size(); i++) {
+      if (i > 0) {
+        encodedOut.write(',');
+      }
+      encodedOut.write(configResponses.get(i).getBody());
+    }
+    encodedOut.write(']');
+    //finish the compressed stream without closing the servlet stream
+    if (encodedOut instanceof DeflaterOutputStream) {
+      ((DeflaterOutputStream) encodedOut).finish();
+    }
+  }
+
+  private void setContentEncoding(HttpServletResponse response, ContentEncoding encoding) {
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (encoding != ContentEncoding.IDENTITY) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getName());
+    }
+  }
+
+  /**
+   * @return null if the response is already handled, i.e. not found or not modified
+   */
+  private ResolvedConfig resolveConfig(String appId, String clusterName, String namespace, String dataCenter,
+                                       String clientSideReleaseKey, String clientIp, String messagesAsString,
+                                       HttpServletRequest request, HttpServletResponse response) throws IOException {
     if (Strings.isNullOrEmpty(clientIp)) {
       clientIp = tryToGetClientIp(request);
     }
 
     ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
 
+    ResolvedConfig resolvedConfig = resolveConfig(appId, clusterName, namespace, dataCenter, clientIp,
+        clientMessages);
+
+    if (resolvedConfig.releases.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND,
+          String.format(
+              "Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
+              appId, clusterName, resolvedConfig.originalNamespace));
+      Tracer.logEvent("Apollo.Config.NotFound",
+          assembleKey(appId, clusterName, resolvedConfig.originalNamespace, dataCenter));
+      return null;
+    }
+
+    //对比 Client 的合并 Release Key 。若相等，说明没有改变，返回状态码为 304 的响应
+    if (resolvedConfig.mergedReleaseKey.equals(clientSideReleaseKey)) {
+      // Client side configuration is the same with server side, return 304
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      Tracer.logEvent("Apollo.Config.NotModified",
+          assembleKey(appId, resolvedConfig.appClusterNameLoaded, resolvedConfig.originalNamespace, dataCenter));
+      return null;
+    }
+
+    return resolvedConfig;
+  }
+
+  /**
+   * 加载 Namespace 的 Release 列表，找不到时 releases 为空
+   */
+  private ResolvedConfig resolveConfig(String appId, String clusterName, String namespace, String dataCenter,
+                                       String clientIp, ApolloNotificationMessages clientMessages) {
+    String originalNamespace = namespace;
+    //strip out .properties suffix
+    namespace = namespaceUtil.filterNamespaceName(namespace);
+    //fix the character case issue, such as FX.apollo <-> fx.apollo
+    namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+
     List<Release> releases = Lists.newLinkedList();
 
     String appClusterNameLoaded = clusterName;
@@ -106,14 +303,93 @@ public class ConfigController {
       }
     }
 
+    return newResolvedConfig(appId, clusterName, dataCenter, clientIp, appClusterNameLoaded, originalNamespace,
+        releases);
+  }
+
+  /**
+   * 批量加载多个 Namespace 的 Release 列表，AppNamespace 和灰度规则的查找由所有 Namespace 共享
+   *
+   * @return original namespace -> resolved config, releases are empty if not found
+   */
+  private Map<String, ResolvedConfig> resolveConfigs(String appId, String clusterName,
+                                                     Set<String> originalNamespaces, String dataCenter,
+                                                     String clientIp, ApolloNotificationMessages clientMessages) {
+    //original namespace -> namespace with .properties suffix stripped out
+    Map<String, String> filteredNamespaces = Maps.newLinkedHashMap();
+    for (String originalNamespace : originalNamespaces) {
+      filteredNamespaces.put(originalNamespace, namespaceUtil.filterNamespaceName(originalNamespace));
+    }
+    Set<String> filteredNames = Sets.newHashSet(filteredNamespaces.values());
+    Map<String, AppNamespace> appNamespaces =
+        indexByName(appNamespaceService.findByAppIdAndNamespaces(appId, filteredNames));
+    Map<String, AppNamespace> publicAppNamespaces =
+        indexByName(appNamespaceService.findPublicNamespacesByNames(filteredNames));
+
+    //original namespace -> normalized namespace, same as NamespaceUtil.normalizeNamespace
+    Map<String, String> namespaces = Maps.newLinkedHashMap();
+    for (Map.Entry<String, String> entry : filteredNamespaces.entrySet()) {
+      AppNamespace appNamespace = appNamespaces.containsKey(entry.getValue()) ?
+          appNamespaces.get(entry.getValue()) : publicAppNamespaces.get(entry.getValue());
+      namespaces.put(entry.getKey(), appNamespace == null ? entry.getValue() : appNamespace.getName());
+    }
+
+    boolean noAppId = ConfigConsts.NO_APPID_PLACEHOLDER.equalsIgnoreCase(appId);
+    Map<String, Release> appReleases = noAppId ? Collections.emptyMap() :
+        configService.loadConfigs(appId, clientIp, appId, clusterName, Sets.newHashSet(namespaces.values()),
+            dataCenter, clientMessages);
+
+    //public app id -> public namespaces not belonging to this appId
+    Multimap<String, String> publicNamespaces = HashMultimap.create();
+    for (String namespace : namespaces.values()) {
+      if (Objects.equals(ConfigConsts.NAMESPACE_APPLICATION, namespace)
+          || (!noAppId && appNamespaces.containsKey(namespace))) {
+        continue;
+      }
+      AppNamespace publicAppNamespace = publicAppNamespaces.get(namespace);
+      if (publicAppNamespace != null && !Objects.equals(appId, publicAppNamespace.getAppId())) {
+        publicNamespaces.put(publicAppNamespace.getAppId(), namespace);
+      }
+    }
+    Map<String, Release> publicReleases = Maps.newHashMap();
+    for (String publicAppId : publicNamespaces.keySet()) {
+      publicReleases.putAll(configService.loadConfigs(appId, clientIp, publicAppId, clusterName,
+          Sets.newHashSet(publicNamespaces.get(publicAppId)), dataCenter, clientMessages));
+    }
+
+    Map<String, ResolvedConfig> resolvedConfigs = Maps.newHashMap();
+    for (Map.Entry<String, String> entry : namespaces.entrySet()) {
+      List<Release> releases = Lists.newLinkedList();
+      String appClusterNameLoaded = clusterName;
+      Release appRelease = appReleases.get(entry.getValue());
+      if (appRelease != null) {
+        releases.add(appRelease);
+        appClusterNameLoaded = appRelease.getClusterName();
+      }
+      Release publicRelease = publicReleases.get(entry.getValue());
+      if (publicRelease != null) {
+        releases.add(publicRelease);
+      }
+      resolvedConfigs.put(entry.getKey(), newResolvedConfig(appId, clusterName, dataCenter, clientIp,
+          appClusterNameLoaded, entry.getKey(), releases));
+    }
+    return resolvedConfigs;
+  }
+
+  private Map<String, AppNamespace> indexByName(List<AppNamespace> appNamespaces) {
+    //the names are case insensitive, such as FX.apollo <-> fx.apollo
+    Map<String, AppNamespace> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (AppNamespace appNamespace : appNamespaces) {
+      result.put(appNamespace.getName(), appNamespace);
+    }
+    return result;
+  }
+
+  private ResolvedConfig newResolvedConfig(String appId, String clusterName, String dataCenter, String clientIp,
+                                           String appClusterNameLoaded, String originalNamespace,
+                                           List<Release> releases) {
     if (releases.isEmpty()) {
-      response.sendError(HttpServletResponse.SC_NOT_FOUND,
-          String.format(
-              "Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
-              appId, clusterName, originalNamespace));
-      Tracer.logEvent("Apollo.Config.NotFound",
-          assembleKey(appId, clusterName, originalNamespace, dataCenter));
-      return null;
+      return new ResolvedConfig(appClusterNameLoaded, originalNamespace, releases, null);
     }
 
     auditReleases(appId, clusterName, dataCenter, clientIp, releases);
@@ -121,24 +397,116 @@ public class ConfigController {
     String mergedReleaseKey = releases.stream().map(Release::getReleaseKey)
             .collect(Collectors.joining(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR));
 
-    //对比 Client 的合并 Release Key 。若相等，说明没有改变，返回状态码为 302 的响应
-    if (mergedReleaseKey.equals(clientSideReleaseKey)) {
-      // Client side configuration is the same with server side, return 304
-      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-      Tracer.logEvent("Apollo.Config.NotModified",
-          assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
+    return new ResolvedConfig(appClusterNameLoaded, originalNamespace, releases, mergedReleaseKey);
+  }
+
+  private ConfigResponseCache.ConfigResponse loadConfigResponse(String appId, ResolvedConfig resolvedConfig,
+                                                                String clientSideReleaseKey, boolean delta) {
+    String cacheKey = configResponseCache.assembleCacheKey(appId, resolvedConfig.appClusterNameLoaded,
+        resolvedConfig.originalNamespace, resolvedConfig.mergedReleaseKey);
+    Set<String> namespaceKeys = resolvedConfig.releases.stream()
+        .map(release -> configResponseCache.assembleNamespaceKey(release.getAppId(), release.getNamespaceName()))
+        .collect(Collectors.toSet());
+    //client has a release, only return the changes relative to it
+    if (delta && !NO_CLIENT_SIDE_RELEASE_KEY.equals(clientSideReleaseKey)) {
+      String deltaCacheKey = configResponseCache.assembleDeltaCacheKey(cacheKey, clientSideReleaseKey);
+      ConfigResponseCache.ConfigResponse deltaResponse = configResponseCache.getIfPresent(deltaCacheKey);
+      if (deltaResponse != null) {
+        return deltaResponse;
+      }
+      ApolloConfig apolloConfigDelta = assembleApolloConfigDelta(appId, resolvedConfig, clientSideReleaseKey);
+      //only cache real deltas, the client side release key could be anything
+      if (apolloConfigDelta != null) {
+        byte[] body = gson.toJson(apolloConfigDelta).getBytes(StandardCharsets.UTF_8);
+        return configResponseCache.get(deltaCacheKey, namespaceKeys, () -> body);
+      }
+    }
+    return configResponseCache.get(cacheKey, namespaceKeys,
+        () -> gson.toJson(assembleApolloConfig(appId, resolvedConfig)).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private ApolloConfig assembleApolloConfig(String appId, ResolvedConfig resolvedConfig) {
+    ApolloConfig apolloConfig = new ApolloConfig(appId, resolvedConfig.appClusterNameLoaded,
+        resolvedConfig.originalNamespace, resolvedConfig.mergedReleaseKey);
+    apolloConfig.setConfigurations(mergeReleaseConfigurations(resolvedConfig.releases));
+    return apolloConfig;
+  }
+
+  /**
+   * 计算相对于客户端 Release 的增量配置
+   *
+   * @return the delta config, or null if the client side releases are not found or the delta is not smaller
+   */
+  private ApolloConfig assembleApolloConfigDelta(String appId, ResolvedConfig resolvedConfig,
+                                                 String baseMergedReleaseKey) {
+    List<Release> baseReleases = findReleasesByMergedReleaseKey(baseMergedReleaseKey);
+    if (baseReleases == null) {
+      Tracer.logEvent("Apollo.Config.Delta.BaseNotFound", baseMergedReleaseKey);
       return null;
     }
+    //the release keys are sent by the client, never compare with releases of other namespaces
+    if (!belongToSameNamespaces(baseReleases, resolvedConfig.releases)) {
+      Tracer.logEvent("Apollo.Config.Delta.BaseMismatch", baseMergedReleaseKey);
+      return null;
+    }
+
+    ApolloConfig apolloConfig = assembleApolloConfig(appId, resolvedConfig);
 
-    ApolloConfig apolloConfig = new ApolloConfig(appId, appClusterNameLoaded, originalNamespace,
-        mergedReleaseKey);
-    apolloConfig.setConfigurations(mergeReleaseConfigurations(releases));
+    Map<String, String> baseConfigurations = mergeReleaseConfigurations(baseReleases);
+    Map<String, String> configurations = apolloConfig.getConfigurations();
+    Map<String, String> changedConfigurations = Maps.newHashMap();
+    for (Map.Entry<String, String> entry : configurations.entrySet()) {
+      if (!Objects.equals(entry.getValue(), baseConfigurations.get(entry.getKey()))) {
+        changedConfigurations.put(entry.getKey(), entry.getValue());
+      }
+    }
+    List<String> deletedKeys = Lists.newArrayList();
+    for (String key : baseConfigurations.keySet()) {
+      if (!configurations.containsKey(key)) {
+        deletedKeys.add(key);
+      }
+    }
 
-    Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, appClusterNameLoaded,
-        originalNamespace, dataCenter));
+    if (changedConfigurations.size() + deletedKeys.size() >= configurations.size()) {
+      return null;
+    }
+
+    apolloConfig.setConfigurations(changedConfigurations);
+    apolloConfig.setBaseReleaseKey(baseMergedReleaseKey);
+    apolloConfig.setDeletedKeys(deletedKeys);
+    Tracer.logEvent("Apollo.Config.Delta", baseMergedReleaseKey);
     return apolloConfig;
   }
 
+  private boolean belongToSameNamespaces(List<Release> baseReleases, List<Release> releases) {
+    Set<String> namespaceKeys = releases.stream()
+        .map(release -> configResponseCache.assembleNamespaceKey(release.getAppId(), release.getNamespaceName()))
+        .collect(Collectors.toSet());
+    return baseReleases.stream().allMatch(release -> namespaceKeys.contains(
+        configResponseCache.assembleNamespaceKey(release.getAppId(), release.getNamespaceName())));
+  }
+
+  /**
+   * @return the releases in the same order as they are merged, or null if any of them is not found
+   */
+  private List<Release> findReleasesByMergedReleaseKey(String mergedReleaseKey) {
+    List<String> releaseKeys = RELEASE_KEY_SPLITTER.splitToList(mergedReleaseKey);
+    Map<String, Release> releases = Maps.newHashMap();
+    for (Release release : releaseService.findByReleaseKeys(Sets.newHashSet(releaseKeys))) {
+      releases.put(release.getReleaseKey(), release);
+    }
+
+    List<Release> result = Lists.newArrayListWithCapacity(releaseKeys.size());
+    for (String releaseKey : releaseKeys) {
+      Release release = releases.get(releaseKey);
+      if (release == null) {
+        return null;
+      }
+      result.add(release);
+    }
+    return result;
+  }
+
   private boolean namespaceBelongsToAppId(String appId, String namespaceName) {
     //Every app has an 'application' namespace
     if (Objects.equals(ConfigConsts.NAMESPACE_APPLICATION, namespaceName)) {
@@ -184,7 +552,7 @@ public class ConfigController {
     Map<String, String> result = Maps.newHashMap();
 
     for (Release release : Lists.reverse(releases)) {
-      result.putAll(gson.fromJson(release.getConfigurations(), configurationTypeReference));
+      result.putAll(releaseConfigurationCache.getConfigurations(release));
     }
 
     return result;
@@ -231,4 +599,19 @@ public class ConfigController {
 
     return notificationMessages;
   }
+
+  private static class ResolvedConfig {
+    private final String appClusterNameLoaded;
+    private final String originalNamespace;
+    private final List<Release> releases;
+    private final String mergedReleaseKey;
+
+    ResolvedConfig(String appClusterNameLoaded, String originalNamespace, List<Release> releases,
+                   String mergedReleaseKey) {
+      this.appClusterNameLoaded = appClusterNameLoaded;
+      this.originalNamespace = originalNamespace;
+      this.releases = releases;
+      this.mergedReleaseKey = mergedReleaseKey;
+    }
+  }
 }
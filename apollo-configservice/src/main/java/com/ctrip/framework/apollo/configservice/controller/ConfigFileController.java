@@ -4,6 +4,9 @@ import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache.ConfigResponse;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil.ContentEncoding;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
@@ -37,6 +40,7 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -57,8 +61,9 @@ public class ConfigFileController implements ReleaseMessageListener {
   private static final long EXPIRE_AFTER_WRITE = 30;
   private final HttpHeaders propertiesResponseHeaders;
   private final HttpHeaders jsonResponseHeaders;
-  private final ResponseEntity<String> NOT_FOUND_RESPONSE;
-  private Cache<String, String> localCache;
+  private final ResponseEntity<byte[]> NOT_FOUND_RESPONSE;
+  //压缩后的响应与原始响应一起缓存
+  private Cache<String, ConfigResponse> localCache;
   private final Multimap<String, String>
       watchedKeys2CacheKey = Multimaps.synchronizedSetMultimap(HashMultimap.create());
   private final Multimap<String, String>
@@ -69,15 +74,17 @@ public class ConfigFileController implements ReleaseMessageListener {
   private final NamespaceUtil namespaceUtil;
   private final WatchKeysUtil watchKeysUtil;
   private final GrayReleaseRulesHolder grayReleaseRulesHolder;
+  private final ContentEncodingUtil contentEncodingUtil;
 
   public ConfigFileController(
       final ConfigController configController,
       final NamespaceUtil namespaceUtil,
       final WatchKeysUtil watchKeysUtil,
-      final GrayReleaseRulesHolder grayReleaseRulesHolder) {
+      final GrayReleaseRulesHolder grayReleaseRulesHolder,
+      final ContentEncodingUtil contentEncodingUtil) {
     localCache = CacheBuilder.newBuilder()
         .expireAfterWrite(EXPIRE_AFTER_WRITE, TimeUnit.MINUTES)
-        .weigher((Weigher<String, String>) (key, value) -> value == null ? 0 : value.length())
+        .weigher((Weigher<String, ConfigResponse>) (key, value) -> value == null ? 0 : value.weight())
         .maximumWeight(MAX_CACHE_SIZE)
         .removalListener(notification -> {
           String cacheKey = notification.getKey();
@@ -103,10 +110,11 @@ public class ConfigFileController implements ReleaseMessageListener {
     this.namespaceUtil = namespaceUtil;
     this.watchKeysUtil = watchKeysUtil;
     this.grayReleaseRulesHolder = grayReleaseRulesHolder;
+    this.contentEncodingUtil = contentEncodingUtil;
   }
 
   @GetMapping(value = "/{appId}/{clusterName}/{namespace:.+}")
-  public ResponseEntity<String> queryConfigAsProperties(@PathVariable String appId,
+  public ResponseEntity<byte[]> queryConfigAsProperties(@PathVariable String appId,
                                                         @PathVariable String clusterName,
                                                         @PathVariable String namespace,
                                                         @RequestParam(value = "dataCenter", required = false) String dataCenter,
@@ -115,7 +123,7 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                         HttpServletResponse response)
       throws IOException {
 
-    String result =
+    ConfigResponse result =
         queryConfig(ConfigFileOutputFormat.PROPERTIES, appId, clusterName, namespace, dataCenter,
             clientIp, request, response);
 
@@ -123,11 +131,11 @@ public class ConfigFileController implements ReleaseMessageListener {
       return NOT_FOUND_RESPONSE;
     }
 
-    return new ResponseEntity<>(result, propertiesResponseHeaders, HttpStatus.OK);
+    return assembleResponse(result, propertiesResponseHeaders, request);
   }
 
   @GetMapping(value = "/json/{appId}/{clusterName}/{namespace:.+}")
-  public ResponseEntity<String> queryConfigAsJson(@PathVariable String appId,
+  public ResponseEntity<byte[]> queryConfigAsJson(@PathVariable String appId,
                                                   @PathVariable String clusterName,
                                                   @PathVariable String namespace,
                                                   @RequestParam(value = "dataCenter", required = false) String dataCenter,
@@ -135,7 +143,7 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                   HttpServletRequest request,
                                                   HttpServletResponse response) throws IOException {
 
-    String result =
+    ConfigResponse result =
         queryConfig(ConfigFileOutputFormat.JSON, appId, clusterName, namespace, dataCenter,
             clientIp, request, response);
 
@@ -143,10 +151,22 @@ public class ConfigFileController implements ReleaseMessageListener {
       return NOT_FOUND_RESPONSE;
     }
 
-    return new ResponseEntity<>(result, jsonResponseHeaders, HttpStatus.OK);
+    return assembleResponse(result, jsonResponseHeaders, request);
   }
 
-  String queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
+  private ResponseEntity<byte[]> assembleResponse(ConfigResponse configResponse, HttpHeaders contentTypeHeaders,
+                                                  HttpServletRequest request) {
+    ContentEncoding encoding = contentEncodingUtil.negotiate(request, configResponse.getBody().length);
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(contentTypeHeaders);
+    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (encoding != ContentEncoding.IDENTITY) {
+      headers.add(HttpHeaders.CONTENT_ENCODING, encoding.getName());
+    }
+    return new ResponseEntity<>(configResponse.getBody(encoding), headers, HttpStatus.OK);
+  }
+
+  ConfigResponse queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
                      String namespace, String dataCenter, String clientIp,
                      HttpServletRequest request,
                      HttpServletResponse response) throws IOException {
@@ -173,10 +193,10 @@ public class ConfigFileController implements ReleaseMessageListener {
     }
 
     //3. if not gray release, check weather cache exists, if exists, return
-    String result = localCache.getIfPresent(cacheKey);
+    ConfigResponse result = localCache.getIfPresent(cacheKey);
 
     //4. if not exists, load from ConfigController
-    if (Strings.isNullOrEmpty(result)) {
+    if (result == null) {
       Tracer.logEvent("ConfigFile.Cache.Miss", cacheKey);
       result = loadConfig(outputFormat, appId, clusterName, namespace, dataCenter, clientIp,
           request, response);
@@ -211,7 +231,7 @@ public class ConfigFileController implements ReleaseMessageListener {
     return result;
   }
 
-  private String loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
+  private ConfigResponse loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
                             String namespace, String dataCenter, String clientIp,
                             HttpServletRequest request,
                             HttpServletResponse response) throws IOException {
@@ -235,7 +255,7 @@ public class ConfigFileController implements ReleaseMessageListener {
         break;
     }
 
-    return result;
+    return new ConfigResponse(result.getBytes(StandardCharsets.UTF_8));
   }
 
   String assembleCacheKey(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
@@ -8,11 +8,12 @@ import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationFanOutScheduler;
+import com.ctrip.framework.apollo.configservice.util.WatchKeyRegistry;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
@@ -32,9 +33,6 @@ import org.springframework.web.context.request.async.DeferredResult;
 
 import java.lang.reflect.Type;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -49,13 +47,12 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
      * 通知编号 = ReleaseMessage.id
      * Watch Key = ReleaseMessage.message
      * <p>
-     * Watch Key 与 DeferredResultWrapper 的 Multimap
+     * Watch Key 与 DeferredResultWrapper 的并发索引，注册、注销和通知均无全局锁
      * <p>
      * Key：Watch Key
      * Value：DeferredResultWrapper 数组
      */
-    private final Multimap<String, DeferredResultWrapper> deferredResults =
-            Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final WatchKeyRegistry<DeferredResultWrapper> deferredResults = new WatchKeyRegistry<>();
 
     private static final Splitter STRING_SPLITTER =
             Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
@@ -65,9 +62,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             }.getType();
 
     /**
-     * 大量通知分批执行 ExecutorService
+     * 大量通知限速分批执行
      */
-    private final ExecutorService largeNotificationBatchExecutorService;
+    private final NotificationFanOutScheduler notificationFanOutScheduler;
 
     private final WatchKeysUtil watchKeysUtil;
     private final ReleaseMessageServiceWithCache releaseMessageService;
@@ -83,9 +80,9 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             final EntityManagerUtil entityManagerUtil,
             final NamespaceUtil namespaceUtil,
             final Gson gson,
-            final BizConfig bizConfig) {
-        largeNotificationBatchExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create
-                ("NotificationControllerV2", true));
+            final BizConfig bizConfig,
+            final NotificationFanOutScheduler notificationFanOutScheduler) {
+        this.notificationFanOutScheduler = notificationFanOutScheduler;
         this.watchKeysUtil = watchKeysUtil;
         this.releaseMessageService = releaseMessageService;
         this.entityManagerUtil = entityManagerUtil;
@@ -182,7 +179,7 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         deferredResultWrapper.onCompletion(() -> {
             //unregister all keys
             for (String key : watchedKeys) {
-                deferredResults.remove(key, deferredResultWrapper);
+                deferredResults.unregister(key, deferredResultWrapper);
             }
             logWatchedKeys(watchedKeys, "Apollo.LongPoll.CompletedKeys");
         });
@@ -190,7 +187,7 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         //注册 Watch Key + DeferredResultWrapper 到 `deferredResults` 中，等待配置发生变化后通知。详见 `#handleMessage(...)` 方法。
         //register all keys
         for (String key : watchedKeys) {
-            this.deferredResults.put(key, deferredResultWrapper);
+            this.deferredResults.register(key, deferredResultWrapper);
         }
 
         logWatchedKeys(watchedKeys, "Apollo.LongPoll.RegisteredKeys");
@@ -341,24 +338,10 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         ApolloConfigNotification configNotification = new ApolloConfigNotification(changedNamespace, message.getId());
         configNotification.addMessage(content, message.getId());
 
-        //若需要通知的客户端过多，使用 ExecutorService 异步通知，避免“惊群效应”
+        //若需要通知的客户端过多，交给 NotificationFanOutScheduler 限速异步通知，避免“惊群效应”
         //do async notification if too many clients
         if (results.size() > bizConfig.releaseMessageNotificationBatch()) {
-            largeNotificationBatchExecutorService.submit(() -> {
-                logger.debug("Async notify {} clients for key {} with batch {}", results.size(), content,
-                        bizConfig.releaseMessageNotificationBatch());
-                for (int i = 0; i < results.size(); i++) {
-                    if (i > 0 && i % bizConfig.releaseMessageNotificationBatch() == 0) {
-                        try {
-                            TimeUnit.MILLISECONDS.sleep(bizConfig.releaseMessageNotificationBatchIntervalInMilli());
-                        } catch (InterruptedException e) {
-                            //ignore
-                        }
-                    }
-                    logger.debug("Async notify {}", results.get(i));
-                    results.get(i).setResult(configNotification);
-                }
-            });
+            notificationFanOutScheduler.submit(content, results, configNotification);
             return;
         }
 
@@ -0,0 +1,30 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 接收 Admin Service 推送的发布消息，触发立即扫描
+ * <p>
+ * The pushed message is only a hint, messages are still loaded from database by {@link ReleaseMessageScanner}
+ */
+@RestController
+@RequestMapping("/release-messages")
+public class ReleaseMessageController {
+
+  private final ReleaseMessageScanner releaseMessageScanner;
+
+  public ReleaseMessageController(final ReleaseMessageScanner releaseMessageScanner) {
+    this.releaseMessageScanner = releaseMessageScanner;
+  }
+
+  @PostMapping("/scan")
+  public void scan(@RequestParam(value = "message", required = false) String message) {
+    Tracer.logEvent("Apollo.ReleaseMessage.Pushed", message);
+    releaseMessageScanner.scanNow();
+  }
+}
@@ -0,0 +1,186 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil.ContentEncoding;
+import com.ctrip.framework.apollo.configservice.util.WatchKeyRegistry;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * 已编码的配置响应缓存
+ * <p>
+ * Cache of encoded config responses. Since releases are immutable, a response is identified by the merged release key
+ * together with the appId, cluster and namespace echoed in it, so the entries are never stale. Entries of a namespace
+ * are dropped when it has new release messages, as the old release keys would not be served any more.
+ */
+@Service
+public class ConfigResponseCache implements ReleaseMessageListener {
+  private static final Logger logger = LoggerFactory.getLogger(ConfigResponseCache.class);
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private static final Splitter STRING_SPLITTER =
+      Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+  private static final String DELTA_CACHE_KEY_MARKER = "delta";
+  private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
+  private static final long EXPIRE_AFTER_ACCESS = 30;
+  private static final String TRACER_EVENT_CACHE_HIT = "ConfigResponse.Cache.Hit";
+  private static final String TRACER_EVENT_CACHE_MISS = "ConfigResponse.Cache.Miss";
+
+  private final Cache<String, ConfigResponse> responseCache;
+  //appId+namespace -> cache keys
+  private final WatchKeyRegistry<String> namespaceKey2CacheKeys;
+
+  public ConfigResponseCache() {
+    namespaceKey2CacheKeys = new WatchKeyRegistry<>();
+    responseCache = CacheBuilder.newBuilder()
+        .expireAfterAccess(EXPIRE_AFTER_ACCESS, TimeUnit.MINUTES)
+        .weigher((Weigher<String, ConfigResponse>) (key, value) -> value.weight())
+        .maximumWeight(MAX_CACHE_SIZE)
+        .removalListener(notification -> {
+          //the same response is loaded again, keep the index
+          if (notification.getCause() == RemovalCause.REPLACED) {
+            return;
+          }
+          for (String namespaceKey : notification.getValue().namespaceKeys) {
+            namespaceKey2CacheKeys.unregister(namespaceKey, notification.getKey());
+          }
+        })
+        .build();
+  }
+
+  public String assembleCacheKey(String appId, String clusterName, String namespace, String mergedReleaseKey) {
+    return STRING_JOINER.join(appId, clusterName, namespace, mergedReleaseKey);
+  }
+
+  /**
+   * 增量响应按 (baseReleaseKey, releaseKey) 缓存
+   */
+  public String assembleDeltaCacheKey(String cacheKey, String baseMergedReleaseKey) {
+    return STRING_JOINER.join(cacheKey, DELTA_CACHE_KEY_MARKER, baseMergedReleaseKey);
+  }
+
+  public String assembleNamespaceKey(String appId, String namespace) {
+    return STRING_JOINER.join(appId, namespace);
+  }
+
+  /**
+   * @return the cached response, or null if not cached
+   */
+  public ConfigResponse getIfPresent(String cacheKey) {
+    ConfigResponse response = responseCache.getIfPresent(cacheKey);
+    if (response != null) {
+      Tracer.logEvent(TRACER_EVENT_CACHE_HIT, cacheKey);
+    }
+    return response;
+  }
+
+  /**
+   * @param namespaceKeys the appId+namespace keys of the releases in the response
+   * @param loader        encodes the response on cache miss
+   */
+  public ConfigResponse get(String cacheKey, Set<String> namespaceKeys, Supplier<byte[]> loader) {
+    ConfigResponse response = responseCache.getIfPresent(cacheKey);
+    if (response != null) {
+      Tracer.logEvent(TRACER_EVENT_CACHE_HIT, cacheKey);
+      return response;
+    }
+
+    Tracer.logEvent(TRACER_EVENT_CACHE_MISS, cacheKey);
+    //register before loading, so that the index is always cleaned by the removal listener
+    for (String namespaceKey : namespaceKeys) {
+      namespaceKey2CacheKeys.register(namespaceKey, cacheKey);
+    }
+    try {
+      return responseCache.get(cacheKey, () -> new ConfigResponse(loader.get(), namespaceKeys));
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException(String.format("Load config response %s failed", cacheKey), ex.getCause());
+    }
+  }
+
+  @Override
+  public void handleMessage(ReleaseMessage message, String channel) {
+    String content = message.getMessage();
+    if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+      return;
+    }
+
+    List<String> keys = STRING_SPLITTER.splitToList(content);
+    //message should be appId+cluster+namespace
+    if (keys.size() != 3) {
+      logger.error("message format invalid - {}", content);
+      return;
+    }
+
+    String namespaceKey = assembleNamespaceKey(keys.get(0), keys.get(2));
+    //create a new list to avoid ConcurrentModificationException
+    List<String> cacheKeys = Lists.newArrayList(namespaceKey2CacheKeys.get(namespaceKey));
+    for (String cacheKey : cacheKeys) {
+      logger.debug("invalidate config response cache key: {}", cacheKey);
+      responseCache.invalidate(cacheKey);
+    }
+  }
+
+  /**
+   * 编码后的响应，压缩结果与原始响应一起缓存
+   */
+  public static class ConfigResponse {
+    private final byte[] body;
+    private final Set<String> namespaceKeys;
+    private final AtomicReferenceArray<byte[]> encodedBodies;
+
+    public ConfigResponse(byte[] body) {
+      this(body, Collections.emptySet());
+    }
+
+    ConfigResponse(byte[] body, Set<String> namespaceKeys) {
+      this.body = body;
+      this.namespaceKeys = namespaceKeys;
+      this.encodedBodies = new AtomicReferenceArray<>(ContentEncoding.values().length);
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    /**
+     * compressed on the first request which accepts the encoding
+     */
+    public byte[] getBody(ContentEncoding encoding) {
+      if (encoding == ContentEncoding.IDENTITY) {
+        return body;
+      }
+      byte[] result = encodedBodies.get(encoding.ordinal());
+      if (result == null) {
+        //concurrent requests may compress twice, which is harmless
+        result = encoding.encode(body);
+        encodedBodies.set(encoding.ordinal(), result);
+      }
+      return result;
+    }
+
+    public int weight() {
+      //count the compressed body in advance as it's usually much smaller
+      return body.length + body.length / 4;
+    }
+  }
+}
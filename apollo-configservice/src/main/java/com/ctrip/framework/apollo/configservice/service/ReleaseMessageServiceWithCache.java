@@ -116,6 +116,14 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
     }
   }
 
+  /**
+   * the gap detection relies on the messages being handled in the order of their ids
+   */
+  @Override
+  public boolean isOrderSensitive() {
+    return true;
+  }
+
   @Override
   public void afterPropertiesSet() throws Exception {
     populateDataBaseInterval();
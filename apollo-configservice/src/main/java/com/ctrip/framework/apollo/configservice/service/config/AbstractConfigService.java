@@ -6,8 +6,12 @@ import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -44,6 +48,50 @@ public abstract class AbstractConfigService implements ConfigService {
         clientMessages);
   }
 
+  @Override
+  public Map<String, Release> loadConfigs(String clientAppId, String clientIp, String configAppId,
+      String configClusterName, Set<String> configNamespaces, String dataCenter,
+      ApolloNotificationMessages clientMessages) {
+    Map<String, Release> releases = Maps.newHashMap();
+    Set<String> remainingNamespaces = Sets.newHashSet(configNamespaces);
+
+    // same fallback order as loadConfig, the gray release rules are looked up once per cluster
+    if (!Objects.equals(ConfigConsts.CLUSTER_NAME_DEFAULT, configClusterName)) {
+      findReleases(clientAppId, clientIp, configAppId, configClusterName, remainingNamespaces, clientMessages,
+          releases);
+    }
+
+    if (!remainingNamespaces.isEmpty() && !Strings.isNullOrEmpty(dataCenter)
+        && !Objects.equals(dataCenter, configClusterName)) {
+      findReleases(clientAppId, clientIp, configAppId, dataCenter, remainingNamespaces, clientMessages, releases);
+    }
+
+    if (!remainingNamespaces.isEmpty()) {
+      findReleases(clientAppId, clientIp, configAppId, ConfigConsts.CLUSTER_NAME_DEFAULT, remainingNamespaces,
+          clientMessages, releases);
+    }
+
+    return releases;
+  }
+
+  /**
+   * Find releases of the cluster, the namespaces found are moved from remainingNamespaces to releases
+   */
+  private void findReleases(String clientAppId, String clientIp, String configAppId, String configClusterName,
+      Set<String> remainingNamespaces, ApolloNotificationMessages clientMessages, Map<String, Release> releases) {
+    Map<String, Long> grayReleaseIds = grayReleaseRulesHolder.findReleaseIdsFromGrayReleaseRules(clientAppId,
+        clientIp, configAppId, configClusterName, remainingNamespaces);
+
+    for (String configNamespace : Sets.newHashSet(remainingNamespaces)) {
+      Release release = findRelease(configAppId, configClusterName, configNamespace,
+          grayReleaseIds.get(configNamespace), clientMessages);
+      if (release != null) {
+        releases.put(configNamespace, release);
+        remainingNamespaces.remove(configNamespace);
+      }
+    }
+  }
+
   /**
    * Find release
    * 
@@ -60,6 +108,11 @@ public abstract class AbstractConfigService implements ConfigService {
     Long grayReleaseId = grayReleaseRulesHolder.findReleaseIdFromGrayReleaseRule(clientAppId, clientIp, configAppId,
         configClusterName, configNamespace);
 
+    return findRelease(configAppId, configClusterName, configNamespace, grayReleaseId, clientMessages);
+  }
+
+  private Release findRelease(String configAppId, String configClusterName, String configNamespace,
+      Long grayReleaseId, ApolloNotificationMessages clientMessages) {
     Release release = null;
 
     if (grayReleaseId != null) {
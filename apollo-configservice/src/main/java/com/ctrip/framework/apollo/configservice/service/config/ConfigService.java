@@ -4,6 +4,9 @@ import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -23,4 +26,19 @@ public interface ConfigService extends ReleaseMessageListener {
    */
   Release loadConfig(String clientAppId, String clientIp, String configAppId, String
       configClusterName, String configNamespace, String dataCenter, ApolloNotificationMessages clientMessages);
+
+  /**
+   * Load configs of several namespaces, the gray release rules are looked up once for all of them
+   *
+   * @param clientAppId the client's app id
+   * @param clientIp the client ip
+   * @param configAppId the requested config's app id
+   * @param configClusterName the requested config's cluster name
+   * @param configNamespaces the requested config's namespace names
+   * @param dataCenter the client data center
+   * @param clientMessages the messages received in client side
+   * @return namespace name -> Release, namespaces without release are not included
+   */
+  Map<String, Release> loadConfigs(String clientAppId, String clientIp, String configAppId, String configClusterName,
+      Set<String> configNamespaces, String dataCenter, ApolloNotificationMessages clientMessages);
 }
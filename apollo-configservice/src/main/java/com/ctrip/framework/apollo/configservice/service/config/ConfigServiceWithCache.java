@@ -5,8 +5,10 @@ import com.google.common.base.Strings;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.Lists;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
@@ -31,6 +33,10 @@ import javax.annotation.PostConstruct;
 
 /**
  * config service with guava cache
+ * <p>
+ * The caches are bounded by the estimated size of the releases. Concurrent misses of the same key are loaded from db
+ * only once, and a release message refreshes the key in place, so the requests keep getting the old entry instead of
+ * waiting for the db until the new one is loaded.
  *
  * @author Jason Song(song_s@ctrip.com)
  */
@@ -38,16 +44,24 @@ public class ConfigServiceWithCache extends AbstractConfigService {
   private static final Logger logger = LoggerFactory.getLogger(ConfigServiceWithCache.class);
   private static final long DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES = 60;//1 hour
   private static final String TRACER_EVENT_CACHE_INVALIDATE = "ConfigCache.Invalidate";
+  private static final String TRACER_EVENT_CACHE_REFRESH = "ConfigCache.Refresh";
   private static final String TRACER_EVENT_CACHE_LOAD = "ConfigCache.LoadFromDB";
   private static final String TRACER_EVENT_CACHE_LOAD_ID = "ConfigCache.LoadFromDBById";
   private static final String TRACER_EVENT_CACHE_GET = "ConfigCache.Get";
   private static final String TRACER_EVENT_CACHE_GET_ID = "ConfigCache.GetById";
   private static final Splitter STRING_SPLITTER =
       Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+  /**
+   * the estimated size of a release apart from its configurations, and of a cache entry
+   */
+  private static final int RELEASE_BASE_SIZE = 512;
 
   @Autowired
   private ReleaseService releaseService;
 
+  @Autowired
+  private BizConfig bizConfig;
+
   @Autowired
   private ReleaseMessageService releaseMessageService;
 
@@ -63,9 +77,17 @@ public class ConfigServiceWithCache extends AbstractConfigService {
 
   @PostConstruct
   void initialize() {
+    long maxWeight = bizConfig.configServiceCacheMaxSizeInMB() * 1024L * 1024L;
 
     configCache = CacheBuilder.newBuilder()
         .expireAfterAccess(DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES)
+        .maximumWeight(maxWeight)
+        .weigher(new Weigher<String, ConfigCacheEntry>() {
+          @Override
+          public int weigh(String key, ConfigCacheEntry value) {
+            return estimateSize(key, value.getRelease());
+          }
+        })
         .build(new CacheLoader<String, ConfigCacheEntry>() {
           @Override
           public ConfigCacheEntry load(String key) throws Exception {
@@ -104,6 +126,13 @@ public class ConfigServiceWithCache extends AbstractConfigService {
 
     configIdCache = CacheBuilder.newBuilder()
         .expireAfterAccess(DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES)
+        .maximumWeight(maxWeight)
+        .weigher(new Weigher<Long, Optional<Release>>() {
+          @Override
+          public int weigh(Long key, Optional<Release> value) {
+            return estimateSize(null, value.orElse(null));
+          }
+        })
         .build(new CacheLoader<Long, Optional<Release>>() {
           @Override
           public Optional<Release> load(Long key) throws Exception {
@@ -142,8 +171,9 @@ public class ConfigServiceWithCache extends AbstractConfigService {
     //cache is out-dated
     if (clientMessages != null && clientMessages.has(key) &&
         clientMessages.get(key) > cacheEntry.getNotificationId()) {
-      //invalidate the cache and try to load from db again
-      invalidate(key);
+      //reload from db, the other requests keep getting the old entry meanwhile. It's a no-op if the key is being
+      //refreshed by another request, which is not invalidated here, the client would get the new one next time
+      refresh(key);
       cacheEntry = configCache.getUnchecked(key);
     }
 
@@ -155,6 +185,23 @@ public class ConfigServiceWithCache extends AbstractConfigService {
     Tracer.logEvent(TRACER_EVENT_CACHE_INVALIDATE, key);
   }
 
+  private void refresh(String key) {
+    configCache.refresh(key);
+    Tracer.logEvent(TRACER_EVENT_CACHE_REFRESH, key);
+  }
+
+  private static int estimateSize(String key, Release release) {
+    long size = RELEASE_BASE_SIZE;
+    if (key != null) {
+      size += 2L * key.length();
+    }
+    if (release != null && release.getConfigurations() != null) {
+      //2 bytes per char
+      size += 2L * release.getConfigurations().length();
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
   @Override
   public void handleMessage(ReleaseMessage message, String channel) {
     logger.info("message received - channel: {}, message: {}", channel, message);
@@ -162,11 +209,17 @@ public class ConfigServiceWithCache extends AbstractConfigService {
       return;
     }
 
+    String key = message.getMessage();
     try {
-      invalidate(message.getMessage());
-
-      //warm up the cache
-      configCache.getUnchecked(message.getMessage());
+      //reload in place, so that the key is still served from cache while loading. This returns after the new entry is
+      //loaded, as config file cache and notifications are handled after this and need the new entry
+      refresh(key);
+
+      ConfigCacheEntry cacheEntry = configCache.getIfPresent(key);
+      //the refresh failed, let the next request load it again
+      if (cacheEntry != null && cacheEntry.getNotificationId() < message.getId()) {
+        invalidate(key);
+      }
     } catch (Throwable ex) {
       //ignore
     }
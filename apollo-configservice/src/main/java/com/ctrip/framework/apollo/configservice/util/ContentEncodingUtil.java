@@ -0,0 +1,151 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 响应压缩协商
+ * <p>
+ * Chooses the content coding of config responses by the Accept-Encoding header of the request. Responses smaller than
+ * {@link BizConfig#configResponseCompressionThreshold()} are sent as is, since compressing them saves little.
+ */
+@Component
+public class ContentEncodingUtil {
+  private static final Splitter ACCEPT_ENCODING_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+  private static final Splitter PARAMETER_SPLITTER = Splitter.on(";").trimResults();
+  private static final String ANY_ENCODING = "*";
+  private static final String QUALITY_PREFIX = "q=";
+
+  private final BizConfig bizConfig;
+
+  public ContentEncodingUtil(final BizConfig bizConfig) {
+    this.bizConfig = bizConfig;
+  }
+
+  /**
+   * @param contentLength the length of the uncompressed response
+   * @return the accepted encoding with the highest quality, gzip is preferred if qualities are equal
+   */
+  public ContentEncoding negotiate(HttpServletRequest request, int contentLength) {
+    if (contentLength < bizConfig.configResponseCompressionThreshold()) {
+      return ContentEncoding.IDENTITY;
+    }
+    String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (Strings.isNullOrEmpty(acceptEncoding)) {
+      return ContentEncoding.IDENTITY;
+    }
+
+    ContentEncoding result = ContentEncoding.IDENTITY;
+    float resultQuality = 0;
+    for (String coding : ACCEPT_ENCODING_SPLITTER.split(acceptEncoding)) {
+      List<String> parts = PARAMETER_SPLITTER.splitToList(coding);
+      ContentEncoding encoding = ContentEncoding.fromName(parts.get(0));
+      if (encoding == null || encoding == ContentEncoding.IDENTITY) {
+        continue;
+      }
+      float quality = parseQuality(parts);
+      if (quality <= 0) {
+        continue;
+      }
+      if (quality > resultQuality || (quality == resultQuality && encoding.ordinal() < result.ordinal())) {
+        result = encoding;
+        resultQuality = quality;
+      }
+    }
+    return result;
+  }
+
+  private float parseQuality(List<String> parts) {
+    for (int i = 1; i < parts.size(); i++) {
+      String parameter = parts.get(i);
+      if (!parameter.startsWith(QUALITY_PREFIX)) {
+        continue;
+      }
+      try {
+        return Float.parseFloat(parameter.substring(QUALITY_PREFIX.length()));
+      } catch (NumberFormatException ex) {
+        //treat invalid quality as not acceptable
+        return 0;
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * in the order of preference
+   */
+  public enum ContentEncoding {
+    GZIP("gzip") {
+      @Override
+      public OutputStream wrap(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out);
+      }
+    },
+    DEFLATE("deflate") {
+      @Override
+      public OutputStream wrap(OutputStream out) {
+        return new DeflaterOutputStream(out);
+      }
+    },
+    IDENTITY("identity") {
+      @Override
+      public OutputStream wrap(OutputStream out) {
+        return out;
+      }
+
+      @Override
+      public byte[] encode(byte[] data) {
+        return data;
+      }
+    };
+
+    private final String name;
+
+    ContentEncoding(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * the returned stream must be closed or finished to flush the compressed data
+     */
+    public abstract OutputStream wrap(OutputStream out) throws IOException;
+
+    public byte[] encode(byte[] data) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+      try (OutputStream encoded = wrap(out)) {
+        encoded.write(data);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      return out.toByteArray();
+    }
+
+    static ContentEncoding fromName(String name) {
+      if (ANY_ENCODING.equals(name)) {
+        return GZIP;
+      }
+      for (ContentEncoding encoding : values()) {
+        if (encoding.name.equalsIgnoreCase(name)) {
+          return encoding;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -4,69 +4,250 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * 实例配置的异步批量审计
+ * <p>
+ * The audits are coalesced per instance+configAppId+configNamespace, only the latest one is kept until the next flush.
+ * Every {@link BizConfig#instanceConfigAuditFlushIntervalInMilli()} the pending audits are partitioned by instance
+ * to {@link BizConfig#instanceConfigAuditWorkers()} workers, and each worker writes them in batches of
+ * {@link BizConfig#instanceConfigAuditBatch()}: one query and one transaction per batch for the instances and the
+ * instance configs, falling back to row by row writes on concurrent insertions from other nodes.
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
 public class InstanceConfigAuditUtil implements InitializingBean {
+  private static final Logger logger = LoggerFactory.getLogger(InstanceConfigAuditUtil.class);
   private static final int INSTANCE_CONFIG_AUDIT_MAX_SIZE = 10000;
   private static final int INSTANCE_CACHE_MAX_SIZE = 50000;
   private static final int INSTANCE_CONFIG_CACHE_MAX_SIZE = 50000;
   private static final long OFFER_TIME_LAST_MODIFIED_TIME_THRESHOLD_IN_MILLI = TimeUnit.MINUTES.toMillis(10);//10 minutes
+  private static final String TRACER_EVENT_AUDIT = "Apollo.InstanceConfigAudit";
   private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private final ScheduledExecutorService flushExecutorService;
   private final ExecutorService auditExecutorService;
-  private final AtomicBoolean auditStopped;
-  private BlockingQueue<InstanceConfigAuditModel> audits = Queues.newLinkedBlockingQueue
-      (INSTANCE_CONFIG_AUDIT_MAX_SIZE);
+  private final int workers;
+  //instance+configAppId+configNamespace -> the latest audit
+  private final ConcurrentMap<String, InstanceConfigAuditModel> audits = Maps.newConcurrentMap();
+  private final AtomicLong droppedAudits = new AtomicLong();
+  private final AtomicLong unreportedDroppedAudits = new AtomicLong();
+  private volatile long lastFlushLagInMilli;
   private Cache<String, Long> instanceCache;
   private Cache<String, String> instanceConfigReleaseKeyCache;
 
   private final InstanceService instanceService;
+  private final BizConfig bizConfig;
 
-  public InstanceConfigAuditUtil(final InstanceService instanceService) {
+  public InstanceConfigAuditUtil(final InstanceService instanceService, final BizConfig bizConfig) {
     this.instanceService = instanceService;
-    auditExecutorService = Executors.newSingleThreadExecutor(
+    this.bizConfig = bizConfig;
+    this.workers = Math.max(1, bizConfig.instanceConfigAuditWorkers());
+    flushExecutorService = Executors.newSingleThreadScheduledExecutor(
         ApolloThreadFactory.create("InstanceConfigAuditUtil", true));
-    auditStopped = new AtomicBoolean(false);
+    auditExecutorService = Executors.newFixedThreadPool(workers,
+        ApolloThreadFactory.create("InstanceConfigAuditWorker", true));
     instanceCache = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS)
         .maximumSize(INSTANCE_CACHE_MAX_SIZE).build();
     instanceConfigReleaseKeyCache = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS)
         .maximumSize(INSTANCE_CONFIG_CACHE_MAX_SIZE).build();
   }
 
+  /**
+   * @return false if the audit is dropped as too many audits are pending
+   */
   public boolean audit(String appId, String clusterName, String dataCenter, String
       ip, String configAppId, String configClusterName, String configNamespace, String releaseKey) {
-    return this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
-        configAppId, configClusterName, configNamespace, releaseKey));
+    InstanceConfigAuditModel auditModel = new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
+        configAppId, configClusterName, configNamespace, releaseKey);
+    String auditKey = assembleAuditKey(auditModel);
+
+    //the latest audit replaces the pending one of the same instance and namespace
+    if (audits.replace(auditKey, auditModel) != null) {
+      return true;
+    }
+    if (audits.size() >= INSTANCE_CONFIG_AUDIT_MAX_SIZE) {
+      droppedAudits.incrementAndGet();
+      unreportedDroppedAudits.incrementAndGet();
+      return false;
+    }
+    audits.put(auditKey, auditModel);
+    return true;
+  }
+
+  /**
+   * @return the number of audits dropped since started
+   */
+  public long getDroppedAudits() {
+    return droppedAudits.get();
+  }
+
+  /**
+   * @return the age of the oldest audit written by the latest flush
+   */
+  public long getLastFlushLagInMilli() {
+    return lastFlushLagInMilli;
+  }
+
+  void flush() {
+    long dropped = unreportedDroppedAudits.getAndSet(0);
+    if (dropped > 0) {
+      logger.warn("{} instance config audits dropped as more than {} audits are pending", dropped,
+          INSTANCE_CONFIG_AUDIT_MAX_SIZE);
+    }
+    if (audits.isEmpty()) {
+      if (dropped > 0) {
+        Tracer.logEvent(TRACER_EVENT_AUDIT, "Flush", Transaction.SUCCESS, String.format("dropped=%d", dropped));
+      }
+      return;
+    }
+
+    //the audits of the same instance go to the same worker, so the instance is created once
+    List<List<InstanceConfigAuditModel>> partitions = Lists.newArrayListWithCapacity(workers);
+    for (int i = 0; i < workers; i++) {
+      partitions.add(Lists.newArrayList());
+    }
+    long now = System.currentTimeMillis();
+    long oldestOfferTime = now;
+    int count = 0;
+    for (String auditKey : audits.keySet()) {
+      InstanceConfigAuditModel auditModel = audits.remove(auditKey);
+      if (auditModel == null) {
+        continue;
+      }
+      int partition = (assembleInstanceKey(auditModel).hashCode() & Integer.MAX_VALUE) % workers;
+      partitions.get(partition).add(auditModel);
+      oldestOfferTime = Math.min(oldestOfferTime, auditModel.getOfferTime().getTime());
+      count++;
+    }
+
+    int batch = Math.max(1, bizConfig.instanceConfigAuditBatch());
+    List<Future<?>> futures = Lists.newArrayListWithCapacity(workers);
+    for (List<InstanceConfigAuditModel> partition : partitions) {
+      if (partition.isEmpty()) {
+        continue;
+      }
+      futures.add(auditExecutorService.submit(() -> {
+        for (List<InstanceConfigAuditModel> auditModels : Lists.partition(partition, batch)) {
+          try {
+            doAudits(auditModels);
+          } catch (Throwable ex) {
+            Tracer.logError(ex);
+            logger.error("Audit {} instance configs failed", auditModels.size(), ex);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
+      }
+    }
+
+    lastFlushLagInMilli = now - oldestOfferTime;
+    Tracer.logEvent(TRACER_EVENT_AUDIT, "Flush", Transaction.SUCCESS,
+        String.format("audits=%d&dropped=%d&lagInMilli=%d&costInMilli=%d", count, dropped, lastFlushLagInMilli,
+            System.currentTimeMillis() - now));
+  }
+
+  /**
+   * audit the models of different instance+configAppId+configNamespace in batch
+   */
+  void doAudits(List<InstanceConfigAuditModel> auditModels) {
+    Map<String, Long> instanceIds = prepareInstanceIds(auditModels);
+
+    //instanceId+configAppId+configNamespace -> audit, skip the ones with the same release key as cached
+    Map<String, InstanceConfigAuditModel> changedAudits = Maps.newLinkedHashMap();
+    Map<String, Long> changedInstanceIds = Maps.newHashMap();
+    for (InstanceConfigAuditModel auditModel : auditModels) {
+      long instanceId = instanceIds.get(assembleInstanceKey(auditModel));
+      String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel
+          .getConfigAppId(), auditModel.getConfigNamespace());
+      String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
+      if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
+        continue;
+      }
+      changedAudits.put(instanceConfigCacheKey, auditModel);
+      changedInstanceIds.put(instanceConfigCacheKey, instanceId);
+    }
+    if (changedAudits.isEmpty()) {
+      return;
+    }
+
+    try {
+      Map<String, InstanceConfig> instanceConfigs = Maps.newHashMap();
+      for (InstanceConfig instanceConfig : instanceService
+          .findInstanceConfigsByInstanceIds(Sets.newHashSet(changedInstanceIds.values()))) {
+        instanceConfigs.put(assembleInstanceConfigKey(instanceConfig.getInstanceId(),
+            instanceConfig.getConfigAppId(), instanceConfig.getConfigNamespaceName()), instanceConfig);
+      }
+
+      List<InstanceConfig> toUpdate = Lists.newArrayList();
+      List<InstanceConfig> toCreate = Lists.newArrayList();
+      for (Map.Entry<String, InstanceConfigAuditModel> entry : changedAudits.entrySet()) {
+        InstanceConfigAuditModel auditModel = entry.getValue();
+        instanceConfigReleaseKeyCache.put(entry.getKey(), auditModel.getReleaseKey());
+
+        InstanceConfig instanceConfig = instanceConfigs.get(entry.getKey());
+        if (instanceConfig == null) {
+          toCreate.add(assembleInstanceConfig(changedInstanceIds.get(entry.getKey()), auditModel));
+        } else if (prepareInstanceConfigUpdate(instanceConfig, auditModel)) {
+          toUpdate.add(instanceConfig);
+        }
+      }
+
+      if (!toUpdate.isEmpty()) {
+        instanceService.batchUpdateInstanceConfigs(toUpdate);
+      }
+      if (!toCreate.isEmpty()) {
+        createInstanceConfigs(toCreate);
+      }
+    } catch (Throwable ex) {
+      //audit them again next time
+      instanceConfigReleaseKeyCache.invalidateAll(changedAudits.keySet());
+      throw ex;
+    }
   }
 
   void doAudit(InstanceConfigAuditModel auditModel) {
-    String instanceCacheKey = assembleInstanceKey(auditModel.getAppId(), auditModel
-        .getClusterName(), auditModel.getIp(), auditModel.getDataCenter());
+    String instanceCacheKey = assembleInstanceKey(auditModel);
     Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
     if (instanceId == null) {
       instanceId = prepareInstanceId(auditModel);
@@ -90,23 +271,40 @@ public class InstanceConfigAuditUtil implements InitializingBean {
         .getConfigAppId(), auditModel.getConfigNamespace());
 
     if (instanceConfig != null) {
-      if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
-        instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
-        instanceConfig.setReleaseKey(auditModel.getReleaseKey());
-        instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
-      } else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(),
-          instanceConfig.getDataChangeLastModifiedTime())) {
-        //when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
-        return;
+      if (prepareInstanceConfigUpdate(instanceConfig, auditModel)) {
+        instanceService.updateInstanceConfig(instanceConfig);
       }
-      //we need to update no matter the release key is the same or not, to ensure the
-      //last modified time is updated each day
-      instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
-      instanceService.updateInstanceConfig(instanceConfig);
       return;
     }
 
-    instanceConfig = new InstanceConfig();
+    try {
+      instanceService.createInstanceConfig(assembleInstanceConfig(instanceId, auditModel));
+    } catch (DataIntegrityViolationException ex) {
+      //concurrent insertion, safe to ignore
+    }
+  }
+
+  /**
+   * @return false if the instance config needs no update
+   */
+  private boolean prepareInstanceConfigUpdate(InstanceConfig instanceConfig, InstanceConfigAuditModel auditModel) {
+    if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
+      instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
+      instanceConfig.setReleaseKey(auditModel.getReleaseKey());
+      instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
+    } else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(),
+        instanceConfig.getDataChangeLastModifiedTime())) {
+      //when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
+      return false;
+    }
+    //we need to update no matter the release key is the same or not, to ensure the
+    //last modified time is updated each day
+    instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
+    return true;
+  }
+
+  private InstanceConfig assembleInstanceConfig(long instanceId, InstanceConfigAuditModel auditModel) {
+    InstanceConfig instanceConfig = new InstanceConfig();
     instanceConfig.setInstanceId(instanceId);
     instanceConfig.setConfigAppId(auditModel.getConfigAppId());
     instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
@@ -114,14 +312,93 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     instanceConfig.setReleaseKey(auditModel.getReleaseKey());
     instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
     instanceConfig.setDataChangeCreatedTime(auditModel.getOfferTime());
+    return instanceConfig;
+  }
 
+  private void createInstanceConfigs(List<InstanceConfig> instanceConfigs) {
     try {
-      instanceService.createInstanceConfig(instanceConfig);
+      instanceService.batchCreateInstanceConfigs(instanceConfigs);
     } catch (DataIntegrityViolationException ex) {
-      //concurrent insertion, safe to ignore
+      //concurrent insertion by other nodes, create them one by one and ignore the existing ones
+      for (InstanceConfig instanceConfig : instanceConfigs) {
+        try {
+          instanceService.createInstanceConfig(instanceConfig);
+        } catch (DataIntegrityViolationException e) {
+          //concurrent insertion, safe to ignore
+        }
+      }
     }
   }
 
+  /**
+   * @return instance key -> instance id of the audits
+   */
+  private Map<String, Long> prepareInstanceIds(List<InstanceConfigAuditModel> auditModels) {
+    Map<String, Long> instanceIds = Maps.newHashMap();
+    //appId+cluster+dataCenter -> the audits whose instance id is not cached
+    ListMultimap<String, InstanceConfigAuditModel> uncachedAudits = ArrayListMultimap.create();
+    for (InstanceConfigAuditModel auditModel : auditModels) {
+      String instanceKey = assembleInstanceKey(auditModel);
+      if (instanceIds.containsKey(instanceKey)) {
+        continue;
+      }
+      Long instanceId = instanceCache.getIfPresent(instanceKey);
+      if (instanceId != null) {
+        instanceIds.put(instanceKey, instanceId);
+        continue;
+      }
+      //placeholder, so the instance is looked up once
+      instanceIds.put(instanceKey, null);
+      uncachedAudits.put(STRING_JOINER.join(auditModel.getAppId(), auditModel.getClusterName(),
+          auditModel.getDataCenter()), auditModel);
+    }
+    if (uncachedAudits.isEmpty()) {
+      return instanceIds;
+    }
+
+    List<InstanceConfigAuditModel> missingAudits = Lists.newArrayList();
+    for (String group : uncachedAudits.keySet()) {
+      List<InstanceConfigAuditModel> groupAudits = uncachedAudits.get(group);
+      InstanceConfigAuditModel someAudit = groupAudits.get(0);
+      List<String> ips = Lists.transform(groupAudits, InstanceConfigAuditModel::getIp);
+      for (Instance instance : instanceService.findInstances(someAudit.getAppId(), someAudit.getClusterName(),
+          someAudit.getDataCenter(), ips)) {
+        putInstanceId(instanceIds, assembleInstanceKey(instance.getAppId(), instance.getClusterName(),
+            instance.getIp(), instance.getDataCenter()), instance.getId());
+      }
+      for (InstanceConfigAuditModel auditModel : groupAudits) {
+        if (instanceIds.get(assembleInstanceKey(auditModel)) == null) {
+          missingAudits.add(auditModel);
+        }
+      }
+    }
+
+    if (!missingAudits.isEmpty()) {
+      createInstances(instanceIds, missingAudits);
+    }
+    return instanceIds;
+  }
+
+  private void createInstances(Map<String, Long> instanceIds, List<InstanceConfigAuditModel> auditModels) {
+    List<Instance> instances = Lists.transform(auditModels, this::assembleInstance);
+    try {
+      for (Instance instance : instanceService.batchCreateInstances(Lists.newArrayList(instances))) {
+        putInstanceId(instanceIds, assembleInstanceKey(instance.getAppId(), instance.getClusterName(),
+            instance.getIp(), instance.getDataCenter()), instance.getId());
+      }
+    } catch (DataIntegrityViolationException ex) {
+      //concurrent insertion by other nodes, prepare them one by one
+      for (InstanceConfigAuditModel auditModel : auditModels) {
+        putInstanceId(instanceIds, assembleInstanceKey(auditModel), prepareInstanceId(auditModel));
+      }
+    }
+  }
+
+  private void putInstanceId(Map<String, Long> instanceIds, String instanceKey, long instanceId) {
+    instanceIds.put(instanceKey, instanceId);
+    instanceCache.put(instanceKey, instanceId);
+  }
+
   private boolean offerTimeAndLastModifiedTimeCloseEnough(Date offerTime, Date lastModifiedTime) {
     return (offerTime.getTime() - lastModifiedTime.getTime()) <
         OFFER_TIME_LAST_MODIFIED_TIME_THRESHOLD_IN_MILLI;
@@ -133,12 +410,7 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     if (instance != null) {
       return instance.getId();
     }
-    instance = new Instance();
-    instance.setAppId(auditModel.getAppId());
-    instance.setClusterName(auditModel.getClusterName());
-    instance.setDataCenter(auditModel.getDataCenter());
-    instance.setIp(auditModel.getIp());
-
+    instance = assembleInstance(auditModel);
 
     try {
       return instanceService.createInstance(instance).getId();
@@ -149,22 +421,41 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     }
   }
 
+  private Instance assembleInstance(InstanceConfigAuditModel auditModel) {
+    Instance instance = new Instance();
+    instance.setAppId(auditModel.getAppId());
+    instance.setClusterName(auditModel.getClusterName());
+    instance.setDataCenter(auditModel.getDataCenter());
+    instance.setIp(auditModel.getIp());
+    return instance;
+  }
+
   @Override
   public void afterPropertiesSet() throws Exception {
-    auditExecutorService.submit(() -> {
-      while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
-        try {
-          InstanceConfigAuditModel model = audits.poll();
-          if (model == null) {
-            TimeUnit.SECONDS.sleep(1);
-            continue;
-          }
-          doAudit(model);
-        } catch (Throwable ex) {
-          Tracer.logError(ex);
-        }
+    scheduleNextFlush();
+  }
+
+  private void scheduleNextFlush() {
+    flushExecutorService.schedule(() -> {
+      try {
+        flush();
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
+        logger.error("Flush instance config audits failed", ex);
+      } finally {
+        scheduleNextFlush();
       }
-    });
+    }, Math.max(10, bizConfig.instanceConfigAuditFlushIntervalInMilli()), TimeUnit.MILLISECONDS);
+  }
+
+  private String assembleAuditKey(InstanceConfigAuditModel auditModel) {
+    return STRING_JOINER.join(assembleInstanceKey(auditModel), auditModel.getConfigAppId(),
+        auditModel.getConfigNamespace());
+  }
+
+  private String assembleInstanceKey(InstanceConfigAuditModel auditModel) {
+    return assembleInstanceKey(auditModel.getAppId(), auditModel.getClusterName(), auditModel.getIp(),
+        auditModel.getDataCenter());
   }
 
   private String assembleInstanceKey(String appId, String cluster, String ip, String datacenter) {
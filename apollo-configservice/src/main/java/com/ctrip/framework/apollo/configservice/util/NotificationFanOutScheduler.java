@@ -0,0 +1,246 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 大量客户端通知的限速分发
+ * <p>
+ * Rate shaped fan-out of release notifications to a large number of long polling clients.
+ * <ul>
+ * <li>rate: a token bucket refilled to {@link BizConfig#releaseMessageNotificationBatch()} tokens every
+ * {@link BizConfig#releaseMessageNotificationBatchIntervalInMilli()}, driven by a scheduled tick instead of sleeps.
+ * The tick pauses when nothing is pending and resumes on submit</li>
+ * <li>fairness: pending keys are served round robin, each key gets an equal share of the tokens per round, so a
+ * small fan-out is not queued behind a huge one</li>
+ * <li>parallelism: each tick hands the pending keys to {@link BizConfig#releaseMessageNotificationWorkers()} workers</li>
+ * </ul>
+ * The queue depth, pending keys and last notify latency are exposed as gauges of the actuator metrics endpoint.
+ */
+@Component
+public class NotificationFanOutScheduler implements MeterBinder {
+  private static final Logger logger = LoggerFactory.getLogger(NotificationFanOutScheduler.class);
+  private static final String TRACER_EVENT_FAN_OUT = "Apollo.LongPoll.FanOut";
+
+  private final BizConfig bizConfig;
+  private final int workers;
+  private final ScheduledExecutorService executorService;
+  private final Deque<FanOutTask> pendingTasks = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger pendingKeys = new AtomicInteger();
+  private final AtomicLong queueDepth = new AtomicLong();
+  private final AtomicInteger tokens = new AtomicInteger();
+  private final AtomicBoolean ticking = new AtomicBoolean();
+  private final LongSupplier clock;
+  private volatile long lastNotifyLatencyInMilli;
+
+  @Autowired
+  public NotificationFanOutScheduler(final BizConfig bizConfig) {
+    this(bizConfig, Executors.newScheduledThreadPool(Math.max(1, bizConfig.releaseMessageNotificationWorkers()),
+        ApolloThreadFactory.create("NotificationFanOutScheduler", true)), System::currentTimeMillis);
+  }
+
+  /**
+   * @param clock current time in milliseconds
+   */
+  NotificationFanOutScheduler(final BizConfig bizConfig, ScheduledExecutorService executorService,
+      LongSupplier clock) {
+    this.bizConfig = bizConfig;
+    this.workers = Math.max(1, bizConfig.releaseMessageNotificationWorkers());
+    this.executorService = executorService;
+    this.clock = clock;
+    tokens.set(bizConfig.releaseMessageNotificationBatch());
+  }
+
+  /**
+   * Notify the results of the watch key, the first batch is notified as soon as tokens are available
+   */
+  public void submit(String watchKey, List<DeferredResultWrapper> results,
+      ApolloConfigNotification notification) {
+    logger.debug("Async notify {} clients for key {} with batch {}", results.size(), watchKey,
+        bizConfig.releaseMessageNotificationBatch());
+    queueDepth.addAndGet(results.size());
+    pendingKeys.incrementAndGet();
+    pendingTasks.offer(new FanOutTask(watchKey, results, notification, clock.getAsLong()));
+    resumeTicking();
+    executorService.execute(this::drain);
+  }
+
+  /**
+   * @return the number of clients waiting to be notified
+   */
+  public long getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  /**
+   * @return the number of watch keys which still have clients waiting to be notified
+   */
+  public int getPendingKeys() {
+    return pendingKeys.get();
+  }
+
+  /**
+   * @return the time between submitting and notifying the last client of the latest completed watch key
+   */
+  public long getLastNotifyLatencyInMilli() {
+    return lastNotifyLatencyInMilli;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("apollo.longpoll.fanout.queue.depth", this, NotificationFanOutScheduler::getQueueDepth)
+        .description("The number of clients waiting to be notified").register(registry);
+    Gauge.builder("apollo.longpoll.fanout.pending.keys", this, NotificationFanOutScheduler::getPendingKeys)
+        .description("The number of watch keys which still have clients waiting to be notified").register(registry);
+    Gauge.builder("apollo.longpoll.fanout.last.latency", this,
+        NotificationFanOutScheduler::getLastNotifyLatencyInMilli)
+        .description("The notify latency of the latest completed watch key").baseUnit("milliseconds")
+        .register(registry);
+  }
+
+  /**
+   * the bucket is refilled by the tick before pausing, so it's full when resumed
+   */
+  private void resumeTicking() {
+    if (ticking.compareAndSet(false, true)) {
+      scheduleNextTick();
+    }
+  }
+
+  private void scheduleNextTick() {
+    executorService.schedule(this::tick,
+        Math.max(1, bizConfig.releaseMessageNotificationBatchIntervalInMilli()), TimeUnit.MILLISECONDS);
+  }
+
+  private void tick() {
+    try {
+      tokens.set(bizConfig.releaseMessageNotificationBatch());
+      if (!pendingTasks.isEmpty()) {
+        for (int i = 0; i < workers; i++) {
+          executorService.execute(this::drain);
+        }
+      }
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.error("Fan out notification tick failed", ex);
+    } finally {
+      //tasks being drained are not in the queue, so count the keys instead
+      if (pendingKeys.get() == 0) {
+        //pause, and check again in case a task is submitted before the flag is cleared
+        ticking.set(false);
+        if (pendingKeys.get() > 0) {
+          resumeTicking();
+        }
+      } else {
+        scheduleNextTick();
+      }
+    }
+  }
+
+  private void drain() {
+    FanOutTask task;
+    while ((task = pendingTasks.poll()) != null) {
+      int share = Math.max(1, bizConfig.releaseMessageNotificationBatch() / Math.max(1, pendingKeys.get()));
+      int acquired = acquireTokens(Math.min(share, task.remaining()));
+      if (acquired == 0) {
+        //no tokens left in this round, keep its turn for the next tick
+        pendingTasks.offerFirst(task);
+        return;
+      }
+
+      task.notifyNext(acquired);
+      queueDepth.addAndGet(-acquired);
+
+      if (task.remaining() > 0) {
+        pendingTasks.offer(task);
+      } else {
+        pendingKeys.decrementAndGet();
+        complete(task);
+      }
+    }
+  }
+
+  private int acquireTokens(int requested) {
+    int capacity = bizConfig.releaseMessageNotificationBatch();
+    while (true) {
+      int current = tokens.get();
+      //the batch might be lowered at runtime
+      int available = Math.min(current, capacity);
+      int acquired = Math.min(available, requested);
+      if (acquired <= 0) {
+        return 0;
+      }
+      if (tokens.compareAndSet(current, available - acquired)) {
+        return acquired;
+      }
+    }
+  }
+
+  private void complete(FanOutTask task) {
+    long latency = clock.getAsLong() - task.submitTime;
+    lastNotifyLatencyInMilli = latency;
+    Tracer.logEvent(TRACER_EVENT_FAN_OUT, task.watchKey, Transaction.SUCCESS,
+        String.format("clients=%d&latencyInMilli=%d&queueDepth=%d", task.results.size(), latency,
+            queueDepth.get()));
+    logger.debug("Async notify {} clients for key {} completed in {} ms", task.results.size(),
+        task.watchKey, latency);
+  }
+
+  private static class FanOutTask {
+    private final String watchKey;
+    private final List<DeferredResultWrapper> results;
+    private final ApolloConfigNotification notification;
+    private final long submitTime;
+    private int cursor;
+
+    FanOutTask(String watchKey, List<DeferredResultWrapper> results,
+        ApolloConfigNotification notification, long submitTime) {
+      this.watchKey = watchKey;
+      this.results = results;
+      this.notification = notification;
+      this.submitTime = submitTime;
+    }
+
+    int remaining() {
+      return results.size() - cursor;
+    }
+
+    /**
+     * only invoked by the worker which has polled this task from the queue
+     */
+    void notifyNext(int count) {
+      int end = cursor + count;
+      for (; cursor < end; cursor++) {
+        logger.debug("Async notify {}", results.get(cursor));
+        try {
+          results.get(cursor).setResult(notification);
+        } catch (Throwable ex) {
+          Tracer.logError(ex);
+          logger.error("Async notify {} failed", results.get(cursor), ex);
+        }
+      }
+    }
+  }
+}
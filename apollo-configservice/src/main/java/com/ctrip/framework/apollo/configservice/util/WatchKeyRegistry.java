@@ -0,0 +1,70 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Watch Key 与监听者的并发索引
+ * <p>
+ * Concurrent index from watch key to its watchers. Registration and removal only lock the hash bin
+ * of the watch key, while lookups are lock free and return weakly consistent views, so iterating
+ * while other threads register or complete never throws ConcurrentModificationException.
+ * <p>
+ * Per-key sets are concurrent hash sets rather than copy-on-write sets, because hot keys may have
+ * tens of thousands of watchers and copying the whole array on every register would be O(n).
+ */
+public class WatchKeyRegistry<T> {
+  private final ConcurrentMap<String, Set<T>> watchers = new ConcurrentHashMap<>();
+
+  /**
+   * register the watcher for the watch key
+   */
+  public void register(String watchKey, T watcher) {
+    watchers.compute(watchKey, (key, keyWatchers) -> {
+      if (keyWatchers == null) {
+        keyWatchers = ConcurrentHashMap.newKeySet();
+      }
+      keyWatchers.add(watcher);
+      return keyWatchers;
+    });
+  }
+
+  /**
+   * unregister the watcher for the watch key, the key is removed when it has no watchers left
+   */
+  public void unregister(String watchKey, T watcher) {
+    watchers.computeIfPresent(watchKey, (key, keyWatchers) -> {
+      keyWatchers.remove(watcher);
+      return keyWatchers.isEmpty() ? null : keyWatchers;
+    });
+  }
+
+  public boolean containsKey(String watchKey) {
+    return watchers.containsKey(watchKey);
+  }
+
+  /**
+   * @return a weakly consistent, read only view of the watchers of the watch key
+   */
+  public Collection<T> get(String watchKey) {
+    Set<T> keyWatchers = watchers.get(watchKey);
+    if (keyWatchers == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(keyWatchers);
+  }
+
+  /**
+   * @return the number of watch key and watcher pairs
+   */
+  public int size() {
+    int size = 0;
+    for (Set<T> keyWatchers : watchers.values()) {
+      size += keyWatchers.size();
+    }
+    return size;
+  }
+}
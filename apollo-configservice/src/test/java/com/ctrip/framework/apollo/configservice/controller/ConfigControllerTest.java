@@ -1,9 +1,14 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.ReleaseConfigurationCache;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
@@ -12,6 +17,7 @@ import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import org.junit.Before;
@@ -19,12 +25,26 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -40,6 +60,8 @@ public class ConfigControllerTest {
   private ConfigService configService;
   @Mock
   private AppNamespaceServiceWithCache appNamespaceService;
+  @Mock
+  private ReleaseService releaseService;
   private String someAppId;
   private String someClusterName;
   private String defaultClusterName;
@@ -60,12 +82,17 @@ public class ConfigControllerTest {
   private InstanceConfigAuditUtil instanceConfigAuditUtil;
   @Mock
   private HttpServletRequest someRequest;
+  @Mock
+  private BizConfig bizConfig;
+  private ConfigResponseCache configResponseCache;
   private Gson gson = new Gson();
 
   @Before
   public void setUp() throws Exception {
+    configResponseCache = new ConfigResponseCache();
     configController = spy(new ConfigController(
-        configService, appNamespaceService, namespaceUtil, instanceConfigAuditUtil, gson
+        configService, appNamespaceService, namespaceUtil, instanceConfigAuditUtil, configResponseCache,
+        releaseService, new ContentEncodingUtil(bizConfig), new ReleaseConfigurationCache(), gson
     ));
 
     someAppId = "1";
@@ -116,6 +143,385 @@ public class ConfigControllerTest {
         someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
   }
 
+  @Test
+  public void testQueryConfigResponseIsCached() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, new MockHttpServletRequest(), someResponse);
+    MockHttpServletResponse anotherResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, new MockHttpServletRequest(), anotherResponse);
+
+    ApolloConfig result = gson.fromJson(someResponse.getContentAsString(), ApolloConfig.class);
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    assertEquals("foo", result.getConfigurations().get("apollo.bar"));
+    assertArrayEquals(someResponse.getContentAsByteArray(), anotherResponse.getContentAsByteArray());
+    //configurations are only parsed once
+    verify(someRelease, times(1)).getConfigurations();
+    verify(instanceConfigAuditUtil, times(2)).audit(someAppId, someClusterName, someDataCenter,
+        someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
+  }
+
+  @Test
+  public void testQueryConfigResponseWithGzip() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+
+    MockHttpServletRequest someGzipRequest = new MockHttpServletRequest();
+    someGzipRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, someGzipRequest, someResponse);
+
+    assertEquals("gzip", someResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(someResponse.getContentAsByteArray()))) {
+      ApolloConfig result = gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), ApolloConfig.class);
+      assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    }
+  }
+
+  @Test
+  public void testQueryConfigResponseWithDeflate() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+
+    MockHttpServletRequest someDeflateRequest = new MockHttpServletRequest();
+    someDeflateRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0.5, deflate");
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, someDeflateRequest, someResponse);
+
+    assertEquals("deflate", someResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+    try (InflaterInputStream in = new InflaterInputStream(
+        new ByteArrayInputStream(someResponse.getContentAsByteArray()))) {
+      ApolloConfig result = gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), ApolloConfig.class);
+      assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    }
+  }
+
+  @Test
+  public void testQueryConfigResponseBelowCompressionThreshold() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+
+    when(bizConfig.configResponseCompressionThreshold()).thenReturn(1024);
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+
+    MockHttpServletRequest someGzipRequest = new MockHttpServletRequest();
+    someGzipRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, someGzipRequest, someResponse);
+
+    assertNull(someResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+    ApolloConfig result = gson.fromJson(someResponse.getContentAsString(), ApolloConfig.class);
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+  }
+
+  @Test
+  public void testQueryConfigResponseWithDelta() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    Release someBaseRelease = mock(Release.class);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(someRelease.getConfigurations())
+        .thenReturn("{\"apollo.bar\": \"foo\", \"apollo.baz\": \"foo\", \"apollo.qux\": \"foo\", "
+            + "\"apollo.foo\": \"bar\", \"apollo.new\": \"new\"}");
+    when(someBaseRelease.getAppId()).thenReturn(someAppId);
+    when(someBaseRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(someBaseRelease.getReleaseKey()).thenReturn(someClientSideReleaseKey);
+    when(someBaseRelease.getConfigurations())
+        .thenReturn("{\"apollo.bar\": \"foo\", \"apollo.baz\": \"foo\", \"apollo.qux\": \"foo\", "
+            + "\"apollo.foo\": \"foo\", \"apollo.deleted\": \"foo\"}");
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someClientSideReleaseKey)))
+        .thenReturn(Lists.newArrayList(someBaseRelease));
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, true, new MockHttpServletRequest(),
+        someResponse);
+
+    ApolloConfig result = gson.fromJson(someResponse.getContentAsString(), ApolloConfig.class);
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    assertEquals(someClientSideReleaseKey, result.getBaseReleaseKey());
+    assertEquals(ImmutableMap.of("apollo.foo", "bar", "apollo.new", "new"), result.getConfigurations());
+    assertEquals(Lists.newArrayList("apollo.deleted"), result.getDeletedKeys());
+  }
+
+  @Test
+  public void testQueryConfigResponseWithDeltaAndBaseReleaseOfAnotherApp() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    Release someBaseRelease = mock(Release.class);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(someRelease.getConfigurations())
+        .thenReturn("{\"apollo.bar\": \"foo\", \"apollo.baz\": \"foo\", \"apollo.qux\": \"foo\"}");
+    when(someBaseRelease.getAppId()).thenReturn("anotherAppId");
+    when(someBaseRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(someBaseRelease.getReleaseKey()).thenReturn(someClientSideReleaseKey);
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someClientSideReleaseKey)))
+        .thenReturn(Lists.newArrayList(someBaseRelease));
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, true, new MockHttpServletRequest(),
+        someResponse);
+
+    ApolloConfig result = gson.fromJson(someResponse.getContentAsString(), ApolloConfig.class);
+    assertFalse(result.isDelta());
+    assertNull(result.getDeletedKeys());
+    assertEquals(3, result.getConfigurations().size());
+    verify(someBaseRelease, never()).getConfigurations();
+  }
+
+  @Test
+  public void testQueryConfigResponseWithDeltaAndUnknownBaseRelease() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someClientSideReleaseKey)))
+        .thenReturn(Lists.newArrayList());
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, true, new MockHttpServletRequest(),
+        someResponse);
+
+    ApolloConfig result = gson.fromJson(someResponse.getContentAsString(), ApolloConfig.class);
+    assertFalse(result.isDelta());
+    assertEquals("foo", result.getConfigurations().get("apollo.bar"));
+  }
+
+  @Test
+  public void testQueryConfigResponseWithDeltaAndUnknownBaseReleaseNotCachedUnderDeltaKey() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someClientSideReleaseKey)))
+        .thenReturn(Lists.newArrayList());
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, true, new MockHttpServletRequest(),
+        someResponse);
+
+    String cacheKey = configResponseCache.assembleCacheKey(someAppId, someClusterName, defaultNamespaceName,
+        someServerSideNewReleaseKey);
+    assertNotNull(configResponseCache.getIfPresent(cacheKey));
+    assertNull(configResponseCache.getIfPresent(
+        configResponseCache.assembleDeltaCacheKey(cacheKey, someClientSideReleaseKey)));
+  }
+
+  @Test
+  public void testQueryConfigsResponse() throws Exception {
+    String someServerSideNewReleaseKey = "2";
+    String anotherNamespaceName = "anotherNamespace";
+    String anotherReleaseKey = "3";
+    Release anotherRelease = mock(Release.class);
+
+    AppNamespace anotherAppNamespace = assembleAppNamespace(someAppId, anotherNamespaceName, false);
+
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(namespaceUtil.filterNamespaceName(anotherNamespaceName)).thenReturn(anotherNamespaceName);
+    when(appNamespaceService.findByAppIdAndNamespaces(someAppId,
+        Sets.newHashSet(defaultNamespaceName, anotherNamespaceName))).thenReturn(Lists.newArrayList(anotherAppNamespace));
+    when(configService.loadConfigs(someAppId, someClientIp, someAppId, someClusterName,
+        Sets.newHashSet(defaultNamespaceName, anotherNamespaceName), someDataCenter, someNotificationMessages))
+        .thenReturn(ImmutableMap.of(defaultNamespaceName, someRelease, anotherNamespaceName, anotherRelease));
+    when(anotherRelease.getReleaseKey()).thenReturn(anotherReleaseKey);
+
+    String namespaces = gson.toJson(ImmutableMap.of(defaultNamespaceName, "1", anotherNamespaceName,
+        anotherReleaseKey));
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigsResponse(someAppId, someClusterName, namespaces, someDataCenter, someClientIp,
+        someMessagesAsString, false, new MockHttpServletRequest(), someResponse);
+
+    ApolloConfig[] result = gson.fromJson(someResponse.getContentAsString(), ApolloConfig[].class);
+    //another namespace is not modified
+    assertEquals(1, result.length);
+    assertEquals(defaultNamespaceName, result[0].getNamespaceName());
+    assertEquals(someServerSideNewReleaseKey, result[0].getReleaseKey());
+    assertEquals("foo", result[0].getConfigurations().get("apollo.bar"));
+    verify(configController, times(1)).transformMessages(someMessagesAsString);
+    //the lookups are shared by the namespaces
+    verify(appNamespaceService, never()).findByAppIdAndNamespace(anyString(), anyString());
+    verify(configService, never()).loadConfig(anyString(), anyString(), anyString(), anyString(), anyString(),
+        anyString(), any(ApolloNotificationMessages.class));
+  }
+
+  @Test
+  public void testQueryConfigsResponseWithPublicNamespaces() throws Exception {
+    String somePublicAppId = "somePublicAppId";
+    String anotherPublicNamespaceName = "anotherPublicNamespace";
+    String somePublicReleaseKey = "2";
+    String anotherPublicReleaseKey = "3";
+    Release anotherPublicRelease = mock(Release.class);
+
+    when(namespaceUtil.filterNamespaceName(anotherPublicNamespaceName)).thenReturn(anotherPublicNamespaceName);
+    when(appNamespaceService.findPublicNamespacesByNames(
+        Sets.newHashSet(somePublicNamespaceName, anotherPublicNamespaceName))).thenReturn(Lists.newArrayList(
+        assemblePublicAppNamespace(somePublicAppId, somePublicNamespaceName),
+        assemblePublicAppNamespace(somePublicAppId, anotherPublicNamespaceName)));
+    when(configService.loadConfigs(someAppId, someClientIp, somePublicAppId, someClusterName,
+        Sets.newHashSet(somePublicNamespaceName, anotherPublicNamespaceName), someDataCenter,
+        someNotificationMessages)).thenReturn(ImmutableMap.of(somePublicNamespaceName, somePublicRelease,
+        anotherPublicNamespaceName, anotherPublicRelease));
+    when(somePublicRelease.getAppId()).thenReturn(somePublicAppId);
+    when(somePublicRelease.getReleaseKey()).thenReturn(somePublicReleaseKey);
+    when(somePublicRelease.getNamespaceName()).thenReturn(somePublicNamespaceName);
+    when(anotherPublicRelease.getAppId()).thenReturn(somePublicAppId);
+    when(anotherPublicRelease.getReleaseKey()).thenReturn(anotherPublicReleaseKey);
+    when(anotherPublicRelease.getNamespaceName()).thenReturn(anotherPublicNamespaceName);
+    when(anotherPublicRelease.getConfigurations()).thenReturn("{\"apollo.another\": \"bar\"}");
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigsResponse(someAppId, someClusterName,
+        gson.toJson(ImmutableMap.of(somePublicNamespaceName, "1", anotherPublicNamespaceName, "1")), someDataCenter,
+        someClientIp, someMessagesAsString, false, new MockHttpServletRequest(), someResponse);
+
+    ApolloConfig[] result = gson.fromJson(someResponse.getContentAsString(), ApolloConfig[].class);
+    assertEquals(2, result.length);
+    assertEquals(somePublicReleaseKey, result[0].getReleaseKey());
+    assertEquals("foo", result[0].getConfigurations().get("apollo.public.bar"));
+    assertEquals(anotherPublicReleaseKey, result[1].getReleaseKey());
+    assertEquals("bar", result[1].getConfigurations().get("apollo.another"));
+    //the public namespaces of the same app are loaded together
+    verify(configService, times(1)).loadConfigs(eq(someAppId), eq(someClientIp), eq(somePublicAppId),
+        eq(someClusterName), anySet(), eq(someDataCenter), eq(someNotificationMessages));
+  }
+
+  @Test
+  public void testQueryConfigsResponseWithGzip() throws Exception {
+    String someServerSideNewReleaseKey = "2";
+    String anotherNamespaceName = "anotherNamespace";
+    String anotherReleaseKey = "3";
+    Release anotherRelease = mock(Release.class);
+
+    AppNamespace anotherAppNamespace = assembleAppNamespace(someAppId, anotherNamespaceName, false);
+
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(namespaceUtil.filterNamespaceName(anotherNamespaceName)).thenReturn(anotherNamespaceName);
+    when(appNamespaceService.findByAppIdAndNamespaces(someAppId,
+        Sets.newHashSet(defaultNamespaceName, anotherNamespaceName))).thenReturn(Lists.newArrayList(anotherAppNamespace));
+    when(configService.loadConfigs(someAppId, someClientIp, someAppId, someClusterName,
+        Sets.newHashSet(defaultNamespaceName, anotherNamespaceName), someDataCenter, someNotificationMessages))
+        .thenReturn(ImmutableMap.of(defaultNamespaceName, someRelease, anotherNamespaceName, anotherRelease));
+    when(anotherRelease.getAppId()).thenReturn(someAppId);
+    when(anotherRelease.getClusterName()).thenReturn(someClusterName);
+    when(anotherRelease.getNamespaceName()).thenReturn(anotherNamespaceName);
+    when(anotherRelease.getReleaseKey()).thenReturn(anotherReleaseKey);
+    when(anotherRelease.getConfigurations()).thenReturn("{\"apollo.another\": \"bar\"}");
+
+    MockHttpServletRequest someGzipRequest = new MockHttpServletRequest();
+    someGzipRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigsResponse(someAppId, someClusterName,
+        gson.toJson(ImmutableMap.of(defaultNamespaceName, "1", anotherNamespaceName, "1")), someDataCenter,
+        someClientIp, someMessagesAsString, false, someGzipRequest, someResponse);
+
+    assertEquals("gzip", someResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+    //network streams may deliver little at a time and report nothing available between gzip members, so the
+    //response must be one member
+    InputStream networkStream = new FilterInputStream(new ByteArrayInputStream(someResponse.getContentAsByteArray())) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 1));
+      }
+
+      @Override
+      public int available() {
+        return 0;
+      }
+    };
+    try (GZIPInputStream in = new GZIPInputStream(networkStream)) {
+      ApolloConfig[] result = gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), ApolloConfig[].class);
+      assertEquals(2, result.length);
+      assertEquals("foo", result[0].getConfigurations().get("apollo.bar"));
+      assertEquals("bar", result[1].getConfigurations().get("apollo.another"));
+    }
+  }
+
+  @Test
+  public void testQueryConfigsResponseNotModified() throws Exception {
+    String someClientSideReleaseKey = "1";
+
+    when(configService.loadConfigs(someAppId, someClientIp, someAppId, someClusterName,
+        Sets.newHashSet(defaultNamespaceName), someDataCenter, someNotificationMessages))
+        .thenReturn(ImmutableMap.of(defaultNamespaceName, someRelease));
+    when(someRelease.getReleaseKey()).thenReturn(someClientSideReleaseKey);
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigsResponse(someAppId, someClusterName,
+        gson.toJson(ImmutableMap.of(defaultNamespaceName, someClientSideReleaseKey)), someDataCenter, someClientIp,
+        someMessagesAsString, false, new MockHttpServletRequest(), someResponse);
+
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, someResponse.getStatus());
+  }
+
+  @Test
+  public void testQueryConfigsResponseWithInvalidNamespaces() throws Exception {
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigsResponse(someAppId, someClusterName, "invalid", someDataCenter, someClientIp,
+        someMessagesAsString, false, new MockHttpServletRequest(), someResponse);
+
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, someResponse.getStatus());
+  }
+
+  @Test
+  public void testQueryConfigResponseNotModified() throws Exception {
+    String someClientSideReleaseKey = "1";
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someClientSideReleaseKey);
+
+    MockHttpServletResponse someResponse = new MockHttpServletResponse();
+    configController.queryConfigResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, false, new MockHttpServletRequest(), someResponse);
+
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, someResponse.getStatus());
+    assertEquals(0, someResponse.getContentAsByteArray().length);
+  }
+
   @Test
   public void testQueryConfigFile() throws Exception {
     String someClientSideReleaseKey = "1";
@@ -1,8 +1,11 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache.ConfigResponse;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
@@ -18,17 +21,23 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -46,6 +55,8 @@ public class ConfigFileControllerTest {
   private NamespaceUtil namespaceUtil;
   @Mock
   private GrayReleaseRulesHolder grayReleaseRulesHolder;
+  @Mock
+  private BizConfig bizConfig;
   private ConfigFileController configFileController;
   private String someAppId;
   private String someClusterName;
@@ -62,7 +73,8 @@ public class ConfigFileControllerTest {
   @Before
   public void setUp() throws Exception {
     configFileController = new ConfigFileController(
-        configController, namespaceUtil, watchKeysUtil, grayReleaseRulesHolder
+        configController, namespaceUtil, watchKeysUtil, grayReleaseRulesHolder,
+        new ContentEncodingUtil(bizConfig)
     );
 
     someAppId = "someAppId";
@@ -110,7 +122,7 @@ public class ConfigFileControllerTest {
         .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
         .thenReturn(watchKeys);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
@@ -123,10 +135,11 @@ public class ConfigFileControllerTest {
     assertTrue(cacheKey2WatchedKeys.containsEntry(cacheKey, anotherWatchKey));
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertTrue(response.getBody().contains(String.format("%s=%s", someKey, someValue)));
-    assertTrue(response.getBody().contains(String.format("%s=%s", anotherKey, anotherValue)));
+    String body = new String(response.getBody(), StandardCharsets.UTF_8);
+    assertTrue(body.contains(String.format("%s=%s", someKey, someValue)));
+    assertTrue(body.contains(String.format("%s=%s", anotherKey, anotherValue)));
 
-    ResponseEntity<String> anotherResponse =
+    ResponseEntity<byte[]> anotherResponse =
         configFileController
             .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
@@ -159,13 +172,50 @@ public class ConfigFileControllerTest {
         .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
         .thenReturn(watchKeys);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertEquals(configurations, gson.fromJson(response.getBody(), responseType));
+    assertEquals(configurations, gson.fromJson(new String(response.getBody(), StandardCharsets.UTF_8), responseType));
+  }
+
+  @Test
+  public void testQueryConfigAsJsonWithGzip() throws Exception {
+    String someKey = "someKey";
+    String someValue = "someValue";
+    Gson gson = new Gson();
+    Type responseType = new TypeToken<Map<String, String>>(){}.getType();
+
+    Map<String, String> configurations =
+        ImmutableMap.of(someKey, someValue);
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(someApolloConfig.getConfigurations()).thenReturn(configurations);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+    when(someRequest.getHeader(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip");
+
+    ResponseEntity<byte[]> response =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+    ResponseEntity<byte[]> anotherResponse =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    //the compressed response is cached as well
+    assertSame(response.getBody(), anotherResponse.getBody());
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+      assertEquals(configurations,
+          gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), responseType));
+    }
   }
 
   @Test
@@ -187,12 +237,12 @@ public class ConfigFileControllerTest {
         .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
             someRequest, someResponse)).thenReturn(someApolloConfig);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
-    ResponseEntity<String> anotherResponse =
+    ResponseEntity<byte[]> anotherResponse =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
@@ -202,7 +252,7 @@ public class ConfigFileControllerTest {
             someRequest, someResponse);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertEquals(configurations, gson.fromJson(response.getBody(), responseType));
+    assertEquals(configurations, gson.fromJson(new String(response.getBody(), StandardCharsets.UTF_8), responseType));
     assertTrue(watchedKeys2CacheKey.isEmpty());
     assertTrue(cacheKey2WatchedKeys.isEmpty());
   }
@@ -218,10 +268,10 @@ public class ConfigFileControllerTest {
     ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
     when(someReleaseMessage.getMessage()).thenReturn(someWatchKey);
 
-    Cache<String, String> cache =
-        (Cache<String, String>) ReflectionTestUtils.getField(configFileController, "localCache");
-    cache.put(someCacheKey, someValue);
-    cache.put(anotherCacheKey, someValue);
+    Cache<String, ConfigResponse> cache =
+        (Cache<String, ConfigResponse>) ReflectionTestUtils.getField(configFileController, "localCache");
+    cache.put(someCacheKey, new ConfigResponse(someValue.getBytes(StandardCharsets.UTF_8)));
+    cache.put(anotherCacheKey, new ConfigResponse(someValue.getBytes(StandardCharsets.UTF_8)));
 
     watchedKeys2CacheKey.putAll(someWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
     watchedKeys2CacheKey.putAll(anotherWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
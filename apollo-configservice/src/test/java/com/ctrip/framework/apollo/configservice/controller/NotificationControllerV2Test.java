@@ -6,6 +6,8 @@ import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationFanOutScheduler;
+import com.ctrip.framework.apollo.configservice.util.WatchKeyRegistry;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
@@ -62,18 +64,19 @@ public class NotificationControllerV2Test {
 
   private Gson gson;
 
-  private Multimap<String, DeferredResultWrapper> deferredResults;
+  private WatchKeyRegistry<DeferredResultWrapper> deferredResults;
 
   @Before
   public void setUp() throws Exception {
     gson = new Gson();
-    controller = new NotificationControllerV2(
-        watchKeysUtil, releaseMessageService, entityManagerUtil, namespaceUtil, gson, bizConfig
-    );
-
     when(bizConfig.releaseMessageNotificationBatch()).thenReturn(100);
     when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(5);
 
+    controller = new NotificationControllerV2(
+        watchKeysUtil, releaseMessageService, entityManagerUtil, namespaceUtil, gson, bizConfig,
+        new NotificationFanOutScheduler(bizConfig)
+    );
+
     someAppId = "someAppId";
     someCluster = "someCluster";
     defaultCluster = ConfigConsts.CLUSTER_NAME_DEFAULT;
@@ -89,7 +92,7 @@ public class NotificationControllerV2Test {
     when(namespaceUtil.normalizeNamespace(someAppId, somePublicNamespace)).thenReturn(somePublicNamespace);
 
     deferredResults =
-        (Multimap<String, DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
+        (WatchKeyRegistry<DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
   }
 
   @Test
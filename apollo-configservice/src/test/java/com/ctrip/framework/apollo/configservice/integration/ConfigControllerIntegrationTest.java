@@ -68,6 +68,25 @@ public class ConfigControllerIntegrationTest extends AbstractBaseIntegrationTest
     assertEquals("v1", result.getConfigurations().get("k1"));
   }
 
+  @Test
+  @Sql(scripts = "/integration-test/test-release.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/integration-test/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testQueryConfigsWithDefaultCluster() throws Exception {
+    String namespaces = String.format("{\"%s\":\"\",\"%s\":\"TEST-RELEASE-KEY6\"}",
+        ConfigConsts.NAMESPACE_APPLICATION, "anotherNamespace");
+    ResponseEntity<ApolloConfig[]> response = restTemplate
+        .getForEntity("http://{baseurl}/configs/batch?appId={appId}&cluster={clusterName}&namespaces={namespaces}",
+            ApolloConfig[].class, getHostUrl(), someAppId, ConfigConsts.CLUSTER_NAME_DEFAULT, namespaces);
+    ApolloConfig[] result = response.getBody();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    //another namespace is not modified
+    assertEquals(1, result.length);
+    assertEquals(ConfigConsts.NAMESPACE_APPLICATION, result[0].getNamespaceName());
+    assertEquals("TEST-RELEASE-KEY1", result[0].getReleaseKey());
+    assertEquals("v1", result[0].getConfigurations().get("k1"));
+  }
+
   @Test
   @Sql(scripts = "/integration-test/test-release.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
   @Sql(scripts = "/integration-test/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
@@ -0,0 +1,111 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil.ContentEncoding;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ConfigResponseCacheTest {
+  private ConfigResponseCache configResponseCache;
+  private String someAppId;
+  private String someClusterName;
+  private String someNamespaceName;
+  private String someCacheKey;
+  private Set<String> someNamespaceKeys;
+  private AtomicInteger loadTimes;
+  private Supplier<byte[]> someLoader;
+
+  @Before
+  public void setUp() throws Exception {
+    configResponseCache = new ConfigResponseCache();
+    someAppId = "someAppId";
+    someClusterName = "someCluster";
+    someNamespaceName = "someNamespace";
+    someCacheKey = configResponseCache.assembleCacheKey(someAppId, someClusterName, someNamespaceName, "someKey");
+    someNamespaceKeys = Sets.newHashSet(configResponseCache.assembleNamespaceKey(someAppId, someNamespaceName));
+    loadTimes = new AtomicInteger();
+    someLoader = () -> {
+      loadTimes.incrementAndGet();
+      return "{\"some\":\"config\"}".getBytes(StandardCharsets.UTF_8);
+    };
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    ConfigResponseCache.ConfigResponse someResponse =
+        configResponseCache.get(someCacheKey, someNamespaceKeys, someLoader);
+    ConfigResponseCache.ConfigResponse anotherResponse =
+        configResponseCache.get(someCacheKey, someNamespaceKeys, someLoader);
+
+    assertSame(someResponse, anotherResponse);
+    assertEquals(1, loadTimes.get());
+  }
+
+  @Test
+  public void testGetGzippedBody() throws Exception {
+    ConfigResponseCache.ConfigResponse someResponse =
+        configResponseCache.get(someCacheKey, someNamespaceKeys, someLoader);
+
+    byte[] gzippedBody = someResponse.getBody(ContentEncoding.GZIP);
+
+    assertSame(gzippedBody, someResponse.getBody(ContentEncoding.GZIP));
+    assertSame(someResponse.getBody(), someResponse.getBody(ContentEncoding.IDENTITY));
+    assertArrayEquals(someResponse.getBody(), gunzip(gzippedBody));
+  }
+
+  @Test
+  public void testInvalidateByReleaseMessage() throws Exception {
+    configResponseCache.get(someCacheKey, someNamespaceKeys, someLoader);
+
+    configResponseCache.handleMessage(assembleReleaseMessage(someAppId, "anotherCluster", someNamespaceName),
+        Topics.APOLLO_RELEASE_TOPIC);
+    configResponseCache.get(someCacheKey, someNamespaceKeys, someLoader);
+
+    assertEquals(2, loadTimes.get());
+  }
+
+  @Test
+  public void testIgnoreUnrelatedReleaseMessage() throws Exception {
+    configResponseCache.get(someCacheKey, someNamespaceKeys, someLoader);
+
+    configResponseCache.handleMessage(assembleReleaseMessage(someAppId, someClusterName, "anotherNamespace"),
+        Topics.APOLLO_RELEASE_TOPIC);
+    configResponseCache.handleMessage(assembleReleaseMessage("anotherAppId", someClusterName, someNamespaceName),
+        Topics.APOLLO_RELEASE_TOPIC);
+    configResponseCache.handleMessage(assembleReleaseMessage(someAppId, someClusterName, someNamespaceName),
+        "someInvalidChannel");
+    configResponseCache.get(someCacheKey, someNamespaceKeys, someLoader);
+
+    assertEquals(1, loadTimes.get());
+  }
+
+  private ReleaseMessage assembleReleaseMessage(String appId, String clusterName, String namespaceName) {
+    return new ReleaseMessage(String.join("+", appId, clusterName, namespaceName));
+  }
+
+  private byte[] gunzip(byte[] data) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return out.toByteArray();
+  }
+}
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.configservice.service.config;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.collect.Lists;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
@@ -10,6 +11,9 @@ import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 
+import com.google.common.base.Strings;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -19,6 +23,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -36,6 +41,8 @@ public class ConfigServiceWithCacheTest {
   @Mock
   private ReleaseMessageService releaseMessageService;
   @Mock
+  private BizConfig bizConfig;
+  @Mock
   private Release someRelease;
   @Mock
   private ReleaseMessage someReleaseMessage;
@@ -52,7 +59,9 @@ public class ConfigServiceWithCacheTest {
     configServiceWithCache = new ConfigServiceWithCache();
     ReflectionTestUtils.setField(configServiceWithCache, "releaseService", releaseService);
     ReflectionTestUtils.setField(configServiceWithCache, "releaseMessageService", releaseMessageService);
+    ReflectionTestUtils.setField(configServiceWithCache, "bizConfig", bizConfig);
 
+    when(bizConfig.configServiceCacheMaxSizeInMB()).thenReturn(256);
     configServiceWithCache.initialize();
 
     someAppId = "someAppId";
@@ -276,4 +285,153 @@ public class ConfigServiceWithCacheTest {
     verify(releaseMessageService, times(1)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
     verify(releaseService, times(1)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
   }
+
+  @Test
+  public void testFindLatestActiveReleaseWhileRefreshing() throws Exception {
+    long someNewNotificationId = someNotificationId + 1;
+    final ReleaseMessage anotherReleaseMessage = mock(ReleaseMessage.class);
+    Release anotherRelease = mock(Release.class);
+    final CountDownLatch refreshStarted = new CountDownLatch(1);
+    final CountDownLatch refreshCanFinish = new CountDownLatch(1);
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey)))
+        .thenReturn(someReleaseMessage)
+        .thenAnswer(invocation -> {
+          refreshStarted.countDown();
+          refreshCanFinish.await(5, TimeUnit.SECONDS);
+          return anotherReleaseMessage;
+        });
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName))
+        .thenReturn(someRelease, anotherRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+    when(anotherReleaseMessage.getMessage()).thenReturn(someKey);
+    when(anotherReleaseMessage.getId()).thenReturn(someNewNotificationId);
+
+    Release release = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    Thread refreshThread = new Thread(
+        () -> configServiceWithCache.handleMessage(anotherReleaseMessage, Topics.APOLLO_RELEASE_TOPIC));
+    refreshThread.start();
+
+    assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+
+    //not blocked by the refresh
+    Release stillOldRelease = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+        someNamespaceName, someNotificationMessages);
+
+    refreshCanFinish.countDown();
+    refreshThread.join(5000);
+
+    Release shouldBeNewRelease = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+        someNamespaceName, someNotificationMessages);
+
+    assertEquals(someRelease, release);
+    assertEquals(someRelease, stillOldRelease);
+    assertEquals(anotherRelease, shouldBeNewRelease);
+
+    verify(releaseMessageService, times(2)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
+    verify(releaseService, times(2)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+  }
+
+  @Test
+  public void testFindLatestActiveReleaseWithOutdatedCacheWhileRefreshing() throws Exception {
+    long someNewNotificationId = someNotificationId + 1;
+    final ReleaseMessage anotherReleaseMessage = mock(ReleaseMessage.class);
+    Release anotherRelease = mock(Release.class);
+    final CountDownLatch refreshStarted = new CountDownLatch(1);
+    final CountDownLatch refreshCanFinish = new CountDownLatch(1);
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey)))
+        .thenReturn(someReleaseMessage)
+        .thenAnswer(invocation -> {
+          refreshStarted.countDown();
+          refreshCanFinish.await(5, TimeUnit.SECONDS);
+          return anotherReleaseMessage;
+        });
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName))
+        .thenReturn(someRelease, anotherRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+    when(anotherReleaseMessage.getId()).thenReturn(someNewNotificationId);
+
+    Release release = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    someNotificationMessages.put(someKey, someNewNotificationId);
+    Thread refreshThread = new Thread(() -> configServiceWithCache.findLatestActiveRelease(someAppId,
+        someClusterName, someNamespaceName, someNotificationMessages));
+    refreshThread.start();
+
+    assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+
+    //the in-flight refresh is neither repeated nor invalidated
+    Release stillOldRelease = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+        someNamespaceName, someNotificationMessages);
+
+    refreshCanFinish.countDown();
+    refreshThread.join(5000);
+
+    Release shouldBeNewRelease = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+        someNamespaceName, someNotificationMessages);
+
+    assertEquals(someRelease, release);
+    assertEquals(someRelease, stillOldRelease);
+    assertEquals(anotherRelease, shouldBeNewRelease);
+
+    verify(releaseMessageService, times(2)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
+    verify(releaseService, times(2)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+  }
+
+  @Test
+  public void testFindLatestActiveReleaseAfterRefreshFailed() throws Exception {
+    long someNewNotificationId = someNotificationId + 1;
+    ReleaseMessage anotherReleaseMessage = mock(ReleaseMessage.class);
+    Release anotherRelease = mock(Release.class);
+
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey)))
+        .thenReturn(someReleaseMessage)
+        .thenThrow(new RuntimeException("some db error"))
+        .thenReturn(anotherReleaseMessage);
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName))
+        .thenReturn(someRelease, anotherRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+    when(anotherReleaseMessage.getMessage()).thenReturn(someKey);
+    when(anotherReleaseMessage.getId()).thenReturn(someNewNotificationId);
+
+    Release release = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    configServiceWithCache.handleMessage(anotherReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    Release shouldBeNewRelease = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+        someNamespaceName, someNotificationMessages);
+
+    assertEquals(someRelease, release);
+    assertEquals(anotherRelease, shouldBeNewRelease);
+
+    verify(releaseMessageService, times(3)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
+    verify(releaseService, times(2)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+  }
+
+  @Test
+  public void testCacheIsBoundedBySize() throws Exception {
+    when(bizConfig.configServiceCacheMaxSizeInMB()).thenReturn(1);
+    configServiceWithCache.initialize();
+
+    //about 200KB each
+    String someConfigurations = Strings.repeat("a", 100 * 1024);
+    int releaseCount = 20;
+    for (long id = 1; id <= releaseCount; id++) {
+      Release release = new Release();
+      release.setConfigurations(someConfigurations);
+      when(releaseService.findActiveOne(id)).thenReturn(release);
+
+      configServiceWithCache.findActiveOne(id, someNotificationMessages);
+    }
+
+    long someId = 1;
+    configServiceWithCache.findActiveOne(someId, someNotificationMessages);
+
+    verify(releaseService, times(2)).findActiveOne(someId);
+  }
 }
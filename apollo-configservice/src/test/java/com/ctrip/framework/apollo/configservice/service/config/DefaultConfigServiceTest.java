@@ -1,7 +1,9 @@
 package com.ctrip.framework.apollo.configservice.service.config;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -13,6 +15,10 @@ import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -94,6 +100,40 @@ public class DefaultConfigServiceTest {
     assertEquals(grayRelease, release);
   }
 
+  @Test
+  public void testLoadConfigs() throws Exception {
+    String anotherNamespaceName = "anotherNamespace";
+    String yetAnotherNamespaceName = "yetAnotherNamespace";
+    Set<String> namespaces = Sets.newHashSet(defaultNamespaceName, anotherNamespaceName, yetAnotherNamespaceName);
+    Release grayRelease = mock(Release.class);
+    Release anotherRelease = mock(Release.class);
+    long grayReleaseId = 999;
+
+    when(grayReleaseRulesHolder.findReleaseIdsFromGrayReleaseRules(eq(someClientAppId), eq(someClientIp),
+        eq(someConfigAppId), eq(someClusterName), anyCollection()))
+        .thenReturn(ImmutableMap.of(defaultNamespaceName, grayReleaseId));
+    when(releaseService.findActiveOne(grayReleaseId)).thenReturn(grayRelease);
+    when(releaseService.findLatestActiveRelease(someConfigAppId, someDataCenter, anotherNamespaceName))
+        .thenReturn(anotherRelease);
+
+    Map<String, Release> releases = configService.loadConfigs(someClientAppId, someClientIp, someConfigAppId,
+        someClusterName, namespaces, someDataCenter, someNotificationMessages);
+
+    assertEquals(ImmutableMap.of(defaultNamespaceName, grayRelease, anotherNamespaceName, anotherRelease), releases);
+    //the gray release rules are looked up once per cluster
+    verify(grayReleaseRulesHolder, times(3)).findReleaseIdsFromGrayReleaseRules(anyString(), anyString(),
+        anyString(), anyString(), anyCollection());
+    verify(grayReleaseRulesHolder, never()).findReleaseIdFromGrayReleaseRule(anyString(), anyString(),
+        anyString(), anyString(), anyString());
+    verify(releaseService, never()).findLatestActiveRelease(someConfigAppId, someClusterName, defaultNamespaceName);
+    verify(releaseService, never()).findLatestActiveRelease(someConfigAppId, defaultClusterName,
+        anotherNamespaceName);
+    verify(releaseService, times(1)).findLatestActiveRelease(someConfigAppId, defaultClusterName,
+        yetAnotherNamespaceName);
+    //the caller's set is not modified
+    assertEquals(3, namespaces.size());
+  }
+
   @Test
   public void testLoadConfigWithReleaseNotFound() throws Exception {
     when(releaseService.findLatestActiveRelease(someConfigAppId, someClusterName, defaultNamespaceName))
@@ -0,0 +1,62 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.util.ContentEncodingUtil.ContentEncoding;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ContentEncodingUtilTest {
+  private ContentEncodingUtil contentEncodingUtil;
+  @Mock
+  private BizConfig bizConfig;
+  private int someThreshold;
+
+  @Before
+  public void setUp() throws Exception {
+    someThreshold = 1024;
+    when(bizConfig.configResponseCompressionThreshold()).thenReturn(someThreshold);
+    contentEncodingUtil = new ContentEncodingUtil(bizConfig);
+  }
+
+  @Test
+  public void testNegotiate() throws Exception {
+    assertEquals(ContentEncoding.GZIP, negotiate("gzip, deflate"));
+    assertEquals(ContentEncoding.GZIP, negotiate("deflate, gzip"));
+    assertEquals(ContentEncoding.DEFLATE, negotiate("deflate"));
+    assertEquals(ContentEncoding.DEFLATE, negotiate("gzip;q=0.5, deflate"));
+    assertEquals(ContentEncoding.GZIP, negotiate("*"));
+  }
+
+  @Test
+  public void testNegotiateWithoutAcceptableEncoding() throws Exception {
+    assertEquals(ContentEncoding.IDENTITY, negotiate(null));
+    assertEquals(ContentEncoding.IDENTITY, negotiate("br, identity"));
+    assertEquals(ContentEncoding.IDENTITY, negotiate("gzip;q=0"));
+    assertEquals(ContentEncoding.IDENTITY, negotiate("gzip;q=invalid"));
+  }
+
+  @Test
+  public void testNegotiateBelowThreshold() throws Exception {
+    MockHttpServletRequest someRequest = new MockHttpServletRequest();
+    someRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+    assertEquals(ContentEncoding.IDENTITY, contentEncodingUtil.negotiate(someRequest, someThreshold - 1));
+  }
+
+  private ContentEncoding negotiate(String acceptEncoding) {
+    MockHttpServletRequest someRequest = new MockHttpServletRequest();
+    if (acceptEncoding != null) {
+      someRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+    }
+    return contentEncodingUtil.negotiate(someRequest, someThreshold);
+  }
+}
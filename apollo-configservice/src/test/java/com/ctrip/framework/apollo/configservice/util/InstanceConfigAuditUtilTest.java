@@ -1,20 +1,32 @@
 package com.ctrip.framework.apollo.configservice.util;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 /**
@@ -26,7 +38,9 @@ public class InstanceConfigAuditUtilTest {
 
   @Mock
   private InstanceService instanceService;
-  private BlockingQueue<InstanceConfigAuditUtil.InstanceConfigAuditModel> audits;
+  @Mock
+  private BizConfig bizConfig;
+  private Map<String, InstanceConfigAuditUtil.InstanceConfigAuditModel> audits;
 
   private String someAppId;
   private String someConfigClusterName;
@@ -41,9 +55,11 @@ public class InstanceConfigAuditUtilTest {
 
   @Before
   public void setUp() throws Exception {
-    instanceConfigAuditUtil = new InstanceConfigAuditUtil(instanceService);
+    when(bizConfig.instanceConfigAuditWorkers()).thenReturn(2);
+
+    instanceConfigAuditUtil = new InstanceConfigAuditUtil(instanceService, bizConfig);
 
-    audits = (BlockingQueue<InstanceConfigAuditUtil.InstanceConfigAuditModel>)
+    audits = (Map<String, InstanceConfigAuditUtil.InstanceConfigAuditModel>)
         ReflectionTestUtils.getField(instanceConfigAuditUtil, "audits");
 
     someAppId = "someAppId";
@@ -65,12 +81,136 @@ public class InstanceConfigAuditUtilTest {
     boolean result = instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter,
         someIp, someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
 
-    InstanceConfigAuditUtil.InstanceConfigAuditModel audit = audits.poll();
+    InstanceConfigAuditUtil.InstanceConfigAuditModel audit = audits.values().iterator().next();
 
     assertTrue(result);
     assertTrue(Objects.equals(someAuditModel, audit));
   }
 
+  @Test
+  public void testAuditCoalescesSameNamespace() throws Exception {
+    String anotherReleaseKey = "anotherReleaseKey";
+
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, anotherReleaseKey);
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, "anotherConfigNamespace", someReleaseKey);
+
+    assertEquals(2, audits.size());
+    assertTrue(audits.values().stream().anyMatch(audit ->
+        someConfigNamespace.equals(audit.getConfigNamespace()) && anotherReleaseKey.equals(audit.getReleaseKey())));
+  }
+
+  @Test
+  public void testAuditDroppedWhenTooManyPending() throws Exception {
+    int maxSize = (int) ReflectionTestUtils.getField(InstanceConfigAuditUtil.class, "INSTANCE_CONFIG_AUDIT_MAX_SIZE");
+    for (int i = 0; i < maxSize; i++) {
+      assertTrue(instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, "ip" + i,
+          someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey));
+    }
+
+    assertFalse(instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey));
+    //coalesced with the pending one
+    assertTrue(instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, "ip0",
+        someConfigAppId, someConfigClusterName, someConfigNamespace, "anotherReleaseKey"));
+    assertEquals(1, instanceConfigAuditUtil.getDroppedAudits());
+    assertEquals(maxSize, audits.size());
+  }
+
+  @Test
+  public void testFlush() throws Exception {
+    String anotherIp = "anotherIp";
+    Instance someInstance = assembleInstance(1, someIp);
+    Instance anotherInstance = assembleInstance(2, anotherIp);
+
+    when(bizConfig.instanceConfigAuditBatch()).thenReturn(100);
+    when(instanceService.batchCreateInstances(anyList())).thenAnswer(invocation -> {
+      List<Instance> instances = invocation.getArgument(0);
+      return instances.stream().map(instance -> instance.getIp().equals(someIp) ? someInstance : anotherInstance)
+          .collect(Collectors.toList());
+    });
+
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, anotherIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
+
+    instanceConfigAuditUtil.flush();
+
+    //the instances might be assigned to the same worker or not
+    ArgumentCaptor<List<InstanceConfig>> created = ArgumentCaptor.forClass(List.class);
+    verify(instanceService, atLeastOnce()).batchCreateInstanceConfigs(created.capture());
+    assertTrue(audits.isEmpty());
+    assertEquals(2, created.getAllValues().stream().mapToInt(List::size).sum());
+    verify(instanceService, never()).findInstance(anyString(), anyString(), anyString(), anyString());
+  }
+
+  @Test
+  public void testDoAudits() throws Exception {
+    String anotherConfigNamespace = "anotherConfigNamespace";
+    String anotherReleaseKey = "anotherReleaseKey";
+    long someInstanceId = 1;
+    Instance someInstance = assembleInstance(someInstanceId, someIp);
+    InstanceConfig existedInstanceConfig = new InstanceConfig();
+    existedInstanceConfig.setId(100);
+    existedInstanceConfig.setInstanceId(someInstanceId);
+    existedInstanceConfig.setConfigAppId(someConfigAppId);
+    existedInstanceConfig.setConfigNamespaceName(anotherConfigNamespace);
+    existedInstanceConfig.setReleaseKey(someReleaseKey);
+    existedInstanceConfig.setDataChangeLastModifiedTime(new Date());
+
+    InstanceConfigAuditUtil.InstanceConfigAuditModel anotherAuditModel =
+        new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName,
+            someDataCenter, someIp, someConfigAppId, someConfigClusterName, anotherConfigNamespace,
+            anotherReleaseKey);
+
+    when(instanceService.findInstances(someAppId, someClusterName, someDataCenter,
+        Lists.newArrayList(someIp))).thenReturn(Lists.newArrayList(someInstance));
+    when(instanceService.findInstanceConfigsByInstanceIds(anyCollection()))
+        .thenReturn(Lists.newArrayList(existedInstanceConfig));
+
+    instanceConfigAuditUtil.doAudits(Lists.newArrayList(someAuditModel, anotherAuditModel));
+
+    ArgumentCaptor<List<InstanceConfig>> created = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<InstanceConfig>> updated = ArgumentCaptor.forClass(List.class);
+    verify(instanceService, never()).batchCreateInstances(anyList());
+    verify(instanceService, times(1)).findInstanceConfigsByInstanceIds(anyCollection());
+    verify(instanceService, times(1)).batchCreateInstanceConfigs(created.capture());
+    verify(instanceService, times(1)).batchUpdateInstanceConfigs(updated.capture());
+    assertEquals(someConfigNamespace, created.getValue().get(0).getConfigNamespaceName());
+    assertEquals(someInstanceId, created.getValue().get(0).getInstanceId());
+    assertEquals(anotherReleaseKey, updated.getValue().get(0).getReleaseKey());
+
+    //release keys are cached
+    instanceConfigAuditUtil.doAudits(Lists.newArrayList(someAuditModel, anotherAuditModel));
+
+    verify(instanceService, times(1)).findInstances(anyString(), anyString(), anyString(), anyCollection());
+    verify(instanceService, times(1)).findInstanceConfigsByInstanceIds(anyCollection());
+  }
+
+  @Test
+  public void testDoAuditsWithConcurrentInsertion() throws Exception {
+    long someInstanceId = 1;
+    Instance someInstance = assembleInstance(someInstanceId, someIp);
+
+    when(instanceService.batchCreateInstances(anyList()))
+        .thenThrow(new DataIntegrityViolationException("someMessage"));
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp))
+        .thenReturn(someInstance);
+    when(instanceService.batchCreateInstanceConfigs(anyList()))
+        .thenThrow(new DataIntegrityViolationException("someMessage"));
+    when(instanceService.createInstanceConfig(any(InstanceConfig.class)))
+        .thenThrow(new DataIntegrityViolationException("someMessage"));
+
+    instanceConfigAuditUtil.doAudits(Lists.newArrayList(someAuditModel));
+
+    verify(instanceService, times(1)).findInstance(someAppId, someClusterName, someDataCenter, someIp);
+    verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
+  }
+
   @Test
   public void testDoAudit() throws Exception {
     long someInstanceId = 1;
@@ -89,5 +229,13 @@ public class InstanceConfigAuditUtilTest {
     verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
   }
 
-
+  private Instance assembleInstance(long id, String ip) {
+    Instance instance = new Instance();
+    instance.setId(id);
+    instance.setAppId(someAppId);
+    instance.setClusterName(someClusterName);
+    instance.setDataCenter(someDataCenter);
+    instance.setIp(ip);
+    return instance;
+  }
 }
@@ -0,0 +1,205 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationFanOutSchedulerTest {
+  @Mock
+  private BizConfig bizConfig;
+  @Mock
+  private ScheduledExecutorService executorService;
+  private NotificationFanOutScheduler scheduler;
+  private ApolloConfigNotification someNotification;
+  private ApolloConfigNotification anotherNotification;
+  private AtomicLong currentTime;
+  private Deque<Runnable> executedTasks;
+  private Deque<Runnable> scheduledTicks;
+  private int someBatch;
+  private int someBatchInterval;
+
+  @Before
+  public void setUp() throws Exception {
+    someBatch = 2;
+    someBatchInterval = 10;
+    when(bizConfig.releaseMessageNotificationBatch()).thenReturn(someBatch);
+    when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(someBatchInterval);
+    when(bizConfig.releaseMessageNotificationWorkers()).thenReturn(2);
+
+    executedTasks = Lists.newLinkedList();
+    scheduledTicks = Lists.newLinkedList();
+    doAnswer(invocation -> executedTasks.offer(invocation.getArgument(0)))
+        .when(executorService).execute(any(Runnable.class));
+    when(executorService.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+      scheduledTicks.offer(invocation.getArgument(0));
+      return mock(ScheduledFuture.class);
+    });
+
+    currentTime = new AtomicLong();
+    scheduler = new NotificationFanOutScheduler(bizConfig, executorService, currentTime::get);
+    someNotification = new ApolloConfigNotification("someNamespace", 1);
+    anotherNotification = new ApolloConfigNotification("anotherNamespace", 2);
+  }
+
+  @Test
+  public void testSubmitNotifiesAllResults() throws Exception {
+    List<DeferredResultWrapper> results = mockResults(10);
+
+    scheduler.submit("someKey", results, someNotification);
+    runExecutedTasks();
+
+    //the first batch is notified without waiting for the tick
+    assertNotified(results.subList(0, someBatch), someNotification);
+    assertNotNotified(results.subList(someBatch, results.size()));
+    assertEquals(results.size() - someBatch, scheduler.getQueueDepth());
+
+    for (int i = 1; i < results.size() / someBatch; i++) {
+      tick();
+      assertEquals(results.size() - someBatch * (i + 1), scheduler.getQueueDepth());
+    }
+
+    assertNotified(results, someNotification);
+    assertEquals(0, scheduler.getQueueDepth());
+    assertEquals(0, scheduler.getPendingKeys());
+    assertEquals(someBatchInterval * (results.size() / someBatch - 1), scheduler.getLastNotifyLatencyInMilli());
+  }
+
+  @Test
+  public void testSmallFanOutIsNotQueuedBehindLargeOne() throws Exception {
+    List<DeferredResultWrapper> largeResults = mockResults(100);
+    List<DeferredResultWrapper> smallResults = mockResults(3);
+
+    scheduler.submit("someKey", largeResults, someNotification);
+    scheduler.submit("anotherKey", smallResults, anotherNotification);
+    runExecutedTasks();
+
+    //the keys share the tokens of each round
+    for (int i = 0; i < smallResults.size(); i++) {
+      tick();
+    }
+
+    assertNotified(smallResults, anotherNotification);
+    //the large fan out is rate limited to someBatch per interval, so it should be far from finished
+    assertEquals(1, scheduler.getPendingKeys());
+    assertEquals(largeResults.size() - (smallResults.size() + 1) * someBatch + smallResults.size(),
+        scheduler.getQueueDepth());
+
+    while (scheduler.getPendingKeys() > 0) {
+      tick();
+    }
+    assertNotified(largeResults, someNotification);
+  }
+
+  @Test
+  public void testTickPausesWhenNothingPending() throws Exception {
+    verify(executorService, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+    List<DeferredResultWrapper> results = mockResults(someBatch + 1);
+    scheduler.submit("someKey", results, someNotification);
+    runExecutedTasks();
+    verify(executorService, times(1)).schedule(any(Runnable.class), eq((long) someBatchInterval),
+        eq(TimeUnit.MILLISECONDS));
+
+    tick();
+    assertNotified(results, someNotification);
+    assertEquals(1, scheduledTicks.size());
+
+    //nothing pending, so the tick is not rescheduled
+    tick();
+    assertEquals(0, scheduledTicks.size());
+
+    List<DeferredResultWrapper> anotherResults = mockResults(someBatch + 1);
+    scheduler.submit("anotherKey", anotherResults, anotherNotification);
+    runExecutedTasks();
+
+    //resumed with a full bucket
+    assertNotified(anotherResults.subList(0, someBatch), anotherNotification);
+    assertEquals(1, scheduledTicks.size());
+
+    tick();
+    assertNotified(anotherResults, anotherNotification);
+  }
+
+  @Test
+  public void testMetricsAreBoundToRegistry() throws Exception {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    scheduler.bindTo(registry);
+
+    List<DeferredResultWrapper> results = mockResults(someBatch * 2 + 1);
+    scheduler.submit("someKey", results, someNotification);
+    runExecutedTasks();
+
+    assertEquals(someBatch + 1, registry.get("apollo.longpoll.fanout.queue.depth").gauge().value(), 0);
+    assertEquals(1, registry.get("apollo.longpoll.fanout.pending.keys").gauge().value(), 0);
+
+    tick();
+    tick();
+
+    assertEquals(0, registry.get("apollo.longpoll.fanout.queue.depth").gauge().value(), 0);
+    assertEquals(0, registry.get("apollo.longpoll.fanout.pending.keys").gauge().value(), 0);
+    assertEquals(someBatchInterval * 2, registry.get("apollo.longpoll.fanout.last.latency").gauge().value(), 0);
+  }
+
+  private void tick() {
+    currentTime.addAndGet(someBatchInterval);
+    Runnable tick = scheduledTicks.poll();
+    if (tick != null) {
+      tick.run();
+    }
+    runExecutedTasks();
+  }
+
+  private void runExecutedTasks() {
+    Runnable task;
+    while ((task = executedTasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private void assertNotified(List<DeferredResultWrapper> results, ApolloConfigNotification notification) {
+    for (DeferredResultWrapper result : results) {
+      verify(result, times(1)).setResult(notification);
+    }
+  }
+
+  private void assertNotNotified(List<DeferredResultWrapper> results) {
+    for (DeferredResultWrapper result : results) {
+      verify(result, never()).setResult(any(ApolloConfigNotification.class));
+    }
+  }
+
+  private List<DeferredResultWrapper> mockResults(int size) {
+    List<DeferredResultWrapper> results = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      results.add(mock(DeferredResultWrapper.class));
+    }
+    return results;
+  }
+}
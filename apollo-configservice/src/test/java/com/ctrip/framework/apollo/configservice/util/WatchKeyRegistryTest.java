@@ -0,0 +1,115 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WatchKeyRegistryTest {
+  private WatchKeyRegistry<Object> registry;
+  private String someKey;
+  private String anotherKey;
+
+  @Before
+  public void setUp() throws Exception {
+    registry = new WatchKeyRegistry<>();
+    someKey = "someAppId+someCluster+someNamespace";
+    anotherKey = "someAppId+default+someNamespace";
+  }
+
+  @Test
+  public void testRegisterAndUnregister() throws Exception {
+    Object someWatcher = new Object();
+    Object anotherWatcher = new Object();
+
+    registry.register(someKey, someWatcher);
+    registry.register(someKey, anotherWatcher);
+    registry.register(anotherKey, someWatcher);
+    registry.register(anotherKey, someWatcher);
+
+    assertEquals(3, registry.size());
+    assertEquals(2, registry.get(someKey).size());
+    assertTrue(registry.get(anotherKey).contains(someWatcher));
+
+    registry.unregister(someKey, someWatcher);
+    registry.unregister(anotherKey, someWatcher);
+
+    assertEquals(1, registry.size());
+    assertTrue(registry.containsKey(someKey));
+    assertFalse(registry.containsKey(anotherKey));
+    assertTrue(registry.get(anotherKey).isEmpty());
+  }
+
+  @Test
+  public void testUnregisterWithUnknownKey() throws Exception {
+    registry.unregister(someKey, new Object());
+
+    assertFalse(registry.containsKey(someKey));
+    assertEquals(0, registry.size());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetIsReadOnly() throws Exception {
+    registry.register(someKey, new Object());
+
+    registry.get(someKey).clear();
+  }
+
+  @Test
+  public void testRegisterChurnWithConcurrentFanOut() throws Exception {
+    int churnThreads = 4;
+    int watchersPerThread = 5000;
+    ExecutorService executorService = Executors.newFixedThreadPool(churnThreads + 1);
+    CountDownLatch startLatch = new CountDownLatch(1);
+    AtomicBoolean churnFinished = new AtomicBoolean(false);
+    List<Future<?>> churnFutures = Lists.newArrayList();
+
+    for (int i = 0; i < churnThreads; i++) {
+      churnFutures.add(executorService.submit(() -> {
+        startLatch.await();
+        for (int j = 0; j < watchersPerThread; j++) {
+          Object watcher = new Object();
+          registry.register(someKey, watcher);
+          registry.register(anotherKey, watcher);
+          registry.unregister(someKey, watcher);
+          registry.unregister(anotherKey, watcher);
+        }
+        return null;
+      }));
+    }
+
+    //simulate the publish storm, iterating the watchers while they are being registered and removed
+    Future<?> fanOutFuture = executorService.submit(() -> {
+      startLatch.await();
+      while (!churnFinished.get()) {
+        for (Object watcher : registry.get(someKey)) {
+          watcher.hashCode();
+        }
+      }
+      return null;
+    });
+
+    startLatch.countDown();
+    for (Future<?> churnFuture : churnFutures) {
+      churnFuture.get(30, TimeUnit.SECONDS);
+    }
+    churnFinished.set(true);
+    fanOutFuture.get(30, TimeUnit.SECONDS);
+    executorService.shutdown();
+
+    assertEquals(0, registry.size());
+    assertFalse(registry.containsKey(someKey));
+    assertFalse(registry.containsKey(anotherKey));
+  }
+}
@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.core.dto;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +18,13 @@ public class ApolloConfig {
 
   private String releaseKey;
 
+  /**
+   * 非空时为增量配置：configurations 只包含新增和修改的 key，deletedKeys 为删除的 key
+   */
+  private String baseReleaseKey;
+
+  private List<String> deletedKeys;
+
   public ApolloConfig() {
   }
 
@@ -50,6 +58,18 @@ public class ApolloConfig {
     return configurations;
   }
 
+  public String getBaseReleaseKey() {
+    return baseReleaseKey;
+  }
+
+  public List<String> getDeletedKeys() {
+    return deletedKeys;
+  }
+
+  public boolean isDelta() {
+    return baseReleaseKey != null;
+  }
+
   public void setAppId(String appId) {
     this.appId = appId;
   }
@@ -70,6 +90,14 @@ public class ApolloConfig {
     this.configurations = configurations;
   }
 
+  public void setBaseReleaseKey(String baseReleaseKey) {
+    this.baseReleaseKey = baseReleaseKey;
+  }
+
+  public void setDeletedKeys(List<String> deletedKeys) {
+    this.deletedKeys = deletedKeys;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("ApolloConfig{");
@@ -78,6 +106,10 @@ public class ApolloConfig {
     sb.append(", namespaceName='").append(namespaceName).append('\'');
     sb.append(", configurations=").append(configurations);
     sb.append(", releaseKey='").append(releaseKey).append('\'');
+    if (baseReleaseKey != null) {
+      sb.append(", baseReleaseKey='").append(baseReleaseKey).append('\'');
+      sb.append(", deletedKeys=").append(deletedKeys);
+    }
     sb.append('}');
     return sb.toString();
   }
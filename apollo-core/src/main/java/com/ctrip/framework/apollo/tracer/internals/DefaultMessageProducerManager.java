@@ -3,18 +3,27 @@ package com.ctrip.framework.apollo.tracer.internals;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.tracer.internals.cat.CatMessageProducer;
 import com.ctrip.framework.apollo.tracer.internals.cat.CatNames;
+import com.ctrip.framework.apollo.tracer.internals.metrics.MetricsExporter;
+import com.ctrip.framework.apollo.tracer.internals.metrics.MetricsMessageProducer;
 import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
 import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
 
 /**
+ * Uses CAT if it is present, otherwise the in-process metrics if apollo.metrics.enabled is true
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 public class DefaultMessageProducerManager implements MessageProducerManager {
+  static final String METRICS_ENABLED_PROPERTY = "apollo.metrics.enabled";
   private static MessageProducer producer;
 
   public DefaultMessageProducerManager() {
     if (ClassLoaderUtil.isClassPresent(CatNames.CAT_CLASS)) {
       producer = new CatMessageProducer();
+    } else if (Boolean.parseBoolean(System.getProperty(METRICS_ENABLED_PROPERTY))) {
+      MetricsMessageProducer metricsMessageProducer = new MetricsMessageProducer();
+      MetricsExporter.export(metricsMessageProducer);
+      producer = metricsMessageProducer;
     } else {
       producer = new NullMessageProducerManager().getProducer();
     }
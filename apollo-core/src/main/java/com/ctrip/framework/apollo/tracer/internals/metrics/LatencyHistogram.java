@@ -0,0 +1,95 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图，单位为微秒
+ * <p>
+ * Log-linear buckets in the style of HdrHistogram: values below 16 have their own buckets, and each power of two
+ * above is split into 8 buckets, so a recorded value is reported with an error of at most 12.5%.
+ */
+public class LatencyHistogram {
+  private static final int LINEAR_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MIN_EXPONENT = 4;
+  //about 12 days in micros, larger values are recorded in the last bucket
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long durationInNanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationInNanos));
+    counts.incrementAndGet(bucketOf(micros));
+    totalCount.incrementAndGet();
+    totalMicros.addAndGet(micros);
+    long max;
+    while (micros > (max = maxMicros.get())) {
+      if (maxMicros.compareAndSet(max, micros)) {
+        break;
+      }
+    }
+  }
+
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+
+  public long getMeanMicros() {
+    long count = totalCount.get();
+    return count == 0 ? 0 : totalMicros.get() / count;
+  }
+
+  /**
+   * @param percentile in (0, 100]
+   * @return the upper bound of the bucket containing the percentile, 0 if nothing recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = totalCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long accumulated = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      accumulated += counts.get(i);
+      if (accumulated >= target) {
+        return Math.min(upperBoundOf(i), maxMicros.get());
+      }
+    }
+    //buckets are updated before the total count, so only reached under concurrent recording
+    return maxMicros.get();
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < LINEAR_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+    return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < LINEAR_BUCKETS) {
+      return bucket;
+    }
+    int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + MIN_EXPONENT;
+    int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+    long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -0,0 +1,49 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 某个 type 和 name 的计数，transaction 还会记录延迟
+ */
+public class Metric {
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong errorCount = new AtomicLong();
+  private volatile LatencyHistogram latencyHistogram;
+
+  void recordEvent(boolean success) {
+    count.incrementAndGet();
+    if (!success) {
+      errorCount.incrementAndGet();
+    }
+  }
+
+  void recordTransaction(boolean success, long durationInNanos) {
+    recordEvent(success);
+    LatencyHistogram histogram = latencyHistogram;
+    if (histogram == null) {
+      synchronized (this) {
+        histogram = latencyHistogram;
+        if (histogram == null) {
+          histogram = new LatencyHistogram();
+          latencyHistogram = histogram;
+        }
+      }
+    }
+    histogram.record(durationInNanos);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getErrorCount() {
+    return errorCount.get();
+  }
+
+  /**
+   * @return null if the metric is not a transaction
+   */
+  public LatencyHistogram getLatencyHistogram() {
+    return latencyHistogram;
+  }
+}
@@ -0,0 +1,116 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 通过 JMX 和本地 HTTP 暴露指标
+ * <p>
+ * The MXBean is always registered. The HTTP endpoint listens on the loopback address only if apollo.metrics.http.port
+ * is set, and serves the metrics as text at /metrics, one "type/name.stat value" per line.
+ */
+public class MetricsExporter {
+  private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+  static final String OBJECT_NAME = "com.ctrip.framework.apollo:type=Metrics";
+  static final String HTTP_PORT_PROPERTY = "apollo.metrics.http.port";
+  static final String HTTP_PATH = "/metrics";
+
+  private MetricsExporter() {
+  }
+
+  public static void export(MetricsMessageProducer producer) {
+    registerMXBean(producer);
+    String port = System.getProperty(HTTP_PORT_PROPERTY);
+    if (port != null && !port.trim().isEmpty()) {
+      try {
+        startHttpServer(producer, Integer.parseInt(port.trim()));
+      } catch (Throwable ex) {
+        logger.warn("Failed to start apollo metrics http endpoint on port {}", port, ex);
+      }
+    }
+  }
+
+  static void registerMXBean(final MetricsMessageProducer producer) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMXBean() {
+        @Override
+        public Map<String, Long> getMetrics() {
+          return producer.getMetrics();
+        }
+
+        @Override
+        public void reset() {
+          producer.reset();
+        }
+      }, new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException ex) {
+      //registered by another class loader, e.g. in the same servlet container
+      logger.debug("Apollo metrics MXBean {} is already registered", OBJECT_NAME);
+    } catch (Throwable ex) {
+      logger.warn("Failed to register apollo metrics MXBean {}", OBJECT_NAME, ex);
+    }
+  }
+
+  static HttpServer startHttpServer(final MetricsMessageProducer producer, int port) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext(HTTP_PATH, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, Long> entry : producer.getMetrics().entrySet()) {
+          body.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(bytes);
+        }
+      }
+    });
+    server.setExecutor(Executors.newSingleThreadExecutor(ApolloThreadFactory.create("MetricsHttpServer", true)));
+    startInDaemonThread(server);
+    logger.info("Apollo metrics http endpoint started at http://{}:{}{}", server.getAddress().getHostString(),
+        server.getAddress().getPort(), HTTP_PATH);
+    return server;
+  }
+
+  /**
+   * the dispatcher thread of the server inherits the daemon flag of the starting thread, so that it doesn't keep the
+   * jvm alive
+   */
+  private static void startInDaemonThread(final HttpServer server) throws IOException {
+    final FutureTask<Void> startTask = new FutureTask<>(new Runnable() {
+      @Override
+      public void run() {
+        server.start();
+      }
+    }, null);
+    ApolloThreadFactory.create("MetricsHttpServerStarter", true).newThread(startTask).start();
+    try {
+      startTask.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException(ex);
+    } catch (ExecutionException ex) {
+      throw new IOException(ex.getCause());
+    }
+  }
+}
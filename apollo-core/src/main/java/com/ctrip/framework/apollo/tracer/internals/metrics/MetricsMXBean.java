@@ -0,0 +1,15 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX 接口，ObjectName 为 com.ctrip.framework.apollo:type=Metrics
+ */
+public interface MetricsMXBean {
+  /**
+   * @return the metrics in the form of type/name.stat, latencies are in microseconds
+   */
+  Map<String, Long> getMetrics();
+
+  void reset();
+}
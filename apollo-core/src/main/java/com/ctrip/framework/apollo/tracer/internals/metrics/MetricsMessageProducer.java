@@ -0,0 +1,102 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 进程内指标，把 transaction 和 event 转换为计数和延迟直方图
+ * <p>
+ * Metrics are keyed by type and name. Some names are unbounded, e.g. release keys, so each type keeps at most
+ * {@link #MAX_NAMES_PER_TYPE} names and the rest are counted as {@link #OTHERS}.
+ */
+public class MetricsMessageProducer implements MessageProducer {
+  static final String ERROR_TYPE = "Error";
+  static final String OTHERS = "others";
+  private static final int MAX_TYPES = 500;
+  private static final int MAX_NAMES_PER_TYPE = 200;
+
+  private final ConcurrentMap<String, ConcurrentMap<String, Metric>> metrics = new ConcurrentHashMap<>();
+
+  @Override
+  public void logError(Throwable cause) {
+    getMetric(ERROR_TYPE, cause == null ? null : cause.getClass().getName()).recordEvent(false);
+  }
+
+  @Override
+  public void logError(String message, Throwable cause) {
+    logError(cause);
+  }
+
+  @Override
+  public void logEvent(String type, String name) {
+    getMetric(type, name).recordEvent(true);
+  }
+
+  @Override
+  public void logEvent(String type, String name, String status, String nameValuePairs) {
+    getMetric(type, name).recordEvent(Transaction.SUCCESS.equals(status));
+  }
+
+  @Override
+  public Transaction newTransaction(String type, String name) {
+    return new MetricsTransaction(getMetric(type, name));
+  }
+
+  /**
+   * @return the metrics in the form of type/name.stat, latencies are in microseconds
+   */
+  public SortedMap<String, Long> getMetrics() {
+    SortedMap<String, Long> result = new TreeMap<>();
+    for (Map.Entry<String, ConcurrentMap<String, Metric>> typeEntry : metrics.entrySet()) {
+      for (Map.Entry<String, Metric> nameEntry : typeEntry.getValue().entrySet()) {
+        String prefix = typeEntry.getKey() + "/" + nameEntry.getKey() + ".";
+        Metric metric = nameEntry.getValue();
+        result.put(prefix + "count", metric.getCount());
+        result.put(prefix + "errors", metric.getErrorCount());
+        LatencyHistogram histogram = metric.getLatencyHistogram();
+        if (histogram != null) {
+          result.put(prefix + "mean", histogram.getMeanMicros());
+          result.put(prefix + "p50", histogram.getValueAtPercentile(50));
+          result.put(prefix + "p90", histogram.getValueAtPercentile(90));
+          result.put(prefix + "p99", histogram.getValueAtPercentile(99));
+          result.put(prefix + "p999", histogram.getValueAtPercentile(99.9));
+          result.put(prefix + "max", histogram.getMaxMicros());
+        }
+      }
+    }
+    return result;
+  }
+
+  public void reset() {
+    metrics.clear();
+  }
+
+  Metric getMetric(String type, String name) {
+    type = String.valueOf(type);
+    name = String.valueOf(name);
+    ConcurrentMap<String, Metric> typeMetrics = metrics.get(type);
+    if (typeMetrics == null) {
+      typeMetrics = getOrCreate(metrics, type, MAX_TYPES, new ConcurrentHashMap<String, Metric>());
+    }
+    Metric metric = typeMetrics.get(name);
+    if (metric == null) {
+      metric = getOrCreate(typeMetrics, name, MAX_NAMES_PER_TYPE, new Metric());
+    }
+    return metric;
+  }
+
+  private static <T> T getOrCreate(ConcurrentMap<String, T> map, String key, int maxSize, T newValue) {
+    //size is an estimate under concurrency, which is good enough for a limit
+    if (map.size() >= maxSize) {
+      key = OTHERS;
+    }
+    T value = map.putIfAbsent(key, newValue);
+    return value == null ? newValue : value;
+  }
+}
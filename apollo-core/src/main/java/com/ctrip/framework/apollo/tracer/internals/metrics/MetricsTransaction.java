@@ -0,0 +1,42 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+
+/**
+ * 记录耗时和状态，数据不保存
+ */
+public class MetricsTransaction implements Transaction {
+  private final Metric metric;
+  private final long startNanos;
+  private volatile String status = Transaction.SUCCESS;
+  private volatile boolean completed;
+
+  MetricsTransaction(Metric metric) {
+    this.metric = metric;
+    this.startNanos = System.nanoTime();
+  }
+
+  @Override
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  @Override
+  public void setStatus(Throwable e) {
+    this.status = e == null ? null : e.getClass().getName();
+  }
+
+  @Override
+  public void addData(String key, Object value) {
+    //data is only useful with a tracing system
+  }
+
+  @Override
+  public void complete() {
+    if (completed) {
+      return;
+    }
+    completed = true;
+    metric.recordTransaction(Transaction.SUCCESS.equals(status), System.nanoTime() - startNanos);
+  }
+}
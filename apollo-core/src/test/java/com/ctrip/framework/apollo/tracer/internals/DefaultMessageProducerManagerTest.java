@@ -1,10 +1,14 @@
 package com.ctrip.framework.apollo.tracer.internals;
 
+import com.ctrip.framework.apollo.tracer.internals.metrics.MetricsMessageProducer;
 import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
 import static org.junit.Assert.*;
 
 /**
@@ -23,4 +27,18 @@ public class DefaultMessageProducerManagerTest {
     assertTrue(messageProducerManager.getProducer() instanceof NullMessageProducer);
   }
 
+  @Test
+  public void testGetProducerWithMetricsEnabled() throws Exception {
+    System.setProperty(DefaultMessageProducerManager.METRICS_ENABLED_PROPERTY, "true");
+    try {
+      assertTrue(new DefaultMessageProducerManager().getProducer() instanceof MetricsMessageProducer);
+    } finally {
+      System.clearProperty(DefaultMessageProducerManager.METRICS_ENABLED_PROPERTY);
+      ManagementFactory.getPlatformMBeanServer()
+          .unregisterMBean(new ObjectName("com.ctrip.framework.apollo:type=Metrics"));
+      //the producer is static, restore it for the other tests
+      new DefaultMessageProducerManager();
+    }
+  }
+
 }
\ No newline at end of file
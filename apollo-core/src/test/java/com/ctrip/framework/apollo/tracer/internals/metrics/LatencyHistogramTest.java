@@ -0,0 +1,49 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBuckets() throws Exception {
+    for (long micros = 0; micros < 100000; micros++) {
+      long upperBound = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(micros));
+      assertTrue(upperBound >= micros);
+      assertTrue(upperBound - micros <= micros / 8);
+    }
+    assertEquals(LatencyHistogram.bucketOf(Long.MAX_VALUE), LatencyHistogram.bucketOf(1L << 50));
+  }
+
+  @Test
+  public void testPercentiles() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000, histogram.getMaxMicros());
+    assertEquals(500500, histogram.getMeanMicros());
+    assertWithinError(500000, histogram.getValueAtPercentile(50));
+    assertWithinError(990000, histogram.getValueAtPercentile(99));
+    assertEquals(1000000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    assertEquals(0, histogram.getMeanMicros());
+  }
+
+  private void assertWithinError(long expected, long actual) {
+    assertTrue(String.format("expected %d but was %d", expected, actual),
+        actual >= expected && actual - expected <= expected / 8);
+  }
+}
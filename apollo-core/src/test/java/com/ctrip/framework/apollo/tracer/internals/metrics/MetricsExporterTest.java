@@ -0,0 +1,55 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.google.common.io.CharStreams;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsExporterTest {
+
+  @Test
+  public void testHttpEndpoint() throws Exception {
+    MetricsMessageProducer producer = new MetricsMessageProducer();
+    producer.logEvent("someType", "someName");
+
+    HttpServer server = MetricsExporter.startHttpServer(producer, 0);
+    try {
+      URL url = new URL(String.format("http://127.0.0.1:%d%s", server.getAddress().getPort(),
+          MetricsExporter.HTTP_PATH));
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+      assertEquals(200, connection.getResponseCode());
+      String body = CharStreams.toString(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+      assertTrue(body.contains("someType/someName.count 1\n"));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testMXBean() throws Exception {
+    MetricsMessageProducer producer = new MetricsMessageProducer();
+    producer.logEvent("someType", "someName");
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(MetricsExporter.OBJECT_NAME);
+
+    MetricsExporter.registerMXBean(producer);
+    try {
+      TabularData metrics = (TabularData) mBeanServer.getAttribute(objectName, "Metrics");
+      assertEquals(1L, metrics.get(new Object[]{"someType/someName.count"}).get("value"));
+    } finally {
+      mBeanServer.unregisterMBean(objectName);
+    }
+  }
+}
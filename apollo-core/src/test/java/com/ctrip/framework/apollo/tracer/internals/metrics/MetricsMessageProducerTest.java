@@ -0,0 +1,77 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsMessageProducerTest {
+  private MetricsMessageProducer producer;
+
+  @Before
+  public void setUp() throws Exception {
+    producer = new MetricsMessageProducer();
+  }
+
+  @Test
+  public void testTransaction() throws Exception {
+    String someType = "Apollo.ConfigService";
+    String someName = "queryConfig";
+
+    Transaction transaction = producer.newTransaction(someType, someName);
+    transaction.setStatus(Transaction.SUCCESS);
+    transaction.complete();
+    //completed only once
+    transaction.complete();
+
+    Transaction anotherTransaction = producer.newTransaction(someType, someName);
+    anotherTransaction.setStatus(new IllegalStateException());
+    anotherTransaction.complete();
+
+    Map<String, Long> metrics = producer.getMetrics();
+    assertEquals(2, (long) metrics.get("Apollo.ConfigService/queryConfig.count"));
+    assertEquals(1, (long) metrics.get("Apollo.ConfigService/queryConfig.errors"));
+    assertTrue(metrics.containsKey("Apollo.ConfigService/queryConfig.p99"));
+    assertTrue(metrics.containsKey("Apollo.ConfigService/queryConfig.max"));
+  }
+
+  @Test
+  public void testEventAndError() throws Exception {
+    producer.logEvent("Apollo.LongPoll.Notifications", "someNamespace");
+    producer.logEvent("Apollo.LongPoll.Notifications", "someNamespace", "-1", null);
+    producer.logError("some message", new IllegalArgumentException());
+
+    Map<String, Long> metrics = producer.getMetrics();
+    assertEquals(2, (long) metrics.get("Apollo.LongPoll.Notifications/someNamespace.count"));
+    assertEquals(1, (long) metrics.get("Apollo.LongPoll.Notifications/someNamespace.errors"));
+    assertFalse(metrics.containsKey("Apollo.LongPoll.Notifications/someNamespace.p99"));
+    assertEquals(1, (long) metrics.get("Error/java.lang.IllegalArgumentException.errors"));
+  }
+
+  @Test
+  public void testNamesAreBounded() throws Exception {
+    String someType = "Apollo.Client.Configs.application";
+    for (int i = 0; i < 1000; i++) {
+      producer.logEvent(someType, "someReleaseKey" + i);
+    }
+
+    Map<String, Long> metrics = producer.getMetrics();
+    assertEquals(1000 - 200, (long) metrics.get(someType + "/" + MetricsMessageProducer.OTHERS + ".count"));
+    assertNull(metrics.get(someType + "/someReleaseKey999.count"));
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    producer.logEvent("someType", "someName");
+
+    producer.reset();
+
+    assertTrue(producer.getMetrics().isEmpty());
+  }
+}